@@ -0,0 +1,75 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.reactivex.functions.Function;
+
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Maps a 100k-row cursor with the per-row column lookups the data source used before and with
+ * {@link TaskCursorMapper}, and logs CPU time and allocated bytes per row for both.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskCursorMapperBenchmark {
+
+    private static final String TAG = "TaskCursorMapperBench";
+    private static final int ROWS = 100000;
+
+    private static final Function<Cursor, Task> LEGACY_MAPPER = c -> {
+        String itemId = c.getString(c.getColumnIndexOrThrow(COLUMN_NAME_ENTRY_ID));
+        String title = c.getString(c.getColumnIndexOrThrow(COLUMN_NAME_TITLE));
+        String description = c.getString(c.getColumnIndexOrThrow(COLUMN_NAME_DESCRIPTION));
+        boolean completed = c.getInt(c.getColumnIndexOrThrow(COLUMN_NAME_COMPLETED)) == 1;
+        return new Task(title, description, itemId, completed);
+    };
+
+    @Test
+    public void mapRows() throws Exception {
+        MatrixCursor cursor = new MatrixCursor(new String[]{
+                COLUMN_NAME_ENTRY_ID, COLUMN_NAME_TITLE, COLUMN_NAME_DESCRIPTION, COLUMN_NAME_COMPLETED}, ROWS);
+        for(int i = 0; i < ROWS; i++) {
+            cursor.addRow(new Object[]{"id-" + i, "title" + i, "description" + i, i % 2});
+        }
+
+        run(cursor, LEGACY_MAPPER);
+        run(cursor, new TaskCursorMapper());
+        long[] legacy = run(cursor, LEGACY_MAPPER);
+        long[] cached = run(cursor, new TaskCursorMapper());
+        cursor.close();
+
+        Log.i(TAG, String.format("per row: getColumnIndexOrThrow %d ns %d bytes, cached indices %d ns %d bytes",
+                legacy[0] / ROWS, legacy[1] / ROWS, cached[0] / ROWS, cached[1] / ROWS));
+    }
+
+    @SuppressWarnings("deprecation")
+    private long[] run(Cursor cursor, Function<Cursor, Task> mapper) throws Exception {
+        cursor.moveToPosition(-1);
+        int mapped = 0;
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = Debug.threadCpuTimeNanos();
+        while(cursor.moveToNext()) {
+            mapper.apply(cursor);
+            mapped++;
+        }
+        long cpu = Debug.threadCpuTimeNanos() - start;
+        Debug.stopAllocCounting();
+        assertEquals(ROWS, mapped);
+        return new long[]{cpu, Debug.getThreadAllocSize()};
+    }
+}
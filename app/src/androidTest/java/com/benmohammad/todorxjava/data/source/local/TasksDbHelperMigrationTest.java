@@ -0,0 +1,160 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.OutboxEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_UPDATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.INDEX_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.INDEX_UPDATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.TABLE_NAME;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry._ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TasksDbHelperMigrationTest {
+
+    private static final String TEST_DATABASE = "tasks-migration-test.db";
+
+    private static final String SQL_CREATE_ENTRIES_V1 =
+            "CREATE TABLE " + TABLE_NAME + " (" +
+                    COLUMN_NAME_ENTRY_ID + " TEXT PRIMARY KEY," +
+                    COLUMN_NAME_TITLE + " TEXT," +
+                    COLUMN_NAME_DESCRIPTION + " TEXT," +
+                    COLUMN_NAME_COMPLETED + " INTEGER )";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mContext.deleteDatabase(TEST_DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void upgradeFromV1_keepsRowsInOrderAndAddsSchemaV2() {
+        SQLiteOpenHelper v1Helper = new SQLiteOpenHelper(mContext, TEST_DATABASE, null, 1) {
+            @Override
+            public void onCreate(SQLiteDatabase db) {
+                db.execSQL(SQL_CREATE_ENTRIES_V1);
+            }
+
+            @Override
+            public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            }
+        };
+        SQLiteDatabase v1 = v1Helper.getWritableDatabase();
+        insertV1(v1, "c", "title c", "description c", true);
+        insertV1(v1, "a", "title a", null, false);
+        insertV1(v1, "b", null, "description b", false);
+        v1Helper.close();
+
+        TasksDbHelper helper = new TasksDbHelper(mContext, TEST_DATABASE);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        assertEquals(TasksDbHelper.DATABASE_VERSION, db.getVersion());
+
+        Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_NAME + " ORDER BY " + _ID, null);
+        try {
+            assertEquals(3, cursor.getCount());
+            String[] expectedIds = {"c", "a", "b"};
+            long previousId = 0;
+            for(String expectedId : expectedIds) {
+                assertTrue(cursor.moveToNext());
+                assertEquals(expectedId, cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME_ENTRY_ID)));
+                long id = cursor.getLong(cursor.getColumnIndexOrThrow(_ID));
+                assertTrue(id > previousId);
+                previousId = id;
+                assertTrue(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_NAME_CREATED_AT)) > 0);
+                assertTrue(cursor.getLong(cursor.getColumnIndexOrThrow(COLUMN_NAME_UPDATED_AT)) > 0);
+            }
+            cursor.moveToFirst();
+            assertEquals(1, cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_NAME_COMPLETED)));
+            assertEquals("title c", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME_TITLE)));
+            cursor.moveToLast();
+            assertTrue(cursor.isNull(cursor.getColumnIndexOrThrow(COLUMN_NAME_TITLE)));
+            assertEquals("description b", cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_NAME_DESCRIPTION)));
+        } finally {
+            cursor.close();
+        }
+
+        assertEquals(1, countIndex(db, INDEX_COMPLETED));
+        assertEquals(1, countIndex(db, INDEX_UPDATED_AT));
+        assertEquals(1, countTable(db, OutboxEntry.TABLE_NAME));
+        assertEquals("wal", journalMode(db));
+        helper.close();
+    }
+
+    @Test
+    public void freshInstall_createsSchemaV2WithWal() {
+        TasksDbHelper helper = new TasksDbHelper(mContext, TEST_DATABASE);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(TasksDbHelper.DATABASE_VERSION, db.getVersion());
+        assertEquals(1, countIndex(db, INDEX_COMPLETED));
+        assertEquals(1, countIndex(db, INDEX_UPDATED_AT));
+        assertEquals(1, countTable(db, OutboxEntry.TABLE_NAME));
+        assertEquals("wal", journalMode(db));
+        helper.close();
+    }
+
+    private static void insertV1(SQLiteDatabase db, String id, String title, String description, boolean completed) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME_ENTRY_ID, id);
+        values.put(COLUMN_NAME_TITLE, title);
+        values.put(COLUMN_NAME_DESCRIPTION, description);
+        values.put(COLUMN_NAME_COMPLETED, completed);
+        db.insert(TABLE_NAME, null, values);
+    }
+
+    private static int countIndex(SQLiteDatabase db, String index) {
+        return countSchemaObjects(db, "index", index);
+    }
+
+    private static int countTable(SQLiteDatabase db, String table) {
+        return countSchemaObjects(db, "table", table);
+    }
+
+    private static int countSchemaObjects(SQLiteDatabase db, String type, String name) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = ? AND name = ?",
+                new String[]{type, name});
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String journalMode(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("PRAGMA journal_mode", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getString(0).toLowerCase();
+        } finally {
+            cursor.close();
+        }
+    }
+}
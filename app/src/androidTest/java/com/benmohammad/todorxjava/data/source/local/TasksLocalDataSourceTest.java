@@ -0,0 +1,118 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.util.schedulers.ImmediateSchedulerProvider;
+import com.squareup.sqlbrite2.BriteDatabase;
+import com.squareup.sqlbrite2.SqlBrite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TasksLocalDataSourceTest {
+
+    private static final int TASKS = 500;
+
+    private TasksLocalDataSource mLocalDataSource;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        TasksLocalDataSource.destroyInstance();
+        mLocalDataSource = TasksLocalDataSource.getInstance(context, new ImmediateSchedulerProvider());
+        mLocalDataSource.deleteAllTasks();
+    }
+
+    @After
+    public void tearDown() {
+        mLocalDataSource.deleteAllTasks();
+        TasksLocalDataSource.destroyInstance();
+    }
+
+    @Test
+    public void batchedWrites_storeEveryRowOnce() {
+        List<Task> tasks = new ArrayList<>();
+        List<String> taskIds = new ArrayList<>();
+        for(int i = 0; i < TASKS; i++) {
+            tasks.add(new Task("title " + i, "description " + i, "batch-" + i));
+            taskIds.add("batch-" + i);
+        }
+
+        mLocalDataSource.saveTasks(tasks);
+        mLocalDataSource.saveTasks(tasks.subList(0, 100));
+        assertEquals(TASKS, mLocalDataSource.getTasks().blockingFirst().size());
+
+        mLocalDataSource.completeTasks(taskIds.subList(0, 200));
+        assertEquals(new TaskCounts(TASKS - 200, 200), mLocalDataSource.getTaskCounts().blockingFirst());
+        assertTrue(mLocalDataSource.getTask("batch-0").blockingFirst().get().isCompleted());
+
+        mLocalDataSource.deleteTasks(taskIds.subList(100, 300));
+        assertEquals(new TaskCounts(TASKS - 300, 100), mLocalDataSource.getTaskCounts().blockingFirst());
+        assertFalse(mLocalDataSource.getTask("batch-150").blockingFirst().isPresent());
+        assertEquals("title 300", mLocalDataSource.getTask("batch-300").blockingFirst().get().getTitle());
+    }
+
+    @Test(timeout = 10000)
+    public void nestedWriteOnTheWriterThread_runsInline() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        BriteDatabase database = new SqlBrite.Builder().build()
+                .wrapDatabaseHelper(new TasksDbHelper(context), Schedulers.trampoline());
+        TasksDbWriter writer = new TasksDbWriter(database, Schedulers.single());
+        AtomicBoolean nestedWriteRan = new AtomicBoolean(false);
+
+        writer.writeInTransaction(() -> writer.write(() -> nestedWriteRan.set(true)));
+
+        assertTrue(nestedWriteRan.get());
+        database.close();
+    }
+
+    @Test
+    public void replaceTasks_swapsTheTableInOneNotification() {
+        mLocalDataSource.saveTasks(Arrays.asList(new Task("old", "", "old-1"), new Task("old", "", "old-2")));
+        TestSubscriber<TaskCounts> counts = mLocalDataSource.getTaskCounts().test();
+
+        mLocalDataSource.replaceTasks(Collections.singletonList(new Task("new", "", "new-1")));
+
+        // No notification ever shows the table empty.
+        assertEquals(Arrays.asList(new TaskCounts(2, 0), new TaskCounts(1, 0)), counts.values());
+        assertFalse(mLocalDataSource.getTask("old-1").blockingFirst().isPresent());
+        counts.dispose();
+    }
+
+    @Test
+    public void batchedWrite_notifiesQueriesOnce() {
+        List<Task> tasks = new ArrayList<>();
+        for(int i = 0; i < TASKS; i++) {
+            tasks.add(new Task("title " + i, "description " + i, "notify-" + i));
+        }
+        TestSubscriber<TaskCounts> counts = mLocalDataSource.getTaskCounts().test();
+        counts.assertValueCount(1);
+
+        mLocalDataSource.saveTasks(tasks);
+
+        counts.assertValueCount(2);
+        assertEquals(TASKS, counts.values().get(1).getActiveCount());
+        counts.dispose();
+    }
+}
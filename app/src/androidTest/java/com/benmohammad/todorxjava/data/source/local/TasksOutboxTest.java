@@ -0,0 +1,369 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TaskOperation;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.source.TasksBatchSource;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.remote.OutboxRemoteDataSource;
+import com.benmohammad.todorxjava.data.source.remote.OutboxSyncWorker;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+import com.squareup.sqlbrite2.BriteDatabase;
+import com.squareup.sqlbrite2.SqlBrite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class TasksOutboxTest {
+
+    private static final String TEST_DATABASE = "tasks-outbox-test.db";
+
+    private Context mContext;
+
+    private BriteDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mContext.deleteDatabase(TEST_DATABASE);
+        mDatabase = openDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mContext.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void replay_sendsBoundedBatchesInOrder() {
+        TasksOutbox outbox = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        List<Task> tasks = new ArrayList<>();
+        for(int i = 0; i < 120; i++) {
+            tasks.add(new Task("title " + i, "description", String.valueOf(i)));
+        }
+        outbox.addSaves(tasks);
+        InMemoryRemote remote = new InMemoryRemote();
+
+        assertEquals(50, outbox.replay(remote, 50));
+        assertEquals(50, outbox.replay(remote, 50));
+        assertEquals(20, outbox.replay(remote, 50));
+        assertEquals(0, outbox.replay(remote, 50));
+
+        assertEquals(Arrays.asList(50, 50, 20), remote.mBatchSizes);
+        assertEquals(120, remote.mTasks.size());
+        assertEquals(0, outbox.size());
+    }
+
+    @Test
+    public void failedReplayThenRestart_resendsOnlyUnacknowledgedEntries() {
+        TasksOutbox outbox = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        outbox.addSaves(Arrays.asList(
+                new Task("one", "", "1"), new Task("two", "", "2"), new Task("three", "", "3")));
+        outbox.addCompletions(Collections.singletonList("1"), true);
+        outbox.addDeletes(Collections.singletonList("2"));
+        outbox.addSaves(Collections.singletonList(new Task("four", "", "4")));
+
+        // The remote accepts the saves and the completion, then drops the connection.
+        InMemoryRemote remote = new InMemoryRemote();
+        remote.mFailAfterCalls = 2;
+        try {
+            outbox.replay(remote, 50);
+            fail("replay should have failed");
+        } catch(IllegalStateException expected) {
+            // the process dies here
+        }
+        assertEquals(2, outbox.size());
+
+        mDatabase.close();
+        mDatabase = openDatabase();
+        TasksOutbox restarted = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        assertEquals(2, restarted.size());
+
+        remote.mFailAfterCalls = Integer.MAX_VALUE;
+        new OutboxSyncWorker(restarted, remote, Schedulers.trampoline()).drain();
+
+        assertEquals(0, restarted.size());
+        // The saves of 1 to 3 were acknowledged before the failure and are not sent again.
+        assertEquals(Arrays.asList(3, 1), remote.mBatchSizes);
+        assertEquals(Arrays.asList("1", "3", "4"), new ArrayList<>(remote.mTasks.keySet()));
+        assertTrue(remote.mTasks.get("1").isCompleted());
+        assertEquals("four", remote.mTasks.get("4").getTitle());
+    }
+
+    @Test
+    public void replay_sendsTheWholeBatchInOneCallToABatchRemote() {
+        TasksOutbox outbox = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        outbox.addSaves(Arrays.asList(new Task("one", "", "1"), new Task("two", "", "2")));
+        outbox.addCompletions(Collections.singletonList("1"), true);
+        outbox.addCompletions(Collections.singletonList("1"), false);
+        outbox.addDeletes(Collections.singletonList("2"));
+        BatchingRemote remote = new BatchingRemote();
+
+        assertEquals(5, outbox.replay(remote, 50));
+
+        assertEquals(Collections.singletonList(4), remote.mBatchOperationCounts);
+        assertEquals(Collections.singletonList("1"), new ArrayList<>(remote.mTasks.keySet()));
+        assertFalse(remote.mTasks.get("1").isCompleted());
+        assertEquals(0, outbox.size());
+    }
+
+    @Test
+    public void lostAcknowledgementThenRestart_resendLeavesTheSameState() {
+        TasksOutbox outbox = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        outbox.addClearCompleted();
+        outbox.addCompletions(Collections.singletonList("1"), true);
+        BatchingRemote remote = new BatchingRemote();
+        remote.mTasks.put("1", new Task("one", "", "1"));
+        // The remote applies the first batch, then the process dies before the entries are removed.
+        remote.mLostAcks = 1;
+        try {
+            new OutboxSyncWorker(outbox, remote, Schedulers.trampoline()).drain();
+            fail("drain should have failed");
+        } catch(IllegalStateException expected) {
+            // the process dies here
+        }
+        assertEquals(2, outbox.size());
+
+        mDatabase.close();
+        mDatabase = openDatabase();
+        TasksOutbox restarted = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        new OutboxSyncWorker(restarted, remote, Schedulers.trampoline()).drain();
+
+        assertEquals(0, restarted.size());
+        // Only the clear was sent again; the completion after it went out once.
+        assertEquals(Arrays.asList(1, 1, 1), remote.mBatchOperationCounts);
+        assertTrue(remote.mTasks.get("1").isCompleted());
+    }
+
+    @Test
+    public void backendSwitch_dropsMutationsQueuedForTheOldBackend() {
+        TasksOutbox outbox = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        TestScheduler scheduler = new TestScheduler();
+        InMemoryRemote oldRemote = new InMemoryRemote();
+        OutboxRemoteDataSource.getInstance(oldRemote, outbox, scheduler)
+                .saveTask(new Task("one", "", "1"));
+
+        OutboxRemoteDataSource.destroyInstanceAndClearOutbox();
+        InMemoryRemote newRemote = new InMemoryRemote();
+        try {
+            OutboxRemoteDataSource.getInstance(newRemote, outbox, scheduler)
+                    .saveTask(new Task("two", "", "2"));
+            scheduler.triggerActions();
+
+            assertTrue(oldRemote.mTasks.isEmpty());
+            assertEquals(Collections.singletonList("2"), new ArrayList<>(newRemote.mTasks.keySet()));
+            assertEquals(0, outbox.size());
+        } finally {
+            OutboxRemoteDataSource.destroyInstance();
+        }
+    }
+
+    @Test
+    public void read_doesNotWaitForDeliveryAndShowsQueuedMutations() {
+        TasksOutbox outbox = new TasksOutbox(mDatabase, new TasksDbWriter(mDatabase, Schedulers.trampoline()));
+        outbox.addDeletes(Collections.singletonList("1"));
+        outbox.addCompletions(Collections.singletonList("2"), true);
+        InMemoryRemote remote = new InMemoryRemote();
+        remote.mTasks.put("1", new Task("one", "", "1"));
+        remote.mTasks.put("2", new Task("two", "", "2"));
+        remote.mFailAfterCalls = 0;
+        // The worker never gets to run, so nothing is delivered.
+        OutboxRemoteDataSource outboxRemote = OutboxRemoteDataSource.getInstance(remote, outbox, new TestScheduler());
+        try {
+            List<Task> tasks = outboxRemote.getTasks().blockingFirst();
+
+            assertEquals(1, tasks.size());
+            assertEquals("2", tasks.get(0).getId());
+            assertTrue(tasks.get(0).isCompleted());
+            assertEquals(2, outbox.size());
+        } finally {
+            OutboxRemoteDataSource.destroyInstance();
+        }
+    }
+
+    @NonNull
+    private BriteDatabase openDatabase() {
+        return new SqlBrite.Builder().build()
+                .wrapDatabaseHelper(new TasksDbHelper(mContext, TEST_DATABASE), Schedulers.trampoline());
+    }
+
+    private static class InMemoryRemote implements TasksDataSource {
+
+        final Map<String, Task> mTasks = new LinkedHashMap<>();
+
+        final List<Integer> mBatchSizes = new ArrayList<>();
+
+        int mFailAfterCalls = Integer.MAX_VALUE;
+
+        private int mCalls;
+
+        private void call() {
+            if(mCalls++ >= mFailAfterCalls) {
+                throw new IllegalStateException("connection reset");
+            }
+        }
+
+        @Override
+        public Flowable<List<Task>> getTasks() {
+            return Flowable.just(new ArrayList<>(mTasks.values()));
+        }
+
+        @Override
+        public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+            return getTasks();
+        }
+
+        @Override
+        public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+            return Flowable.just(Optional.fromNullable(mTasks.get(taskId)));
+        }
+
+        @Override
+        public Flowable<TaskCounts> getTaskCounts() {
+            return Flowable.empty();
+        }
+
+        @Override
+        public void saveTask(@NonNull Task task) {
+            saveTasks(Collections.singletonList(task));
+        }
+
+        @Override
+        public void saveTasks(@NonNull Collection<Task> tasks) {
+            call();
+            mBatchSizes.add(tasks.size());
+            for(Task task : tasks) {
+                mTasks.put(task.getId(), task);
+            }
+        }
+
+        @Override
+        public void completeTask(@NonNull Task task) {
+            completeTask(task.getId());
+        }
+
+        @Override
+        public void completeTask(@NonNull String taskId) {
+            completeTasks(Collections.singletonList(taskId));
+        }
+
+        @Override
+        public void completeTasks(@NonNull Collection<String> taskIds) {
+            call();
+            for(String taskId : taskIds) {
+                Task task = mTasks.get(taskId);
+                if(task != null) {
+                    mTasks.put(taskId, new Task(task.getTitle(), task.getDescription(), taskId, true));
+                }
+            }
+        }
+
+        @Override
+        public void activateTask(@NonNull Task task) {
+            activateTask(task.getId());
+        }
+
+        @Override
+        public void activateTask(@NonNull String taskId) {
+            activateTasks(Collections.singletonList(taskId));
+        }
+
+        @Override
+        public void activateTasks(@NonNull Collection<String> taskIds) {
+            call();
+            for(String taskId : taskIds) {
+                Task task = mTasks.get(taskId);
+                if(task != null) {
+                    mTasks.put(taskId, new Task(task.getTitle(), task.getDescription(), taskId, false));
+                }
+            }
+        }
+
+        @Override
+        public void clearCompletedTasks() {
+            call();
+            Iterator<Task> it = mTasks.values().iterator();
+            while(it.hasNext()) {
+                if(it.next().isCompleted()) {
+                    it.remove();
+                }
+            }
+        }
+
+        @Override
+        public void refreshTasks() {
+        }
+
+        @Override
+        public void deleteAllTasks() {
+            call();
+            mTasks.clear();
+        }
+
+        @Override
+        public void deleteTask(@NonNull String taskId) {
+            deleteTasks(Collections.singletonList(taskId));
+        }
+
+        @Override
+        public void deleteTasks(@NonNull Collection<String> taskIds) {
+            call();
+            for(String taskId : taskIds) {
+                mTasks.remove(taskId);
+            }
+        }
+    }
+
+    private static final class BatchingRemote extends InMemoryRemote implements TasksBatchSource {
+
+        final List<Integer> mBatchOperationCounts = new ArrayList<>();
+
+        // Batches applied without the response reaching the client.
+        int mLostAcks;
+
+        @Override
+        public void applyBatch(@NonNull List<TaskOperation> operations) {
+            mBatchOperationCounts.add(operations.size());
+            TasksBatchSource.applyEach(this, operations);
+            if(mLostAcks > 0) {
+                mLostAcks--;
+                throw new IllegalStateException("connection reset before the response");
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.benmohammad.todorxjava.util.schedulers.SchedulerProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures first-page read latency on an idle database and while another thread keeps writing
+ * large sync batches, and logs the p50/p99 of both runs.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TasksReadDuringSyncBenchmark {
+
+    private static final String TAG = "TasksReadDuringSync";
+    private static final int SEED_TASKS = 2000;
+    private static final int SYNC_BATCH = 2000;
+    private static final int READS = 300;
+    private static final int PAGE_SIZE = 50;
+
+    private TasksLocalDataSource mLocalDataSource;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        TasksLocalDataSource.destroyInstance();
+        mLocalDataSource = TasksLocalDataSource.getInstance(context, SchedulerProvider.getInstance());
+        mLocalDataSource.deleteAllTasks();
+        mLocalDataSource.saveTasks(tasks("seed", SEED_TASKS));
+    }
+
+    @After
+    public void tearDown() {
+        mLocalDataSource.deleteAllTasks();
+        TasksLocalDataSource.destroyInstance();
+    }
+
+    @Test
+    public void readLatency_staysFlatDuringBulkSync() throws Exception {
+        long[] idle = measureReads();
+
+        List<Task> batch = tasks("sync", SYNC_BATCH);
+        AtomicBoolean syncing = new AtomicBoolean(true);
+        Thread sync = new Thread(() -> {
+            while(syncing.get()) {
+                mLocalDataSource.saveTasks(batch);
+            }
+        }, "bulk-sync");
+        sync.start();
+        long[] duringSync;
+        try {
+            duringSync = measureReads();
+        } finally {
+            syncing.set(false);
+            sync.join();
+        }
+
+        Log.i(TAG, String.format("first page read: idle p50 %d us p99 %d us, during sync p50 %d us p99 %d us",
+                percentile(idle, 50), percentile(idle, 99), percentile(duringSync, 50), percentile(duringSync, 99)));
+    }
+
+    private long[] measureReads() {
+        long[] latencies = new long[READS];
+        for(int i = 0; i < READS; i++) {
+            long start = System.nanoTime();
+            assertTrue(mLocalDataSource.getTasksPage(TasksFilterType.ALL_TASKS, 0, PAGE_SIZE)
+                    .blockingFirst().getTasks().size() > 0);
+            latencies[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private static List<Task> tasks(String prefix, int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            tasks.add(new Task("title " + i, "description " + i, prefix + "-" + i));
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,95 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.squareup.sqlbrite2.BriteDatabase;
+import com.squareup.sqlbrite2.SqlBrite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.reactivex.schedulers.Schedulers;
+
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.TABLE_NAME;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Toggles task completion 100k times through the ContentValues + LIKE path and through the
+ * precompiled statements, and logs ops/sec for both. Writes are batched in transactions so the
+ * numbers reflect statement overhead rather than fsync cost.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TasksStatementsBenchmark {
+
+    private static final String TAG = "TasksStatementsBench";
+    private static final int TASKS = 100;
+    private static final int TOGGLES = 100000;
+    private static final int BATCH_SIZE = 1000;
+
+    private BriteDatabase mDatabase;
+
+    private TasksStatements mStatements;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        TasksDbHelper dbHelper = new TasksDbHelper(context);
+        mDatabase = new SqlBrite.Builder().build().wrapDatabaseHelper(dbHelper, Schedulers.trampoline());
+        mStatements = new TasksStatements(mDatabase, dbHelper);
+        mDatabase.delete(TABLE_NAME, null);
+        for(int i = 0; i < TASKS; i++) {
+            mStatements.upsert(new Task("title" + i, "description" + i, "bench-" + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.delete(TABLE_NAME, null);
+        mDatabase.close();
+    }
+
+    @Test
+    public void toggleCompletion() {
+        double legacy = run(false);
+        double compiled = run(true);
+        Log.i(TAG, String.format("100k toggles: ContentValues + LIKE %.0f ops/s, compiled = %.0f ops/s (%.1fx)",
+                legacy, compiled, compiled / legacy));
+    }
+
+    private double run(boolean compiled) {
+        long start = System.nanoTime();
+        int updated = 0;
+        for(int done = 0; done < TOGGLES; done += BATCH_SIZE) {
+            BriteDatabase.Transaction transaction = mDatabase.newTransaction();
+            try {
+                for(int i = done; i < done + BATCH_SIZE; i++) {
+                    String taskId = "bench-" + (i % TASKS);
+                    boolean completed = (i / TASKS) % 2 == 0;
+                    updated += compiled ? mStatements.setCompleted(taskId, completed) : legacyToggle(taskId, completed);
+                }
+                transaction.markSuccessful();
+            } finally {
+                transaction.end();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(TOGGLES, updated);
+        return TOGGLES * 1e9 / elapsed;
+    }
+
+    private int legacyToggle(String taskId, boolean completed) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME_COMPLETED, completed);
+        return mDatabase.update(TABLE_NAME, values, COLUMN_NAME_ENTRY_ID + " LIKE ?", taskId);
+    }
+}
@@ -0,0 +1,151 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.source.TasksRepository;
+import com.benmohammad.todorxjava.data.source.TasksSyncSource;
+import com.benmohammad.todorxjava.data.source.local.TasksLocalDataSource;
+import com.benmohammad.todorxjava.util.schedulers.SchedulerProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the server-sent change stream through the local mock server at full speed: every
+ * backend mutation below becomes one event on the wire.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HttpChangeStreamTest {
+
+    private static final String TAG = "HttpChangeStreamTest";
+    private static final int EVENTS = 10000;
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private MockTasksServer mServer;
+
+    private SimulatedRemoteDataSource mBackend;
+
+    private HttpTasksRemoteDataSource mRemoteDataSource;
+
+    @Before
+    public void setUp() throws IOException {
+        mBackend = new SimulatedRemoteDataSource(new SimulatedBackendConfig.Builder().build());
+        mServer = new MockTasksServer(mBackend);
+        mRemoteDataSource = new HttpTasksRemoteDataSource(mServer.start(), Schedulers.io());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void stream_keepsUpWithThousandsOfChangesPerSecond() throws InterruptedException {
+        TestSubscriber<TasksDelta> subscriber = mRemoteDataSource.observeChanges(TasksSyncSource.INITIAL_VERSION).test();
+        awaitValueCount(subscriber, 1);
+
+        long start = System.nanoTime();
+        for(int i = 0; i < EVENTS; i++) {
+            mBackend.saveTask(new Task("title " + i, "description " + i, "push-" + i));
+        }
+        awaitValueCount(subscriber, 1 + EVENTS);
+        long eventsPerSecond = EVENTS * TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+        subscriber.cancel();
+
+        List<TasksDelta> events = subscriber.values();
+        for(int i = 1; i < events.size(); i++) {
+            assertEquals(events.get(i - 1).getVersion() + 1, events.get(i).getVersion());
+            assertEquals("push-" + (i - 1), events.get(i).getChangedTasks().get(0).getId());
+        }
+        Log.i(TAG, String.format("%d events, %d events/s", EVENTS, eventsPerSecond));
+        assertTrue("events/s: " + eventsPerSecond, eventsPerSecond >= 1000);
+    }
+
+    @Test
+    public void droppedStream_resumesAfterTheLastVersion() throws IOException, InterruptedException {
+        TestSubscriber<TasksDelta> first = mRemoteDataSource.observeChanges(TasksSyncSource.INITIAL_VERSION).test();
+        awaitValueCount(first, 1);
+        for(int i = 0; i < 10; i++) {
+            mBackend.saveTask(new Task("title", "description", "before-" + i));
+        }
+        awaitValueCount(first, 11);
+        long lastVersion = first.values().get(10).getVersion();
+
+        mServer.dropConnections();
+        first.awaitTerminalEvent(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        for(int i = 0; i < 5; i++) {
+            mBackend.saveTask(new Task("title", "description", "while-down-" + i));
+        }
+        mBackend.deleteTask("before-0");
+
+        TestSubscriber<TasksDelta> resumed = mRemoteDataSource.observeChanges(lastVersion).test();
+        awaitValueCount(resumed, 1);
+        resumed.cancel();
+
+        TasksDelta catchUp = resumed.values().get(0);
+        assertEquals(5, catchUp.getChangedTasks().size());
+        assertEquals("before-0", catchUp.getDeletedTaskIds().get(0));
+        assertEquals(lastVersion + 6, catchUp.getVersion());
+    }
+
+    @Test
+    public void repository_appliesPushedChangesAcrossReconnects() throws IOException, InterruptedException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        TasksLocalDataSource.destroyInstance();
+        TasksLocalDataSource localDataSource = TasksLocalDataSource.getInstance(context, SchedulerProvider.getInstance());
+        localDataSource.deleteAllTasks();
+        TasksRepository.destroyInstance();
+        TasksRepository repository = TasksRepository.getInstance(mRemoteDataSource, localDataSource);
+        try {
+            repository.connectChangeStream();
+            for(int i = 0; i < EVENTS; i++) {
+                mBackend.saveTask(new Task("title " + i, "description " + i, "push-" + i));
+                if(i == EVENTS / 2) {
+                    mServer.dropConnections();
+                }
+            }
+            mBackend.completeTask("push-1");
+            mBackend.deleteTask("push-0");
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            while(localDataSource.getTaskCounts().blockingFirst().getTotalCount() != EVENTS - 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(EVENTS - 1, localDataSource.getTaskCounts().blockingFirst().getTotalCount());
+            assertEquals(1, localDataSource.getTaskCounts().blockingFirst().getCompletedCount());
+        } finally {
+            TasksRepository.destroyInstance();
+            localDataSource.deleteAllTasks();
+            TasksLocalDataSource.destroyInstance();
+        }
+    }
+
+    private static void awaitValueCount(@NonNull TestSubscriber<?> subscriber, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while(subscriber.valueCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        subscriber.assertNoErrors();
+        assertEquals(count, subscriber.valueCount());
+    }
+}
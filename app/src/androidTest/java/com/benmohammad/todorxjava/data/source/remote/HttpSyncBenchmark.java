@@ -0,0 +1,98 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TasksDelta;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Syncs 10k tasks against the local mock server and logs the bytes on the wire and the requests
+ * per sync for a full fetch, a delta fetch after 50 changes, and pushing those 50 changes, and
+ * compares full fetches with JSON and binary task lists.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HttpSyncBenchmark {
+
+    private static final String TAG = "HttpSyncBench";
+    private static final int TASKS = 10000;
+    private static final int CHANGED = 50;
+
+    private MockTasksServer mServer;
+
+    private HttpTasksRemoteDataSource mRemoteDataSource;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockTasksServer(new SimulatedRemoteDataSource(new SimulatedBackendConfig.Builder()
+                .taskCount(TASKS)
+                .build()));
+        mRemoteDataSource = new HttpTasksRemoteDataSource(mServer.start(), Schedulers.io());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fullVersusDeltaSync() {
+        mServer.resetCounters();
+        long start = System.nanoTime();
+        List<Task> tasks = mRemoteDataSource.getTasks().blockingFirst();
+        long version = mRemoteDataSource.getChangesSince(Long.MAX_VALUE).blockingFirst().getVersion();
+        log("full sync", start, 2);
+        assertEquals(TASKS, tasks.size());
+
+        List<String> changedIds = new ArrayList<>();
+        for(int i = 0; i < CHANGED; i++) {
+            changedIds.add("sim-" + i);
+        }
+        mServer.resetCounters();
+        start = System.nanoTime();
+        mRemoteDataSource.completeTasks(changedIds);
+        log("push " + CHANGED + " changes", start, 1);
+
+        mServer.resetCounters();
+        start = System.nanoTime();
+        TasksDelta delta = mRemoteDataSource.getChangesSince(version).blockingFirst();
+        log("delta sync", start, 1);
+        assertEquals(CHANGED, delta.getChangedTasks().size());
+    }
+
+    @Test
+    public void fullSync_jsonVersusBinaryTaskLists() {
+        mServer.setBinaryTaskLists(false);
+        mServer.resetCounters();
+        long start = System.nanoTime();
+        assertEquals(TASKS, mRemoteDataSource.getTasks().blockingFirst().size());
+        log("full sync, json", start, 1);
+
+        mServer.setBinaryTaskLists(true);
+        mServer.resetCounters();
+        start = System.nanoTime();
+        assertEquals(TASKS, mRemoteDataSource.getTasks().blockingFirst().size());
+        log("full sync, binary", start, 1);
+    }
+
+    private void log(String label, long startNanos, int expectedRequests) {
+        long millis = (System.nanoTime() - startNanos) / 1000000;
+        assertEquals(expectedRequests, mServer.getRequestCount());
+        Log.i(TAG, String.format("%s: %d requests, %d bytes sent, %d bytes received, %d ms", label,
+                mServer.getRequestCount(), mServer.getBytesReceived(), mServer.getBytesSent(), millis));
+    }
+}
@@ -0,0 +1,147 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskOperation;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class HttpTasksRemoteDataSourceTest {
+
+    private MockTasksServer mServer;
+
+    private String mBaseUrl;
+
+    private HttpTasksRemoteDataSource mRemoteDataSource;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockTasksServer(new SimulatedRemoteDataSource(new SimulatedBackendConfig.Builder().build()));
+        mBaseUrl = mServer.start();
+        mRemoteDataSource = new HttpTasksRemoteDataSource(mBaseUrl, Schedulers.io());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void savedTasks_roundTripThroughTheServer() {
+        Task withoutDescription = new Task("title", null, "id-1");
+        Task completed = new Task("\u00fcnicode \"quoted\"", "description", "id/2", true);
+
+        mRemoteDataSource.saveTasks(Arrays.asList(withoutDescription, completed));
+
+        List<Task> tasks = mRemoteDataSource.getTasks().blockingFirst();
+        assertEquals(2, tasks.size());
+        Task loaded = mRemoteDataSource.getTask("id/2").blockingFirst().get();
+        assertEquals(completed.getTitle(), loaded.getTitle());
+        assertTrue(loaded.isCompleted());
+        assertNull(mRemoteDataSource.getTask("id-1").blockingFirst().get().getDescription());
+        assertTrue(mRemoteDataSource.getTask("missing").isEmpty().blockingGet());
+        assertEquals(1, mRemoteDataSource.getTasks(TasksFilterType.COMPLETED_TASKS).blockingFirst().size());
+        assertEquals(1, mRemoteDataSource.getTaskCounts().blockingFirst().getActiveCount());
+    }
+
+    @Test
+    public void bulkMutations_costOneRequestEach() {
+        List<Task> tasks = new ArrayList<>();
+        List<String> taskIds = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            tasks.add(new Task("title " + i, "description " + i, "batch-" + i));
+            taskIds.add("batch-" + i);
+        }
+
+        mRemoteDataSource.saveTasks(tasks);
+        mRemoteDataSource.completeTasks(taskIds.subList(0, 50));
+        mRemoteDataSource.deleteTasks(taskIds.subList(50, 60));
+
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(90, mServer.getBackend().getTasks().blockingFirst().size());
+        assertEquals(50, mServer.getBackend().getTaskCounts().blockingFirst().getCompletedCount());
+    }
+
+    @Test
+    public void mixedBatch_costsOneRequest() {
+        mRemoteDataSource.applyBatch(Arrays.asList(
+                TaskOperation.save(Arrays.asList(new Task("a", "a", "mixed-a"), new Task("b", "b", "mixed-b"))),
+                TaskOperation.complete(Collections.singletonList("mixed-a")),
+                TaskOperation.activate(Collections.singletonList("mixed-a")),
+                TaskOperation.delete(Collections.singletonList("mixed-b"))));
+
+        assertEquals(1, mServer.getRequestCount());
+        List<Task> tasks = mServer.getBackend().getTasks().blockingFirst();
+        assertEquals(1, tasks.size());
+        assertFalse(tasks.get(0).isCompleted());
+    }
+
+    @Test
+    public void missingList_failsWithTheStatus() {
+        HttpTasksRemoteDataSource missing = new HttpTasksRemoteDataSource(mBaseUrl + "/missing", Schedulers.io());
+
+        missing.getTasks().test().awaitDone(10, TimeUnit.SECONDS)
+                .assertError(error -> error instanceof HttpTasksRemoteDataSource.HttpRemoteException
+                        && ((HttpTasksRemoteDataSource.HttpRemoteException) error).getStatus() == 404);
+        missing.getTaskCounts().test().awaitDone(10, TimeUnit.SECONDS)
+                .assertError(HttpTasksRemoteDataSource.HttpRemoteException.class);
+    }
+
+    @Test
+    public void unchangedList_isAnsweredNotModified() {
+        mRemoteDataSource.saveTask(new Task("title", "description", "etag-1"));
+        TasksResponse first = mRemoteDataSource.getTasksIfModified(null).blockingFirst();
+        assertFalse(first.isNotModified());
+
+        assertTrue(mRemoteDataSource.getTasksIfModified(first.getValidator()).blockingFirst().isNotModified());
+
+        mRemoteDataSource.completeTask("etag-1");
+        TasksResponse changed = mRemoteDataSource.getTasksIfModified(first.getValidator()).blockingFirst();
+        assertTrue(changed.getTasks().get(0).isCompleted());
+    }
+
+    @Test
+    public void changesSince_returnOnlyTheDelta() {
+        mRemoteDataSource.saveTasks(Arrays.asList(new Task("a", "a", "delta-a"), new Task("b", "b", "delta-b")));
+        long version = mRemoteDataSource.getChangesSince(0).blockingFirst().getVersion();
+
+        mRemoteDataSource.deleteTask("delta-b");
+
+        TasksDelta delta = mRemoteDataSource.getChangesSince(version).blockingFirst();
+        assertTrue(delta.getChangedTasks().isEmpty());
+        assertEquals(Arrays.asList("delta-b"), delta.getDeletedTaskIds());
+    }
+
+    @Test
+    public void sequentialRequests_reuseOneConnection() {
+        for(int i = 0; i < 20; i++) {
+            mRemoteDataSource.saveTask(new Task("title", "description", "keep-alive-" + i));
+            mRemoteDataSource.getTasks().blockingFirst();
+        }
+
+        assertEquals(40, mServer.getRequestCount());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+}
@@ -0,0 +1,536 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.data.codec.TaskCodec;
+import com.benmohammad.todorxjava.data.codec.TaskEncoder;
+import com.benmohammad.todorxjava.data.source.TasksSyncSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal HTTP/1.1 server on the loopback interface that speaks the protocol of
+ * {@link HttpTasksRemoteDataSource}, backed by a zero-latency {@link SimulatedRemoteDataSource}.
+ * Connections are kept alive and every byte read from or written to a socket is counted. Task
+ * lists are served in the binary task format to clients that accept it, unless turned off. The
+ * change stream holds its connection until the client or {@link #dropConnections()} closes it.
+ */
+class MockTasksServer {
+
+    private static final String UTF_8 = "UTF-8";
+
+    @NonNull
+    private final SimulatedRemoteDataSource mBackend;
+
+    @NonNull
+    private final AtomicLong mRequestCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mConnectionCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mBytesReceived = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mBytesSent = new AtomicLong();
+
+    @NonNull
+    private final Set<Socket> mOpenSockets = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    @Nullable
+    private ServerSocket mServerSocket;
+
+    private volatile boolean mBinaryTaskLists = true;
+
+    MockTasksServer(@NonNull SimulatedRemoteDataSource backend) {
+        mBackend = backend;
+    }
+
+    @NonNull
+    SimulatedRemoteDataSource getBackend() {
+        return mBackend;
+    }
+
+    /**
+     * Starts accepting connections and returns the base URL to hand to the client.
+     */
+    @NonNull
+    String start() throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        mServerSocket = serverSocket;
+        Thread acceptor = new Thread(() -> {
+            while(!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    mConnectionCount.incrementAndGet();
+                    Thread connection = new Thread(() -> serve(socket), "MockTasksServer-connection");
+                    connection.setDaemon(true);
+                    connection.start();
+                } catch(IOException e) {
+                    // Closed by shutdown().
+                }
+            }
+        }, "MockTasksServer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    void shutdown() throws IOException {
+        if(mServerSocket != null) {
+            mServerSocket.close();
+        }
+        dropConnections();
+    }
+
+    /**
+     * Closes every open connection, as a network change would.
+     */
+    void dropConnections() throws IOException {
+        for(Socket socket : mOpenSockets) {
+            socket.close();
+        }
+    }
+
+    void setBinaryTaskLists(boolean binaryTaskLists) {
+        mBinaryTaskLists = binaryTaskLists;
+    }
+
+    long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    long getConnectionCount() {
+        return mConnectionCount.get();
+    }
+
+    long getBytesReceived() {
+        return mBytesReceived.get();
+    }
+
+    long getBytesSent() {
+        return mBytesSent.get();
+    }
+
+    void resetCounters() {
+        mRequestCount.set(0);
+        mConnectionCount.set(0);
+        mBytesReceived.set(0);
+        mBytesSent.set(0);
+    }
+
+    // Counters are updated before the response goes out, so a client that has its answer also
+    // sees the request in the counts.
+    private void serve(@NonNull Socket socket) {
+        mOpenSockets.add(socket);
+        try {
+            CountingInputStream in = new CountingInputStream(new BufferedInputStream(socket.getInputStream()));
+            OutputStream out = socket.getOutputStream();
+            try {
+                while(true) {
+                    long requestStart = in.getCount();
+                    String requestLine = readLine(in);
+                    if(requestLine == null || requestLine.isEmpty()) {
+                        return;
+                    }
+                    Map<String, String> headers = new HashMap<>();
+                    for(String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+                        int colon = line.indexOf(':');
+                        headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US), line.substring(colon + 1).trim());
+                    }
+                    byte[] body = new byte[0];
+                    String contentLength = headers.get("content-length");
+                    if(contentLength != null) {
+                        body = new byte[Integer.parseInt(contentLength)];
+                        ByteStreams.readFully(in, body);
+                    }
+                    String[] parts = requestLine.split(" ");
+                    Request request = new Request(parts[0], parts[1], headers, body);
+                    mRequestCount.incrementAndGet();
+                    mBytesReceived.addAndGet(in.getCount() - requestStart);
+                    if(request.mPath.equals(HttpTasksRemoteDataSource.PATH_CHANGE_STREAM)) {
+                        streamChanges(request, out);
+                        return;
+                    }
+                    byte[] response = handle(request).toBytes(request.acceptsGzip());
+                    mBytesSent.addAndGet(response.length);
+                    out.write(response);
+                    out.flush();
+                }
+            } finally {
+                mOpenSockets.remove(socket);
+                socket.close();
+            }
+        } catch(IOException e) {
+            // The client went away.
+        }
+    }
+
+    // Sends the catch-up as one delta event, then every change as its own event, until the
+    // client goes away.
+    private void streamChanges(@NonNull Request request, @NonNull OutputStream socketOut) throws IOException {
+        String lastEventId = request.mHeaders.get("last-event-id");
+        long version = lastEventId != null ? Long.parseLong(lastEventId) : TasksSyncSource.INITIAL_VERSION;
+        OutputStream out = new BufferedOutputStream(socketOut);
+        byte[] head = ("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nCache-Control: no-cache\r\n"
+                + "Connection: close\r\n\r\n").getBytes(UTF_8);
+        mBytesSent.addAndGet(head.length);
+        out.write(head);
+        out.flush();
+        mBackend.observeChanges(version).blockingSubscribe(delta -> {
+            byte[] event = toEvent(delta);
+            mBytesSent.addAndGet(event.length);
+            out.write(event);
+            out.flush();
+        }, throwable -> { });
+    }
+
+    @NonNull
+    private static byte[] toEvent(@NonNull TasksDelta delta) throws IOException {
+        String event;
+        BodyWriter data;
+        if(!delta.isReset() && delta.getChangedTasks().size() == 1 && delta.getDeletedTaskIds().isEmpty()) {
+            event = HttpTasksRemoteDataSource.EVENT_CHANGE;
+            data = writer -> TaskJson.writeTask(writer, delta.getChangedTasks().get(0));
+        } else if(!delta.isReset() && delta.getChangedTasks().isEmpty() && delta.getDeletedTaskIds().size() == 1) {
+            event = HttpTasksRemoteDataSource.EVENT_DELETE;
+            data = writer -> writer.beginObject().name(TaskJson.ID).value(delta.getDeletedTaskIds().get(0)).endObject();
+        } else {
+            event = HttpTasksRemoteDataSource.EVENT_DELTA;
+            data = writer -> writeDelta(writer, delta);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(("id: " + delta.getVersion() + "\nevent: " + event + "\ndata: ").getBytes(UTF_8));
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, UTF_8));
+        data.write(writer);
+        writer.flush();
+        bytes.write("\n\n".getBytes(UTF_8));
+        return bytes.toByteArray();
+    }
+
+    private static void writeDelta(@NonNull JsonWriter writer, @NonNull TasksDelta delta) throws IOException {
+        writer.beginObject();
+        writer.name("version").value(delta.getVersion());
+        writer.name("reset").value(delta.isReset());
+        writer.name("changed");
+        TaskJson.writeTasks(writer, delta.getChangedTasks());
+        writer.name("deleted");
+        TaskJson.writeIds(writer, delta.getDeletedTaskIds());
+        writer.endObject();
+    }
+
+    @NonNull
+    private Response handle(@NonNull Request request) throws IOException {
+        String path = request.mPath;
+        if(request.mMethod.equals("POST") && path.equals(HttpTasksRemoteDataSource.PATH_BATCH)) {
+            applyBatch(new JsonReader(new InputStreamReader(request.body(), UTF_8)));
+            return Response.noContent();
+        }
+        if(path.equals(HttpTasksRemoteDataSource.PATH_COUNTS)) {
+            TaskCounts counts = mBackend.getTaskCounts().blockingFirst();
+            return Response.json(writer -> writer.beginObject()
+                    .name("active").value(counts.getActiveCount())
+                    .name("completed").value(counts.getCompletedCount())
+                    .endObject());
+        }
+        if(path.equals(HttpTasksRemoteDataSource.PATH_CHANGES)) {
+            TasksDelta delta = mBackend.getChangesSince(Long.parseLong(request.query("since"))).blockingFirst();
+            return Response.json(writer -> writeDelta(writer, delta));
+        }
+        if(path.startsWith(HttpTasksRemoteDataSource.PATH_TASKS + "/")) {
+            String taskId = URLDecoder.decode(path.substring(HttpTasksRemoteDataSource.PATH_TASKS.length() + 1), UTF_8);
+            Optional<Task> task = mBackend.getTask(taskId).blockingFirst(Optional.absent());
+            return task.isPresent()
+                    ? Response.json(writer -> TaskJson.writeTask(writer, task.get()))
+                    : Response.status(404, "Not Found");
+        }
+        if(path.equals(HttpTasksRemoteDataSource.PATH_TASKS)) {
+            TasksFilterType filterType = TasksFilterType.valueOf(request.query("filter"));
+            String after = request.query("after");
+            if(after != null) {
+                TasksPage page = mBackend.getTasksPage(filterType, Long.parseLong(after),
+                        Integer.parseInt(request.query("limit"))).blockingFirst();
+                return Response.json(writer -> {
+                    writer.beginObject();
+                    writer.name("tasks");
+                    TaskJson.writeTasks(writer, page.getTasks());
+                    writer.name("nextKey").value(page.getNextKey());
+                    writer.name("hasMore").value(page.hasMore());
+                    writer.endObject();
+                });
+            }
+            if(filterType == TasksFilterType.ALL_TASKS) {
+                TasksResponse response = mBackend.getTasksIfModified(request.mHeaders.get("if-none-match")).blockingFirst();
+                Response httpResponse = response.isNotModified()
+                        ? Response.status(304, "Not Modified")
+                        : taskList(request, response.getTasks());
+                return httpResponse.header("ETag", response.getValidator());
+            }
+            List<Task> tasks = mBackend.getTasks(filterType).blockingFirst();
+            return taskList(request, tasks);
+        }
+        return Response.status(404, "Not Found");
+    }
+
+    @NonNull
+    private Response taskList(@NonNull Request request, @NonNull List<Task> tasks) {
+        if(mBinaryTaskLists && request.accepts(TaskCodec.MEDIA_TYPE)) {
+            return new Response(200, "OK", TaskCodec.MEDIA_TYPE, out -> {
+                TaskEncoder encoder = new TaskEncoder(out, true);
+                for(Task task : tasks) {
+                    encoder.write(task);
+                }
+                encoder.finish();
+            });
+        }
+        return Response.json(writer -> TaskJson.writeTasks(writer, tasks));
+    }
+
+    private void applyBatch(@NonNull JsonReader reader) throws IOException {
+        reader.beginObject();
+        while(reader.hasNext()) {
+            if(!reader.nextName().equals("operations")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while(reader.hasNext()) {
+                String op = null;
+                List<Task> tasks = Collections.emptyList();
+                List<String> taskIds = Collections.emptyList();
+                reader.beginObject();
+                while(reader.hasNext()) {
+                    switch(reader.nextName()) {
+                        case "op":
+                            op = reader.nextString();
+                            break;
+                        case "tasks":
+                            tasks = TaskJson.readTasks(reader);
+                            break;
+                        case "ids":
+                            taskIds = TaskJson.readIds(reader);
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+                apply(op, tasks, taskIds);
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    private void apply(@Nullable String op, @NonNull List<Task> tasks, @NonNull List<String> taskIds) throws IOException {
+        if(HttpTasksRemoteDataSource.OP_SAVE.equals(op)) {
+            mBackend.saveTasks(tasks);
+        } else if(HttpTasksRemoteDataSource.OP_COMPLETE.equals(op)) {
+            mBackend.completeTasks(taskIds);
+        } else if(HttpTasksRemoteDataSource.OP_ACTIVATE.equals(op)) {
+            mBackend.activateTasks(taskIds);
+        } else if(HttpTasksRemoteDataSource.OP_DELETE.equals(op)) {
+            mBackend.deleteTasks(taskIds);
+        } else if(HttpTasksRemoteDataSource.OP_CLEAR_COMPLETED.equals(op)) {
+            mBackend.clearCompletedTasks();
+        } else if(HttpTasksRemoteDataSource.OP_DELETE_ALL.equals(op)) {
+            mBackend.deleteAllTasks();
+        } else {
+            throw new IOException("Unknown operation " + op);
+        }
+    }
+
+    // Reads one CRLF-terminated header line, or returns null at the end of the stream.
+    @Nullable
+    private static String readLine(@NonNull InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while((b = in.read()) != -1) {
+            if(b == '\n') {
+                String value = line.toString(UTF_8);
+                return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+            }
+            line.write(b);
+        }
+        return null;
+    }
+
+    private interface BodyWriter {
+
+        void write(@NonNull JsonWriter writer) throws IOException;
+    }
+
+    private interface StreamWriter {
+
+        void write(@NonNull OutputStream out) throws IOException;
+    }
+
+    private static final class Request {
+
+        @NonNull
+        final String mMethod;
+
+        @NonNull
+        final String mPath;
+
+        @NonNull
+        final Map<String, String> mQuery = new HashMap<>();
+
+        @NonNull
+        final Map<String, String> mHeaders;
+
+        @NonNull
+        final byte[] mBody;
+
+        Request(@NonNull String method, @NonNull String target, @NonNull Map<String, String> headers,
+                @NonNull byte[] body) throws IOException {
+            mMethod = method;
+            int question = target.indexOf('?');
+            mPath = question < 0 ? target : target.substring(0, question);
+            if(question >= 0) {
+                for(String pair : target.substring(question + 1).split("&")) {
+                    int equals = pair.indexOf('=');
+                    mQuery.put(pair.substring(0, equals), URLDecoder.decode(pair.substring(equals + 1), UTF_8));
+                }
+            }
+            mHeaders = headers;
+            mBody = body;
+        }
+
+        @Nullable
+        String query(@NonNull String name) {
+            return mQuery.get(name);
+        }
+
+        boolean accepts(@NonNull String mediaType) {
+            String accept = mHeaders.get("accept");
+            return accept != null && accept.contains(mediaType);
+        }
+
+        boolean acceptsGzip() {
+            String acceptEncoding = mHeaders.get("accept-encoding");
+            return acceptEncoding != null && acceptEncoding.contains("gzip");
+        }
+
+        @NonNull
+        InputStream body() throws IOException {
+            InputStream body = new ByteArrayInputStream(mBody);
+            return "gzip".equalsIgnoreCase(mHeaders.get("content-encoding")) ? new GZIPInputStream(body) : body;
+        }
+    }
+
+    private static final class Response {
+
+        final int mStatus;
+
+        @NonNull
+        final String mReason;
+
+        @Nullable
+        final String mContentType;
+
+        @Nullable
+        final StreamWriter mBody;
+
+        @NonNull
+        final Map<String, String> mHeaders = new HashMap<>();
+
+        Response(int status, @NonNull String reason, @Nullable String contentType, @Nullable StreamWriter body) {
+            mStatus = status;
+            mReason = reason;
+            mContentType = contentType;
+            mBody = body;
+        }
+
+        @NonNull
+        static Response json(@NonNull BodyWriter body) {
+            return new Response(200, "OK", "application/json; charset=utf-8", out -> {
+                JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, UTF_8));
+                body.write(writer);
+                writer.flush();
+            });
+        }
+
+        @NonNull
+        static Response noContent() {
+            return new Response(204, "No Content", null, null);
+        }
+
+        @NonNull
+        static Response status(int status, @NonNull String reason) {
+            return new Response(status, reason, null, null);
+        }
+
+        @NonNull
+        Response header(@NonNull String name, @Nullable String value) {
+            if(value != null) {
+                mHeaders.put(name, value);
+            }
+            return this;
+        }
+
+        @NonNull
+        byte[] toBytes(boolean gzip) throws IOException {
+            byte[] body = new byte[0];
+            if(mBody != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                OutputStream bodyOut = gzip ? new GZIPOutputStream(bytes) : bytes;
+                mBody.write(bodyOut);
+                bodyOut.close();
+                body = bytes.toByteArray();
+                mHeaders.put("Content-Type", mContentType);
+                if(gzip) {
+                    mHeaders.put("Content-Encoding", "gzip");
+                }
+            }
+            StringBuilder head = new StringBuilder("HTTP/1.1 ").append(mStatus).append(' ').append(mReason).append("\r\n");
+            for(Map.Entry<String, String> header : mHeaders.entrySet()) {
+                head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+            if(mStatus != 304 && mStatus != 204) {
+                head.append("Content-Length: ").append(body.length).append("\r\n");
+            }
+            head.append("Connection: keep-alive\r\n\r\n");
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            response.write(head.toString().getBytes(UTF_8));
+            response.write(body);
+            return response.toByteArray();
+        }
+    }
+}
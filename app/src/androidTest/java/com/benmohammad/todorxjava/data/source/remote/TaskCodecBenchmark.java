@@ -0,0 +1,109 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.codec.TaskCodec;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the binary task format with the JSON the HTTP remote uses, for 10k tasks with UUID ids
+ * and titles drawn from a small set: encoded size, gzipped size, and encode/decode throughput.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskCodecBenchmark {
+
+    private static final String TAG = "TaskCodecBench";
+    private static final int TASKS = 10000;
+    private static final int DISTINCT_TITLES = 50;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void binaryVersusJson() throws IOException {
+        List<Task> tasks = new ArrayList<>(TASKS);
+        for(int i = 0; i < TASKS; i++) {
+            tasks.add(new Task("Recurring chore " + (i % DISTINCT_TITLES), "Details for task " + i,
+                    UUID.randomUUID().toString(), i % 4 == 0));
+        }
+
+        byte[] json = encodeJson(tasks);
+        byte[] binary = TaskCodec.encode(tasks, false);
+        byte[] dictionary = TaskCodec.encode(tasks, true);
+        assertEquals(tasks, decodeJson(json));
+        assertEquals(tasks, TaskCodec.decode(dictionary));
+        assertTrue(dictionary.length < binary.length && binary.length < json.length);
+
+        long jsonEncode = 0;
+        long jsonDecode = 0;
+        long binaryEncode = 0;
+        long binaryDecode = 0;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            encodeJson(tasks);
+            jsonEncode += System.nanoTime() - start;
+            start = System.nanoTime();
+            decodeJson(json);
+            jsonDecode += System.nanoTime() - start;
+            start = System.nanoTime();
+            TaskCodec.encode(tasks, true);
+            binaryEncode += System.nanoTime() - start;
+            start = System.nanoTime();
+            TaskCodec.decode(dictionary);
+            binaryDecode += System.nanoTime() - start;
+        }
+
+        Log.i(TAG, String.format("size: json %d (gzip %d), binary %d (gzip %d), binary+dictionary %d (gzip %d)",
+                json.length, gzip(json).length, binary.length, gzip(binary).length,
+                dictionary.length, gzip(dictionary).length));
+        Log.i(TAG, String.format("tasks/s: json encode %d decode %d, binary encode %d decode %d",
+                tasksPerSecond(jsonEncode), tasksPerSecond(jsonDecode),
+                tasksPerSecond(binaryEncode), tasksPerSecond(binaryDecode)));
+    }
+
+    @NonNull
+    private static byte[] encodeJson(@NonNull List<Task> tasks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(bytes, "UTF-8"));
+        TaskJson.writeTasks(writer, tasks);
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    @NonNull
+    private static List<Task> decodeJson(@NonNull byte[] json) throws IOException {
+        return TaskJson.readTasks(new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), "UTF-8")));
+    }
+
+    @NonNull
+    private static byte[] gzip(@NonNull byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(compressed);
+        out.write(bytes);
+        out.close();
+        return compressed.toByteArray();
+    }
+
+    private static long tasksPerSecond(long totalNanos) {
+        return (long) TASKS * ROUNDS * 1000000000L / Math.max(1, totalNanos);
+    }
+}
@@ -0,0 +1,93 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.source.local.TasksLocalDataSource;
+import com.benmohammad.todorxjava.util.schedulers.SchedulerProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Changes 50 of 100k remote tasks and compares the local write cost of a full refresh, which
+ * re-saves every row, with applying the delta returned by getChangesSince. Remote latency is
+ * excluded; only the local apply is timed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TasksDeltaSyncBenchmark {
+
+    private static final String TAG = "TasksDeltaSyncBench";
+    private static final int TASKS = 100000;
+    private static final int UPDATED = 40;
+    private static final int DELETED = 10;
+
+    private TasksRemoteDataSource mRemoteDataSource;
+
+    private TasksLocalDataSource mLocalDataSource;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        TasksLocalDataSource.destroyInstance();
+        mLocalDataSource = TasksLocalDataSource.getInstance(context, SchedulerProvider.getInstance());
+        mRemoteDataSource = TasksRemoteDataSource.getInstance();
+        mRemoteDataSource.deleteAllTasks();
+        mLocalDataSource.deleteAllTasks();
+
+        List<Task> tasks = new ArrayList<>(TASKS);
+        for(int i = 0; i < TASKS; i++) {
+            tasks.add(new Task("title " + i, "description " + i, "delta-" + i));
+        }
+        mRemoteDataSource.saveTasks(tasks);
+        mLocalDataSource.saveTasks(tasks);
+    }
+
+    @After
+    public void tearDown() {
+        mRemoteDataSource.deleteAllTasks();
+        mLocalDataSource.deleteAllTasks();
+        TasksLocalDataSource.destroyInstance();
+    }
+
+    @Test
+    public void deltaSync_writesOnlyChangedRows() {
+        long syncedVersion = mRemoteDataSource.getChangesSince(Long.MAX_VALUE).blockingFirst().getVersion();
+        for(int i = 0; i < UPDATED; i++) {
+            mRemoteDataSource.completeTask("delta-" + i);
+        }
+        for(int i = UPDATED; i < UPDATED + DELETED; i++) {
+            mRemoteDataSource.deleteTask("delta-" + i);
+        }
+
+        List<Task> allTasks = mRemoteDataSource.getTasks().blockingFirst();
+        long start = System.nanoTime();
+        mLocalDataSource.saveTasks(allTasks);
+        long fullMillis = (System.nanoTime() - start) / 1000000;
+
+        TasksDelta delta = mRemoteDataSource.getChangesSince(syncedVersion).blockingFirst();
+        assertEquals(UPDATED, delta.getChangedTasks().size());
+        assertEquals(DELETED, delta.getDeletedTaskIds().size());
+        start = System.nanoTime();
+        mLocalDataSource.saveTasks(delta.getChangedTasks());
+        mLocalDataSource.deleteTasks(delta.getDeletedTaskIds());
+        long deltaMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(TASKS - DELETED, mLocalDataSource.getTaskCounts().blockingFirst().getTotalCount());
+        assertEquals(UPDATED, mLocalDataSource.getTaskCounts().blockingFirst().getCompletedCount());
+        Log.i(TAG, String.format("full refresh: %d rows in %d ms, delta: %d rows in %d ms",
+                allTasks.size(), fullMillis, UPDATED + DELETED, deltaMillis));
+    }
+}
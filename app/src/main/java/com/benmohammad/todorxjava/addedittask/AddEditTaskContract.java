@@ -8,6 +8,7 @@ public interface AddEditTaskContract {
     interface View extends BaseView<Presenter> {
 
         void showEmptyTaskError();
+        void showSaveTaskError();
         void showTasksList();
         void setTitle(String title);
         void setDescription(String description);
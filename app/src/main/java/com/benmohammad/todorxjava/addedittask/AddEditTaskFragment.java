@@ -68,6 +68,11 @@ public class AddEditTaskFragment extends Fragment implements AddEditTaskContract
         Snackbar.make(getView(), getString(R.string.empty_task_message), Snackbar.LENGTH_SHORT).show();
     }
 
+    @Override
+    public void showSaveTaskError() {
+        Snackbar.make(getView(), getString(R.string.save_task_error), Snackbar.LENGTH_SHORT).show();
+    }
+
     @Override
     public void showTasksList() {
         getActivity().setResult(Activity.RESULT_OK);
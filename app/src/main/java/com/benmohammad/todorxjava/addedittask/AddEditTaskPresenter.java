@@ -6,6 +6,7 @@ import androidx.annotation.Nullable;
 import com.benmohammad.todorxjava.data.Task;
 import com.benmohammad.todorxjava.data.source.TasksDataSource;
 import com.benmohammad.todorxjava.util.schedulers.BaseSchedulerProvider;
+import com.benmohammad.todorxjava.util.schedulers.MutationRunner;
 
 import javax.annotation.Nonnegative;
 
@@ -33,6 +34,9 @@ public class AddEditTaskPresenter implements AddEditTaskContract.Presenter {
     @NonNull
     private CompositeDisposable compositeDisposable;
 
+    @NonNull
+    private final MutationRunner mMutations;
+
     public AddEditTaskPresenter(@Nullable String taskId,
                                 @NonNull TasksDataSource tasksRepository,
                                 @NonNull AddEditTaskContract.View addTaskView,
@@ -44,6 +48,7 @@ public class AddEditTaskPresenter implements AddEditTaskContract.Presenter {
         mIsDataMissing = shouldLoadDataFromRepo;
         mSchedulerProvider = checkNotNull(schedulerProvider, "scheduler cannot be null");
         compositeDisposable = new CompositeDisposable();
+        mMutations = new MutationRunner(schedulerProvider);
         mAddTaskView.setPresenter(this);
     }
 
@@ -104,6 +109,7 @@ public class AddEditTaskPresenter implements AddEditTaskContract.Presenter {
     @Override
     public void unsubscribe() {
         compositeDisposable.clear();
+        mMutations.clear();
     }
 
 
@@ -117,8 +123,7 @@ public class AddEditTaskPresenter implements AddEditTaskContract.Presenter {
         if(newTask.isEmpty()) {
             mAddTaskView.showEmptyTaskError();
         } else {
-            mTasksRepository.saveTask(newTask);
-            mAddTaskView.showTasksList();
+            mMutations.run(mTasksRepository.saveTaskAsync(newTask), mAddTaskView::showTasksList, this::showSaveTaskError);
         }
     }
 
@@ -126,7 +131,13 @@ public class AddEditTaskPresenter implements AddEditTaskContract.Presenter {
         if(isNewTask()) {
             throw new RuntimeException("updateTask was called but task is null");
         }
-        mTasksRepository.saveTask(new Task(title, description, mTaskId));
-        mAddTaskView.showTasksList();
+        mMutations.run(mTasksRepository.saveTaskAsync(new Task(title, description, mTaskId)),
+                mAddTaskView::showTasksList, this::showSaveTaskError);
+    }
+
+    private void showSaveTaskError() {
+        if(mAddTaskView.isActive()) {
+            mAddTaskView.showSaveTaskError();
+        }
     }
 }
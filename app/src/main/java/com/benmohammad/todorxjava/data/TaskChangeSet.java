@@ -0,0 +1,160 @@
+package com.benmohammad.todorxjava.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+public final class TaskChangeSet {
+
+    public static final TaskChangeSet EMPTY = new Builder().build();
+
+    public static final TaskChangeSet INVALIDATED = new TaskChangeSet(new Builder(), true);
+
+    @NonNull
+    private final ImmutableSet<String> mInsertedIds;
+
+    @NonNull
+    private final ImmutableSet<String> mUpdatedIds;
+
+    @NonNull
+    private final ImmutableSet<String> mRemovedIds;
+
+    @NonNull
+    private final ImmutableMap<String, Task> mTasks;
+
+    private final boolean mInvalidated;
+
+    private TaskChangeSet(@NonNull Builder builder, boolean invalidated) {
+        mInvalidated = invalidated;
+        mInsertedIds = ImmutableSet.copyOf(builder.mInsertedIds);
+        mUpdatedIds = ImmutableSet.copyOf(builder.mUpdatedIds);
+        mRemovedIds = ImmutableSet.copyOf(builder.mRemovedIds);
+        mTasks = ImmutableMap.copyOf(builder.mTasks);
+    }
+
+    @NonNull
+    public static TaskChangeSet updated(@NonNull Collection<String> taskIds) {
+        Builder builder = new Builder();
+        for(String taskId : taskIds) {
+            builder.update(taskId);
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    public static TaskChangeSet removed(@NonNull Collection<String> taskIds) {
+        Builder builder = new Builder();
+        for(String taskId : taskIds) {
+            builder.remove(taskId);
+        }
+        return builder.build();
+    }
+
+    @NonNull
+    public Set<String> getInsertedIds() {
+        return mInsertedIds;
+    }
+
+    @NonNull
+    public Set<String> getUpdatedIds() {
+        return mUpdatedIds;
+    }
+
+    @NonNull
+    public Set<String> getRemovedIds() {
+        return mRemovedIds;
+    }
+
+    @Nullable
+    public Task getTask(@NonNull String taskId) {
+        return mTasks.get(taskId);
+    }
+
+    public boolean isInvalidated() {
+        return mInvalidated;
+    }
+
+    public boolean isEmpty() {
+        return !mInvalidated && mInsertedIds.isEmpty() && mUpdatedIds.isEmpty() && mRemovedIds.isEmpty();
+    }
+
+    public int size() {
+        return mInsertedIds.size() + mUpdatedIds.size() + mRemovedIds.size();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        if(mInvalidated) {
+            return "TaskChangeSet invalidated";
+        }
+        return "TaskChangeSet inserted=" + mInsertedIds + " updated=" + mUpdatedIds + " removed=" + mRemovedIds;
+    }
+
+    public static final class Builder {
+
+        private final Set<String> mInsertedIds = new LinkedHashSet<>();
+
+        private final Set<String> mUpdatedIds = new LinkedHashSet<>();
+
+        private final Set<String> mRemovedIds = new LinkedHashSet<>();
+
+        private final Map<String, Task> mTasks = new LinkedHashMap<>();
+
+        @NonNull
+        public Builder insert(@NonNull Task task) {
+            String taskId = checkNotNull(task).getId();
+            if(mRemovedIds.remove(taskId)) {
+                mUpdatedIds.add(taskId);
+            } else if(!mUpdatedIds.contains(taskId)) {
+                mInsertedIds.add(taskId);
+            }
+            mTasks.put(taskId, task);
+            return this;
+        }
+
+        @NonNull
+        public Builder update(@NonNull Task task) {
+            update(checkNotNull(task).getId());
+            mTasks.put(task.getId(), task);
+            return this;
+        }
+
+        @NonNull
+        public Builder update(@NonNull String taskId) {
+            checkNotNull(taskId);
+            if(!mInsertedIds.contains(taskId)) {
+                mRemovedIds.remove(taskId);
+                mUpdatedIds.add(taskId);
+            }
+            mTasks.remove(taskId);
+            return this;
+        }
+
+        @NonNull
+        public Builder remove(@NonNull String taskId) {
+            checkNotNull(taskId);
+            mTasks.remove(taskId);
+            if(!mInsertedIds.remove(taskId)) {
+                mUpdatedIds.remove(taskId);
+                mRemovedIds.add(taskId);
+            }
+            return this;
+        }
+
+        @NonNull
+        public TaskChangeSet build() {
+            return new TaskChangeSet(this, false);
+        }
+    }
+}
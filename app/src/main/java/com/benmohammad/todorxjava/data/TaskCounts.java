@@ -0,0 +1,51 @@
+package com.benmohammad.todorxjava.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Objects;
+
+public final class TaskCounts {
+
+    public static final TaskCounts EMPTY = new TaskCounts(0, 0);
+
+    private final int mActiveCount;
+
+    private final int mCompletedCount;
+
+    public TaskCounts(int activeCount, int completedCount) {
+        mActiveCount = activeCount;
+        mCompletedCount = completedCount;
+    }
+
+    public int getActiveCount() {
+        return mActiveCount;
+    }
+
+    public int getCompletedCount() {
+        return mCompletedCount;
+    }
+
+    public int getTotalCount() {
+        return mActiveCount + mCompletedCount;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if(this == obj) return true;
+        if(obj == null || getClass() != obj.getClass()) return false;
+        TaskCounts counts = (TaskCounts) obj;
+        return mActiveCount == counts.mActiveCount && mCompletedCount == counts.mCompletedCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(mActiveCount, mCompletedCount);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TaskCounts active=" + mActiveCount + " completed=" + mCompletedCount;
+    }
+}
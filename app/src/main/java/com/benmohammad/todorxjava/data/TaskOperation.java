@@ -0,0 +1,83 @@
+package com.benmohammad.todorxjava.data;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * One mutation in a batch: saves carry whole tasks, completion changes and deletes carry ids, and
+ * the bulk operations carry neither.
+ */
+public final class TaskOperation {
+
+    public static final int SAVE = 0;
+    public static final int COMPLETE = 1;
+    public static final int ACTIVATE = 2;
+    public static final int DELETE = 3;
+    public static final int CLEAR_COMPLETED = 4;
+    public static final int DELETE_ALL = 5;
+
+    private final int mType;
+
+    @NonNull
+    private final List<Task> mTasks;
+
+    @NonNull
+    private final List<String> mTaskIds;
+
+    private TaskOperation(int type, @NonNull Collection<Task> tasks, @NonNull Collection<String> taskIds) {
+        mType = type;
+        mTasks = ImmutableList.copyOf(tasks);
+        mTaskIds = ImmutableList.copyOf(taskIds);
+    }
+
+    @NonNull
+    public static TaskOperation save(@NonNull Collection<Task> tasks) {
+        return new TaskOperation(SAVE, checkNotNull(tasks), Collections.emptyList());
+    }
+
+    @NonNull
+    public static TaskOperation complete(@NonNull Collection<String> taskIds) {
+        return new TaskOperation(COMPLETE, Collections.emptyList(), checkNotNull(taskIds));
+    }
+
+    @NonNull
+    public static TaskOperation activate(@NonNull Collection<String> taskIds) {
+        return new TaskOperation(ACTIVATE, Collections.emptyList(), checkNotNull(taskIds));
+    }
+
+    @NonNull
+    public static TaskOperation delete(@NonNull Collection<String> taskIds) {
+        return new TaskOperation(DELETE, Collections.emptyList(), checkNotNull(taskIds));
+    }
+
+    @NonNull
+    public static TaskOperation clearCompleted() {
+        return new TaskOperation(CLEAR_COMPLETED, Collections.emptyList(), Collections.emptyList());
+    }
+
+    @NonNull
+    public static TaskOperation deleteAll() {
+        return new TaskOperation(DELETE_ALL, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    @NonNull
+    public List<Task> getTasks() {
+        return mTasks;
+    }
+
+    @NonNull
+    public List<String> getTaskIds() {
+        return mTaskIds;
+    }
+}
@@ -0,0 +1,105 @@
+package com.benmohammad.todorxjava.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The changes a client needs to move from the version it asked for to {@link #getVersion()}:
+ * tasks created or updated since then, and the ids of tasks deleted since then (tombstones).
+ * A reset delta carries the complete task set instead, and the client must drop every task that
+ * is not in it.
+ */
+public final class TasksDelta {
+
+    @NonNull
+    private final List<Task> mChangedTasks;
+
+    @NonNull
+    private final List<String> mDeletedTaskIds;
+
+    private final long mVersion;
+
+    private final boolean mReset;
+
+    private TasksDelta(@NonNull List<Task> changedTasks, @NonNull List<String> deletedTaskIds,
+                       long version, boolean reset) {
+        mChangedTasks = checkNotNull(changedTasks);
+        mDeletedTaskIds = checkNotNull(deletedTaskIds);
+        mVersion = version;
+        mReset = reset;
+    }
+
+    @NonNull
+    public static TasksDelta changes(@NonNull List<Task> changedTasks, @NonNull List<String> deletedTaskIds,
+                                     long version) {
+        return new TasksDelta(changedTasks, deletedTaskIds, version, false);
+    }
+
+    @NonNull
+    public static TasksDelta reset(@NonNull List<Task> tasks, long version) {
+        return new TasksDelta(tasks, Collections.emptyList(), version, true);
+    }
+
+    /**
+     * Folds consecutive deltas, oldest first, into one that has the same effect: the latest state
+     * of each task wins, and a reset anywhere makes the result a reset.
+     */
+    @NonNull
+    public static TasksDelta merge(@NonNull List<TasksDelta> deltas) {
+        checkArgument(!deltas.isEmpty(), "deltas cannot be empty");
+        Map<String, Task> changedTasks = new LinkedHashMap<>();
+        Set<String> deletedTaskIds = new LinkedHashSet<>();
+        long version = deltas.get(0).getVersion();
+        boolean reset = false;
+        for(TasksDelta delta : deltas) {
+            if(delta.isReset()) {
+                reset = true;
+                changedTasks.clear();
+                deletedTaskIds.clear();
+            }
+            for(String taskId : delta.getDeletedTaskIds()) {
+                changedTasks.remove(taskId);
+                deletedTaskIds.add(taskId);
+            }
+            for(Task task : delta.getChangedTasks()) {
+                deletedTaskIds.remove(task.getId());
+                changedTasks.put(task.getId(), task);
+            }
+            version = Math.max(version, delta.getVersion());
+        }
+        List<Task> tasks = new ArrayList<>(changedTasks.values());
+        return reset ? reset(tasks, version) : changes(tasks, new ArrayList<>(deletedTaskIds), version);
+    }
+
+    @NonNull
+    public List<Task> getChangedTasks() {
+        return mChangedTasks;
+    }
+
+    @NonNull
+    public List<String> getDeletedTaskIds() {
+        return mDeletedTaskIds;
+    }
+
+    public long getVersion() {
+        return mVersion;
+    }
+
+    public boolean isReset() {
+        return mReset;
+    }
+
+    public boolean isEmpty() {
+        return !mReset && mChangedTasks.isEmpty() && mDeletedTaskIds.isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package com.benmohammad.todorxjava.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+public final class TasksPage {
+
+    public static final long FIRST_PAGE_KEY = 0;
+
+    @NonNull
+    private final List<Task> mTasks;
+
+    private final long mAfterKey;
+
+    private final long mNextKey;
+
+    private final boolean mHasMore;
+
+    public TasksPage(@NonNull List<Task> tasks, long afterKey, long nextKey, boolean hasMore) {
+        mTasks = checkNotNull(tasks);
+        mAfterKey = afterKey;
+        mNextKey = nextKey;
+        mHasMore = hasMore;
+    }
+
+    @NonNull
+    public List<Task> getTasks() {
+        return mTasks;
+    }
+
+    public long getAfterKey() {
+        return mAfterKey;
+    }
+
+    public long getNextKey() {
+        return mNextKey;
+    }
+
+    public boolean hasMore() {
+        return mHasMore;
+    }
+
+    public boolean isFirstPage() {
+        return mAfterKey == FIRST_PAGE_KEY;
+    }
+
+    public boolean isEmpty() {
+        return mTasks.isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package com.benmohammad.todorxjava.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Answer to a conditional task list request: either the tasks with a validator for the next
+ * request, or "not modified", in which case there is no body to read.
+ */
+public final class TasksResponse {
+
+    @Nullable
+    private final List<Task> mTasks;
+
+    @Nullable
+    private final String mValidator;
+
+    private TasksResponse(@Nullable List<Task> tasks, @Nullable String validator) {
+        mTasks = tasks;
+        mValidator = validator;
+    }
+
+    @NonNull
+    public static TasksResponse modified(@NonNull List<Task> tasks, @Nullable String validator) {
+        return new TasksResponse(checkNotNull(tasks), validator);
+    }
+
+    @NonNull
+    public static TasksResponse notModified(@NonNull String validator) {
+        return new TasksResponse(null, checkNotNull(validator));
+    }
+
+    public boolean isNotModified() {
+        return mTasks == null;
+    }
+
+    @NonNull
+    public List<Task> getTasks() {
+        checkState(mTasks != null, "A not modified response has no tasks");
+        return mTasks;
+    }
+
+    @Nullable
+    public String getValidator() {
+        return mValidator;
+    }
+}
@@ -0,0 +1,130 @@
+package com.benmohammad.todorxjava.data.codec;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact, versioned binary form of a stream of tasks, written by {@link TaskEncoder} and read by
+ * {@link TaskDecoder}.
+ * <pre>
+ * stream := 'T' 'K' version flags record* 0x00
+ * record := tag id [title] [description]
+ * </pre>
+ * Lengths and dictionary indexes are unsigned LEB128 varints and strings are UTF-8. Ids in the
+ * lower-case form {@code UUID#toString()} produces take 16 raw bytes instead of 36 characters;
+ * any other id is written as a string. With {@link #FLAG_TITLE_DICTIONARY} each new title is
+ * numbered in order of appearance and repeats are written as that number.
+ * <p>
+ * The HTTP remote uses it for task lists, and {@link TaskSnapshotFile} for task lists saved to disk.
+ */
+public final class TaskCodec {
+
+    public static final String MEDIA_TYPE = "application/x-tasks";
+
+    public static final int VERSION = 1;
+
+    static final int MAGIC_0 = 'T';
+    static final int MAGIC_1 = 'K';
+
+    static final int FLAG_TITLE_DICTIONARY = 0x01;
+
+    static final int END = 0x00;
+    static final int TAG_RECORD = 0x01;
+    static final int TAG_COMPLETED = 0x02;
+    static final int TAG_UUID_ID = 0x04;
+    static final int TAG_TITLE = 0x08;
+    static final int TAG_TITLE_REF = 0x10;
+    static final int TAG_DESCRIPTION = 0x20;
+
+    // Both sides stop adding titles at this size, so the dictionary stays bounded on long streams.
+    static final int MAX_DICTIONARY_SIZE = 65536;
+
+    static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+
+    static final int UUID_BYTES = 16;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private TaskCodec() {
+    }
+
+    /**
+     * Throws an {@link IOException} if a task has a string longer than a decoder accepts.
+     */
+    @NonNull
+    public static byte[] encode(@NonNull Collection<Task> tasks, boolean titleDictionary) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TaskEncoder encoder = new TaskEncoder(bytes, titleDictionary);
+        for(Task task : tasks) {
+            encoder.write(task);
+        }
+        encoder.finish();
+        return bytes.toByteArray();
+    }
+
+    @NonNull
+    public static List<Task> decode(@NonNull byte[] bytes) throws IOException {
+        return new TaskDecoder(new ByteArrayInputStream(bytes)).readAll();
+    }
+
+    static boolean isCanonicalUuid(@NonNull String id) {
+        if(id.length() != 36) {
+            return false;
+        }
+        for(int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if(i == 8 || i == 13 || i == 18 || i == 23) {
+                if(c != '-') {
+                    return false;
+                }
+            } else if(!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Packs a canonical UUID string into 16 bytes at offset.
+    static void packUuid(@NonNull String id, @NonNull byte[] out, int offset) {
+        int position = offset;
+        int high = -1;
+        for(int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if(c == '-') {
+                continue;
+            }
+            if(high < 0) {
+                high = hexValue(c);
+            } else {
+                out[position++] = (byte) (high << 4 | hexValue(c));
+                high = -1;
+            }
+        }
+    }
+
+    @NonNull
+    static String unpackUuid(@NonNull byte[] in, int offset) {
+        char[] chars = new char[36];
+        int position = 0;
+        for(int i = 0; i < UUID_BYTES; i++) {
+            if(i == 4 || i == 6 || i == 8 || i == 10) {
+                chars[position++] = '-';
+            }
+            int value = in[offset + i] & 0xFF;
+            chars[position++] = HEX_DIGITS[value >>> 4];
+            chars[position++] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    private static int hexValue(char c) {
+        return c <= '9' ? c - '0' : c - 'a' + 10;
+    }
+}
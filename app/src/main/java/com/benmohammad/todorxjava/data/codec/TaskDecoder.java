@@ -0,0 +1,180 @@
+package com.benmohammad.todorxjava.data.codec;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads tasks one at a time from the {@link TaskCodec} format. Input is buffered internally, so
+ * the decoder may read past the end marker. Not thread safe.
+ */
+public final class TaskDecoder implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+
+    @NonNull
+    private final InputStream mIn;
+
+    @NonNull
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+
+    private int mPosition = 0;
+
+    private int mLimit = 0;
+
+    @Nullable
+    private final List<String> mTitles;
+
+    private boolean mEnded = false;
+
+    /**
+     * Reads the header straight away, so a stream in an unknown format or version fails here.
+     */
+    public TaskDecoder(@NonNull InputStream in) throws IOException {
+        mIn = checkNotNull(in, "in cannot be null");
+        if(readByte() != TaskCodec.MAGIC_0 || readByte() != TaskCodec.MAGIC_1) {
+            throw new IOException("Not a task stream");
+        }
+        int version = readByte();
+        if(version != TaskCodec.VERSION) {
+            throw new IOException("Unsupported task stream version " + version);
+        }
+        int flags = readByte();
+        mTitles = (flags & TaskCodec.FLAG_TITLE_DICTIONARY) != 0 ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Returns the next task, or {@code null} once the end marker has been read.
+     */
+    @Nullable
+    public Task read() throws IOException {
+        if(mEnded) {
+            return null;
+        }
+        int tag = readByte();
+        if(tag == TaskCodec.END) {
+            mEnded = true;
+            return null;
+        }
+        if((tag & TaskCodec.TAG_RECORD) == 0) {
+            throw new IOException("Corrupt task stream: tag " + tag);
+        }
+
+        String id;
+        if((tag & TaskCodec.TAG_UUID_ID) != 0) {
+            fill(TaskCodec.UUID_BYTES);
+            id = TaskCodec.unpackUuid(mBuffer, mPosition);
+            mPosition += TaskCodec.UUID_BYTES;
+        } else {
+            id = readString();
+        }
+        String title = null;
+        if((tag & TaskCodec.TAG_TITLE) != 0) {
+            title = (tag & TaskCodec.TAG_TITLE_REF) != 0 ? readTitleRef() : readString();
+            if((tag & TaskCodec.TAG_TITLE_REF) == 0 && mTitles != null
+                    && mTitles.size() < TaskCodec.MAX_DICTIONARY_SIZE) {
+                mTitles.add(title);
+            }
+        }
+        String description = (tag & TaskCodec.TAG_DESCRIPTION) != 0 ? readString() : null;
+        return new Task(title, description, id, (tag & TaskCodec.TAG_COMPLETED) != 0);
+    }
+
+    @NonNull
+    public List<Task> readAll() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for(Task task = read(); task != null; task = read()) {
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    @NonNull
+    private String readTitleRef() throws IOException {
+        int index = readVarint();
+        if(mTitles == null || index >= mTitles.size()) {
+            throw new IOException("Corrupt task stream: title " + index);
+        }
+        return mTitles.get(index);
+    }
+
+    @NonNull
+    private String readString() throws IOException {
+        int length = readVarint();
+        if(length > TaskCodec.MAX_STRING_BYTES) {
+            throw new IOException("Corrupt task stream: string of " + length + " bytes");
+        }
+        if(length <= BUFFER_SIZE) {
+            fill(length);
+            String value = new String(mBuffer, mPosition, length, UTF_8);
+            mPosition += length;
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        int copied = mLimit - mPosition;
+        System.arraycopy(mBuffer, mPosition, bytes, 0, copied);
+        mPosition = mLimit;
+        while(copied < length) {
+            int read = mIn.read(bytes, copied, length - copied);
+            if(read < 0) {
+                throw new EOFException();
+            }
+            copied += read;
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                if(value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Corrupt task stream: bad varint");
+    }
+
+    private int readByte() throws IOException {
+        fill(1);
+        return mBuffer[mPosition++] & 0xFF;
+    }
+
+    // Makes at least the given number of bytes, at most BUFFER_SIZE, available from mPosition.
+    private void fill(int bytes) throws IOException {
+        if(mLimit - mPosition >= bytes) {
+            return;
+        }
+        System.arraycopy(mBuffer, mPosition, mBuffer, 0, mLimit - mPosition);
+        mLimit -= mPosition;
+        mPosition = 0;
+        while(mLimit < bytes) {
+            int read = mIn.read(mBuffer, mLimit, BUFFER_SIZE - mLimit);
+            if(read < 0) {
+                throw new EOFException();
+            }
+            mLimit += read;
+        }
+    }
+}
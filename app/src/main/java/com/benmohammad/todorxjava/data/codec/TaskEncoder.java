@@ -0,0 +1,172 @@
+package com.benmohammad.todorxjava.data.codec;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Writes tasks one at a time in the {@link TaskCodec} format. Output is buffered internally and
+ * handed to the stream when the buffer fills and on {@link #finish()}, which also writes the end
+ * marker. Not thread safe.
+ */
+public final class TaskEncoder implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8192;
+
+    @NonNull
+    private final OutputStream mOut;
+
+    @NonNull
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+
+    private int mPosition = 0;
+
+    @Nullable
+    private final Map<String, Integer> mTitles;
+
+    private boolean mFinished = false;
+
+    public TaskEncoder(@NonNull OutputStream out, boolean titleDictionary) throws IOException {
+        mOut = checkNotNull(out, "out cannot be null");
+        mTitles = titleDictionary ? new HashMap<>() : null;
+        writeByte(TaskCodec.MAGIC_0);
+        writeByte(TaskCodec.MAGIC_1);
+        writeByte(TaskCodec.VERSION);
+        writeByte(titleDictionary ? TaskCodec.FLAG_TITLE_DICTIONARY : 0);
+    }
+
+    /**
+     * Throws an {@link IOException} without writing anything if a string of the task is longer
+     * than a decoder accepts.
+     */
+    public void write(@NonNull Task task) throws IOException {
+        checkNotNull(task);
+        checkState(!mFinished, "The encoder is finished");
+        String id = task.getId();
+        String title = task.getTitle();
+        String description = task.getDescription();
+        boolean uuidId = TaskCodec.isCanonicalUuid(id);
+        Integer titleRef = title != null && mTitles != null ? mTitles.get(title) : null;
+        // Converted before anything is written, so a rejected task leaves the stream intact.
+        byte[] idBytes = uuidId ? null : toUtf8(id);
+        byte[] titleBytes = title != null && titleRef == null ? toUtf8(title) : null;
+        byte[] descriptionBytes = description != null ? toUtf8(description) : null;
+
+        int tag = TaskCodec.TAG_RECORD;
+        if(task.isCompleted()) {
+            tag |= TaskCodec.TAG_COMPLETED;
+        }
+        if(uuidId) {
+            tag |= TaskCodec.TAG_UUID_ID;
+        }
+        if(title != null) {
+            tag |= TaskCodec.TAG_TITLE;
+            if(titleRef != null) {
+                tag |= TaskCodec.TAG_TITLE_REF;
+            } else if(mTitles != null && mTitles.size() < TaskCodec.MAX_DICTIONARY_SIZE) {
+                mTitles.put(title, mTitles.size());
+            }
+        }
+        if(description != null) {
+            tag |= TaskCodec.TAG_DESCRIPTION;
+        }
+
+        writeByte(tag);
+        if(uuidId) {
+            ensureCapacity(TaskCodec.UUID_BYTES);
+            TaskCodec.packUuid(id, mBuffer, mPosition);
+            mPosition += TaskCodec.UUID_BYTES;
+        } else {
+            writeString(idBytes);
+        }
+        if(titleRef != null) {
+            writeVarint(titleRef);
+        } else if(titleBytes != null) {
+            writeString(titleBytes);
+        }
+        if(descriptionBytes != null) {
+            writeString(descriptionBytes);
+        }
+    }
+
+    /**
+     * Writes the end marker and flushes everything to the stream, which stays open.
+     */
+    public void finish() throws IOException {
+        if(!mFinished) {
+            writeByte(TaskCodec.END);
+            mFinished = true;
+        }
+        flushBuffer();
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            mOut.close();
+        }
+    }
+
+    @NonNull
+    private static byte[] toUtf8(@NonNull String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        if(bytes.length > TaskCodec.MAX_STRING_BYTES) {
+            throw new IOException("String of " + bytes.length + " bytes is too long for a task stream");
+        }
+        return bytes;
+    }
+
+    private void writeString(@NonNull byte[] bytes) throws IOException {
+        writeVarint(bytes.length);
+        if(bytes.length > BUFFER_SIZE) {
+            flushBuffer();
+            mOut.write(bytes);
+            return;
+        }
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, mBuffer, mPosition, bytes.length);
+        mPosition += bytes.length;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        ensureCapacity(5);
+        while((value & ~0x7F) != 0) {
+            mBuffer[mPosition++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mBuffer[mPosition++] = (byte) value;
+    }
+
+    private void writeByte(int value) throws IOException {
+        ensureCapacity(1);
+        mBuffer[mPosition++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if(mPosition + bytes > BUFFER_SIZE) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if(mPosition > 0) {
+            mOut.write(mBuffer, 0, mPosition);
+            mPosition = 0;
+        }
+    }
+}
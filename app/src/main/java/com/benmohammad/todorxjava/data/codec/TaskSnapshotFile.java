@@ -0,0 +1,87 @@
+package com.benmohammad.todorxjava.data.codec;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A list of tasks saved to a file in the {@link TaskCodec} format, streamed through
+ * {@link TaskEncoder} and {@link TaskDecoder} so neither side holds the encoded bytes in memory.
+ * A write goes to a temporary file that is synced and then renamed over the snapshot, so a crash
+ * leaves either the old snapshot or the new one, never part of one. Not thread safe.
+ */
+public final class TaskSnapshotFile {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    @NonNull
+    private final File mFile;
+
+    @NonNull
+    private final File mTempFile;
+
+    public TaskSnapshotFile(@NonNull File file) {
+        mFile = checkNotNull(file, "file cannot be null");
+        mTempFile = new File(file.getPath() + TEMP_SUFFIX);
+    }
+
+    public void write(@NonNull Collection<Task> tasks) throws IOException {
+        checkNotNull(tasks);
+        boolean written = false;
+        FileOutputStream out = new FileOutputStream(mTempFile);
+        try {
+            TaskEncoder encoder = new TaskEncoder(out, true);
+            for(Task task : tasks) {
+                encoder.write(task);
+            }
+            encoder.finish();
+            out.getFD().sync();
+            written = true;
+        } finally {
+            out.close();
+            if(!written) {
+                mTempFile.delete();
+            }
+        }
+        if(!mTempFile.renameTo(mFile)) {
+            mTempFile.delete();
+            throw new IOException("Cannot replace " + mFile);
+        }
+    }
+
+    /**
+     * Returns the saved tasks, or {@code null} when there is no snapshot.
+     *
+     * @throws IOException if the snapshot can't be read or is not a task stream
+     */
+    @Nullable
+    public List<Task> read() throws IOException {
+        FileInputStream in;
+        try {
+            in = new FileInputStream(mFile);
+        } catch(FileNotFoundException e) {
+            return null;
+        }
+        try {
+            return new TaskDecoder(in).readAll();
+        } finally {
+            in.close();
+        }
+    }
+
+    public void delete() {
+        mFile.delete();
+        mTempFile.delete();
+    }
+}
@@ -0,0 +1,63 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public final class CachePolicy {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final int mMaxEntries;
+
+    private final long mMaxBytes;
+
+    private CachePolicy(int maxEntries, long maxBytes) {
+        mMaxEntries = maxEntries;
+        mMaxBytes = maxBytes;
+    }
+
+    @NonNull
+    public static CachePolicy unbounded() {
+        return new CachePolicy(Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    @NonNull
+    public static CachePolicy maxEntries(int maxEntries) {
+        checkArgument(maxEntries > 0, "maxEntries must be positive");
+        return new CachePolicy(maxEntries, Long.MAX_VALUE);
+    }
+
+    @NonNull
+    public static CachePolicy maxBytes(long maxBytes) {
+        checkArgument(maxBytes > 0, "maxBytes must be positive");
+        return new CachePolicy(Integer.MAX_VALUE, maxBytes);
+    }
+
+    public int getMaxEntries() {
+        return mMaxEntries;
+    }
+
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    boolean isBounded() {
+        return mMaxEntries != Integer.MAX_VALUE || mMaxBytes != Long.MAX_VALUE;
+    }
+
+    boolean isExceeded(int entries, long bytes) {
+        return entries > mMaxEntries || bytes > mMaxBytes;
+    }
+
+    static long estimateSize(@NonNull Task task) {
+        return ENTRY_OVERHEAD_BYTES
+                + 2L * (length(task.getId()) + length(task.getTitle()) + length(task.getDescription()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
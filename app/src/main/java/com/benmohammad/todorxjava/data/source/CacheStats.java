@@ -0,0 +1,56 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+
+public final class CacheStats {
+
+    private final long mHitCount;
+
+    private final long mMissCount;
+
+    private final long mEvictionCount;
+
+    private final int mEntryCount;
+
+    private final long mEstimatedBytes;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, int entryCount, long estimatedBytes) {
+        mHitCount = hitCount;
+        mMissCount = missCount;
+        mEvictionCount = evictionCount;
+        mEntryCount = entryCount;
+        mEstimatedBytes = estimatedBytes;
+    }
+
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    public long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    public int getEntryCount() {
+        return mEntryCount;
+    }
+
+    public long getEstimatedBytes() {
+        return mEstimatedBytes;
+    }
+
+    public double getHitRate() {
+        long requests = mHitCount + mMissCount;
+        return requests == 0 ? 1.0 : (double) mHitCount / requests;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CacheStats hits=" + mHitCount + " misses=" + mMissCount + " evictions=" + mEvictionCount
+                + " entries=" + mEntryCount + " bytes=" + mEstimatedBytes;
+    }
+}
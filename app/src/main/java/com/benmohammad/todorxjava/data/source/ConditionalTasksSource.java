@@ -0,0 +1,28 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.TasksResponse;
+
+import io.reactivex.Flowable;
+
+/**
+ * Remote that supports conditional task list requests, in the manner of HTTP ETag and
+ * If-None-Match. The validator is opaque to clients.
+ */
+public interface ConditionalTasksSource {
+
+    /**
+     * Emits a not modified response when {@code validator} still matches the server's task list,
+     * and the full list with its new validator otherwise. Passing {@code null} always fetches.
+     */
+    Flowable<TasksResponse> getTasksIfModified(@Nullable String validator);
+
+    /**
+     * Whether {@link #getTasksIfModified} really is conditional. Wrappers answer for the remote
+     * they wrap, and fall back to always fetching when this is false.
+     */
+    default boolean supportsConditionalRequests() {
+        return true;
+    }
+}
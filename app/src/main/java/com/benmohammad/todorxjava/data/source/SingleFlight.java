@@ -0,0 +1,63 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Flowable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Shares one upstream subscription between concurrent subscribers that load the same key.
+ * The shared load is forgotten as soon as it terminates or loses its last subscriber.
+ */
+class SingleFlight {
+
+    @NonNull
+    private final ConcurrentMap<String, Flowable<?>> mInFlight = new ConcurrentHashMap<>();
+
+    @NonNull
+    private final AtomicLong mUpstreamLoads = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mCoalescedLoads = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    <T> Flowable<T> load(@NonNull String key, @NonNull Flowable<T> upstream) {
+        checkNotNull(key);
+        checkNotNull(upstream);
+        return Flowable.defer(() -> {
+            Flowable<?> inFlight = mInFlight.get(key);
+            if(inFlight != null) {
+                mCoalescedLoads.incrementAndGet();
+                return (Flowable<T>) inFlight;
+            }
+            AtomicReference<Flowable<T>> self = new AtomicReference<>();
+            Flowable<T> shared = upstream
+                    .doFinally(() -> mInFlight.remove(key, self.get()))
+                    .replay()
+                    .refCount();
+            self.set(shared);
+            Flowable<?> raced = mInFlight.putIfAbsent(key, shared);
+            if(raced != null) {
+                mCoalescedLoads.incrementAndGet();
+                return (Flowable<T>) raced;
+            }
+            mUpstreamLoads.incrementAndGet();
+            return shared;
+        });
+    }
+
+    long getUpstreamLoadCount() {
+        return mUpstreamLoads.get();
+    }
+
+    long getCoalescedLoadCount() {
+        return mCoalescedLoads.get();
+    }
+}
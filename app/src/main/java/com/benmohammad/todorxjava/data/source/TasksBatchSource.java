@@ -0,0 +1,56 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.benmohammad.todorxjava.data.TaskOperation;
+
+import java.util.List;
+
+/**
+ * Remote that applies several mutations in one round trip, in order.
+ */
+public interface TasksBatchSource {
+
+    @WorkerThread
+    void applyBatch(@NonNull List<TaskOperation> operations);
+
+    /**
+     * Whether {@link #applyBatch} really is one round trip. Wrappers answer for the remote they
+     * wrap; callers fall back to one call per operation when this is false.
+     */
+    default boolean supportsBatch() {
+        return true;
+    }
+
+    /**
+     * Applies {@code operations} to {@code target} one call per operation.
+     */
+    @WorkerThread
+    static void applyEach(@NonNull TasksDataSource target, @NonNull List<TaskOperation> operations) {
+        for(TaskOperation operation : operations) {
+            switch(operation.getType()) {
+                case TaskOperation.SAVE:
+                    target.saveTasks(operation.getTasks());
+                    break;
+                case TaskOperation.COMPLETE:
+                    target.completeTasks(operation.getTaskIds());
+                    break;
+                case TaskOperation.ACTIVATE:
+                    target.activateTasks(operation.getTaskIds());
+                    break;
+                case TaskOperation.DELETE:
+                    target.deleteTasks(operation.getTaskIds());
+                    break;
+                case TaskOperation.CLEAR_COMPLETED:
+                    target.clearCompletedTasks();
+                    break;
+                case TaskOperation.DELETE_ALL:
+                    target.deleteAllTasks();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation.getType());
+            }
+        }
+    }
+}
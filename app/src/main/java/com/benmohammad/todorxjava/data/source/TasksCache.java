@@ -0,0 +1,499 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskChangeSet;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Task cache. Writers serialize on a private lock and update the entries in place, so a write costs
+ * O(1) per task, or O(log n) to keep the insertion order. Readers never take the lock: lookups by id
+ * read a concurrent map, and list readers get an immutable snapshot that the first read after a
+ * batch of writes builds from the insertion order and then shares. A write version, odd while a
+ * write is in progress, tells a reader whether what it built is a consistent batch; a reader that
+ * keeps colliding with writers builds it under the lock instead.
+ * <p>
+ * A bounded cache stamps entries on every write and read. When the {@link CachePolicy} budget is
+ * exceeded, the writer evicts entries in the order their stamps had when the eviction queue was
+ * last sorted, skipping those read or replaced since. That approximates LRU with one sort per
+ * queue, so readers only ever store a stamp. A partially evicted cache cannot answer list reads but
+ * still serves the tasks it holds by id.
+ */
+class TasksCache {
+
+    private static final int LOCK_FREE_SNAPSHOT_ATTEMPTS = 3;
+
+    @NonNull
+    private final CachePolicy mPolicy;
+
+    @NonNull
+    private final Object mLock = new Object();
+
+    @NonNull
+    private final AtomicLong mHitCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    // Only written with mLock held.
+    @NonNull
+    private final ConcurrentMap<String, Entry> mEntries = new ConcurrentHashMap<>();
+
+    // The same entries keyed by insertion sequence, which is the list order. Only written with mLock held.
+    @NonNull
+    private final ConcurrentNavigableMap<Long, Entry> mOrder = new ConcurrentSkipListMap<>();
+
+    // Guarded by mLock.
+    private long mNextSequence = 0;
+
+    // Guarded by mLock.
+    private long mBytes = 0;
+
+    // Least recently used first as of the last sort, only kept for a bounded policy. Guarded by mLock.
+    @NonNull
+    private final ArrayDeque<Entry> mEvictionQueue = new ArrayDeque<>();
+
+    @NonNull
+    private final AtomicLong mAccessClock = new AtomicLong();
+
+    // Odd while a write is in progress. Only written with mLock held.
+    private volatile long mVersion = 0;
+
+    @NonNull
+    private volatile TaskCounts mCounts = TaskCounts.EMPTY;
+
+    // The last snapshot built; current while its version matches mVersion.
+    @NonNull
+    private volatile Snapshot mSnapshot = Snapshot.EMPTY;
+
+    private volatile boolean mAvailable = false;
+
+    private volatile boolean mEvictedSinceReload = false;
+
+    TasksCache() {
+        this(CachePolicy.unbounded());
+    }
+
+    TasksCache(@NonNull CachePolicy policy) {
+        mPolicy = checkNotNull(policy, "policy cannot be null");
+    }
+
+    boolean isAvailable() {
+        return mAvailable && !mEvictedSinceReload;
+    }
+
+    /**
+     * Whether a bounded cache has evicted since it last held every task. Reloading it from the
+     * whole table would only evict again.
+     */
+    boolean isEvicted() {
+        return mEvictedSinceReload;
+    }
+
+    boolean isEmpty() {
+        return mEntries.isEmpty();
+    }
+
+    int size() {
+        return mEntries.size();
+    }
+
+    @Nullable
+    Task get(@NonNull String taskId) {
+        checkNotNull(taskId);
+        Entry entry = mEntries.get(taskId);
+        if(entry == null) {
+            mMissCount.incrementAndGet();
+            return null;
+        }
+        if(mPolicy.isBounded()) {
+            entry.mAccess = mAccessClock.incrementAndGet();
+        }
+        mHitCount.incrementAndGet();
+        return entry.mTask;
+    }
+
+    @NonNull
+    List<Task> getTasks() {
+        return snapshot().mTasks;
+    }
+
+    @NonNull
+    List<Task> getTasks(@NonNull TasksFilterType filterType) {
+        return snapshot().getTasks(checkNotNull(filterType));
+    }
+
+    @NonNull
+    TaskCounts getTaskCounts() {
+        return mCounts;
+    }
+
+    @NonNull
+    CacheStats getStats() {
+        synchronized(mLock) {
+            return new CacheStats(mHitCount.get(), mMissCount.get(), mEvictionCount.get(), mEntries.size(), mBytes);
+        }
+    }
+
+    @NonNull
+    TaskChangeSet put(@NonNull Task task) {
+        checkNotNull(task);
+        synchronized(mLock) {
+            beginWrite();
+            TaskChangeSet.Builder changes = new TaskChangeSet.Builder();
+            putLocked(task, changes);
+            published();
+            return changes.build();
+        }
+    }
+
+    @NonNull
+    TaskChangeSet putAll(@NonNull Collection<Task> newTasks) {
+        checkNotNull(newTasks);
+        synchronized(mLock) {
+            beginWrite();
+            TaskChangeSet.Builder changes = new TaskChangeSet.Builder();
+            for(Task task : newTasks) {
+                putLocked(task, changes);
+            }
+            published();
+            return changes.build();
+        }
+    }
+
+    /**
+     * Replaces the cached tasks with the given full list; tasks missing from it are dropped.
+     */
+    @NonNull
+    TaskChangeSet reload(@NonNull Collection<Task> newTasks) {
+        checkNotNull(newTasks);
+        synchronized(mLock) {
+            beginWrite();
+            Map<String, Task> reloaded = new LinkedHashMap<>();
+            for(Task task : newTasks) {
+                reloaded.put(task.getId(), task);
+            }
+            TaskChangeSet.Builder changes = new TaskChangeSet.Builder();
+            for(Entry entry : mOrder.values()) {
+                if(!reloaded.containsKey(entry.mTask.getId())) {
+                    removeLocked(entry);
+                    changes.remove(entry.mTask.getId());
+                }
+            }
+            mEvictedSinceReload = false;
+            for(Task task : reloaded.values()) {
+                putLocked(task, changes);
+            }
+            published();
+            mAvailable = true;
+            return changes.build();
+        }
+    }
+
+    @NonNull
+    TaskChangeSet apply(@NonNull Collection<Task> changedTasks, @NonNull Collection<String> removedIds) {
+        checkNotNull(changedTasks);
+        checkNotNull(removedIds);
+        synchronized(mLock) {
+            beginWrite();
+            TaskChangeSet.Builder changes = new TaskChangeSet.Builder();
+            for(Task task : changedTasks) {
+                putLocked(task, changes);
+            }
+            for(String taskId : removedIds) {
+                Entry entry = mEntries.get(taskId);
+                if(entry != null) {
+                    removeLocked(entry);
+                    changes.remove(taskId);
+                }
+            }
+            published();
+            return changes.build();
+        }
+    }
+
+    @NonNull
+    TaskChangeSet remove(@NonNull String taskId) {
+        checkNotNull(taskId);
+        synchronized(mLock) {
+            Entry entry = mEntries.get(taskId);
+            if(entry == null) {
+                return TaskChangeSet.EMPTY;
+            }
+            beginWrite();
+            removeLocked(entry);
+            published();
+            return new TaskChangeSet.Builder().remove(taskId).build();
+        }
+    }
+
+    // Looks every id up instead of scanning the cache, so it costs O(taskIds).
+    @NonNull
+    TaskChangeSet removeAll(@NonNull Collection<String> taskIds) {
+        return apply(Collections.<Task>emptyList(), taskIds);
+    }
+
+    @NonNull
+    TaskChangeSet removeIf(@NonNull Predicate<Task> predicate) {
+        checkNotNull(predicate);
+        synchronized(mLock) {
+            beginWrite();
+            TaskChangeSet.Builder changes = new TaskChangeSet.Builder();
+            for(Entry entry : mOrder.values()) {
+                if(predicate.apply(entry.mTask)) {
+                    removeLocked(entry);
+                    changes.remove(entry.mTask.getId());
+                }
+            }
+            published();
+            return changes.build();
+        }
+    }
+
+    @NonNull
+    TaskChangeSet clear() {
+        synchronized(mLock) {
+            beginWrite();
+            List<String> taskIds = new ArrayList<>(mOrder.size());
+            for(Entry entry : mOrder.values()) {
+                taskIds.add(entry.mTask.getId());
+            }
+            TaskChangeSet changes = TaskChangeSet.removed(taskIds);
+            mEntries.clear();
+            mOrder.clear();
+            mEvictionQueue.clear();
+            mBytes = 0;
+            mCounts = TaskCounts.EMPTY;
+            mEvictedSinceReload = false;
+            mAvailable = true;
+            mVersion++;
+            return changes;
+        }
+    }
+
+    @NonNull
+    private Snapshot snapshot() {
+        Snapshot snapshot = mSnapshot;
+        if(snapshot.mVersion == mVersion) {
+            return snapshot;
+        }
+        for(int attempt = 0; attempt < LOCK_FREE_SNAPSHOT_ATTEMPTS; attempt++) {
+            long version = mVersion;
+            if((version & 1) == 0) {
+                snapshot = new Snapshot(mOrder.values(), version);
+                if(mVersion == version) {
+                    mSnapshot = snapshot;
+                    return snapshot;
+                }
+            }
+            Thread.yield();
+        }
+        synchronized(mLock) {
+            snapshot = mSnapshot;
+            if(snapshot.mVersion != mVersion) {
+                snapshot = new Snapshot(mOrder.values(), mVersion);
+                mSnapshot = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    // Called with mLock held before the first change of a write.
+    private void beginWrite() {
+        mVersion++;
+    }
+
+    private void putLocked(@NonNull Task task, @NonNull TaskChangeSet.Builder changes) {
+        Entry previous = mEntries.get(task.getId());
+        // An updated task keeps its place in the list.
+        long sequence = previous != null ? previous.mSequence : mNextSequence++;
+        Entry entry = new Entry(task, CachePolicy.estimateSize(task), sequence);
+        if(mPolicy.isBounded()) {
+            entry.mAccess = mAccessClock.incrementAndGet();
+        }
+        mEntries.put(task.getId(), entry);
+        mOrder.put(sequence, entry);
+        if(previous != null) {
+            removed(previous);
+        }
+        mBytes += entry.mSize;
+        mCounts = adjust(mCounts, null, task);
+        if(previous == null) {
+            changes.insert(task);
+        } else if(!previous.mTask.equals(task) || previous.mTask.isCompleted() != task.isCompleted()) {
+            changes.update(task);
+        }
+    }
+
+    private void removeLocked(@NonNull Entry entry) {
+        mEntries.remove(entry.mTask.getId());
+        mOrder.remove(entry.mSequence);
+        removed(entry);
+    }
+
+    private void removed(@NonNull Entry entry) {
+        mBytes -= entry.mSize;
+        mCounts = adjust(mCounts, entry.mTask, null);
+    }
+
+    @NonNull
+    private static TaskCounts adjust(@NonNull TaskCounts counts, @Nullable Task removed, @Nullable Task added) {
+        int active = counts.getActiveCount();
+        int completed = counts.getCompletedCount();
+        if(removed != null) {
+            if(removed.isCompleted()) {
+                completed--;
+            } else {
+                active--;
+            }
+        }
+        if(added != null) {
+            if(added.isCompleted()) {
+                completed++;
+            } else {
+                active++;
+            }
+        }
+        return new TaskCounts(active, completed);
+    }
+
+    // Called with mLock held after every write; ends the write.
+    private void published() {
+        if(mPolicy.isExceeded(mEntries.size(), mBytes)) {
+            evict();
+        }
+        mVersion++;
+    }
+
+    private void evict() {
+        int evicted = 0;
+        boolean sorted = false;
+        while(mPolicy.isExceeded(mEntries.size(), mBytes)) {
+            Entry entry = mEvictionQueue.poll();
+            if(entry == null) {
+                sortEvictionQueue();
+                sorted = true;
+                continue;
+            }
+            // Entries read since an earlier sort are no longer the least recently used ones; after
+            // a fresh sort every entry counts, so eviction always makes progress.
+            if(mEntries.get(entry.mTask.getId()) != entry || (!sorted && entry.mAccess != entry.mQueuedAccess)) {
+                continue;
+            }
+            removeLocked(entry);
+            evicted++;
+        }
+        mEvictionCount.addAndGet(evicted);
+        mEvictedSinceReload = true;
+    }
+
+    private void sortEvictionQueue() {
+        List<Entry> entries = new ArrayList<>(mEntries.values());
+        for(Entry entry : entries) {
+            entry.mQueuedAccess = entry.mAccess;
+        }
+        Collections.sort(entries, (a, b) -> Long.compare(a.mQueuedAccess, b.mQueuedAccess));
+        mEvictionQueue.clear();
+        mEvictionQueue.addAll(entries);
+    }
+
+    private static final class Entry {
+
+        @NonNull
+        final Task mTask;
+
+        final long mSize;
+
+        final long mSequence;
+
+        // Stamp of the last write or read, for a bounded policy.
+        volatile long mAccess;
+
+        // mAccess as of the last eviction queue sort. Guarded by mLock.
+        long mQueuedAccess;
+
+        Entry(@NonNull Task task, long size, long sequence) {
+            mTask = task;
+            mSize = size;
+            mSequence = sequence;
+        }
+    }
+
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), 0);
+
+        @NonNull
+        final ImmutableList<Task> mTasks;
+
+        final long mVersion;
+
+        @Nullable
+        private volatile ImmutableList<Task> mActiveTasks;
+
+        @Nullable
+        private volatile ImmutableList<Task> mCompletedTasks;
+
+        Snapshot(@NonNull Collection<Entry> entries, long version) {
+            ImmutableList.Builder<Task> tasks = ImmutableList.builder();
+            for(Entry entry : entries) {
+                tasks.add(entry.mTask);
+            }
+            mTasks = tasks.build();
+            mVersion = version;
+        }
+
+        @NonNull
+        List<Task> getTasks(@NonNull TasksFilterType filterType) {
+            switch(filterType) {
+                case ACTIVE_TASKS:
+                    if(mActiveTasks == null) {
+                        mActiveTasks = filter(filterType);
+                    }
+                    return mActiveTasks;
+                case COMPLETED_TASKS:
+                    if(mCompletedTasks == null) {
+                        mCompletedTasks = filter(filterType);
+                    }
+                    return mCompletedTasks;
+                case ALL_TASKS:
+                default:
+                    return mTasks;
+            }
+        }
+
+        @NonNull
+        private ImmutableList<Task> filter(@NonNull TasksFilterType filterType) {
+            ImmutableList.Builder<Task> tasks = ImmutableList.builder();
+            for(Task task : mTasks) {
+                if(filterType.accept(task)) {
+                    tasks.add(task);
+                }
+            }
+            return tasks.build();
+        }
+    }
+}
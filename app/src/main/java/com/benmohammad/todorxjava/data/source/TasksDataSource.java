@@ -1,26 +1,85 @@
 package com.benmohammad.todorxjava.data.source;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
 
 import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
 import com.google.common.base.Optional;
 
+import java.util.Collection;
 import java.util.List;
 
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 
 public interface TasksDataSource {
 
     Flowable<List<Task>> getTasks();
+    Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType);
+    Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize);
     Flowable<Optional<Task>> getTask(@NonNull String taskId);
+    Flowable<TaskCounts> getTaskCounts();
 
-    void saveTask(@NonNull Task task);
-    void completeTask(@NonNull Task task);
-    void completeTask(@NonNull String taskId);
-    void activateTask(@NonNull Task task);
-    void activateTask(@NonNull String taskId);
-    void clearCompletedTasks();
+    @WorkerThread void saveTask(@NonNull Task task);
+    @WorkerThread void saveTasks(@NonNull Collection<Task> tasks);
+    @WorkerThread void completeTask(@NonNull Task task);
+    @WorkerThread void completeTask(@NonNull String taskId);
+    @WorkerThread void completeTasks(@NonNull Collection<String> taskIds);
+    @WorkerThread void activateTask(@NonNull Task task);
+    @WorkerThread void activateTask(@NonNull String taskId);
+    @WorkerThread void activateTasks(@NonNull Collection<String> taskIds);
+    @WorkerThread void clearCompletedTasks();
     void refreshTasks();
-    void deleteAllTasks();
-    void deleteTask(@NonNull String taskId);
+    @WorkerThread void deleteAllTasks();
+    @WorkerThread void deleteTask(@NonNull String taskId);
+    @WorkerThread void deleteTasks(@NonNull Collection<String> taskIds);
+
+    // Replaces every task with the given ones. Local sources override this to do it in one
+    // transaction, so a reader never sees the table empty in between.
+    @WorkerThread default void replaceTasks(@NonNull Collection<Task> tasks) {
+        deleteAllTasks();
+        saveTasks(tasks);
+    }
+
+    // Deferred variants of the mutations: nothing runs until subscription. TasksRepository runs
+    // them on its io scheduler; other implementations leave the scheduler to the caller.
+    @NonNull default Completable saveTaskAsync(@NonNull Task task) {
+        return Completable.fromAction(() -> saveTask(task));
+    }
+    @NonNull default Completable saveTasksAsync(@NonNull Collection<Task> tasks) {
+        return Completable.fromAction(() -> saveTasks(tasks));
+    }
+    @NonNull default Completable completeTaskAsync(@NonNull Task task) {
+        return Completable.fromAction(() -> completeTask(task));
+    }
+    @NonNull default Completable completeTaskAsync(@NonNull String taskId) {
+        return Completable.fromAction(() -> completeTask(taskId));
+    }
+    @NonNull default Completable completeTasksAsync(@NonNull Collection<String> taskIds) {
+        return Completable.fromAction(() -> completeTasks(taskIds));
+    }
+    @NonNull default Completable activateTaskAsync(@NonNull Task task) {
+        return Completable.fromAction(() -> activateTask(task));
+    }
+    @NonNull default Completable activateTaskAsync(@NonNull String taskId) {
+        return Completable.fromAction(() -> activateTask(taskId));
+    }
+    @NonNull default Completable activateTasksAsync(@NonNull Collection<String> taskIds) {
+        return Completable.fromAction(() -> activateTasks(taskIds));
+    }
+    @NonNull default Completable clearCompletedTasksAsync() {
+        return Completable.fromAction(this::clearCompletedTasks);
+    }
+    @NonNull default Completable deleteAllTasksAsync() {
+        return Completable.fromAction(this::deleteAllTasks);
+    }
+    @NonNull default Completable deleteTaskAsync(@NonNull String taskId) {
+        return Completable.fromAction(() -> deleteTask(taskId));
+    }
+    @NonNull default Completable deleteTasksAsync(@NonNull Collection<String> taskIds) {
+        return Completable.fromAction(() -> deleteTasks(taskIds));
+    }
 }
@@ -0,0 +1,100 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Loads one {@link TasksPage} at a time and requests the next page once a bound position comes
+ * within the prefetch distance of the end of what has been loaded so far.
+ */
+public class TasksPager {
+
+    @NonNull
+    private final TasksDataSource mTasksDataSource;
+
+    @NonNull
+    private final TasksFilterType mFilterType;
+
+    private final int mPageSize;
+
+    private final int mPrefetchDistance;
+
+    @NonNull
+    private final PublishProcessor<Long> mPageRequests = PublishProcessor.create();
+
+    @NonNull
+    private final AtomicBoolean mLoading = new AtomicBoolean(true);
+
+    private volatile long mNextKey = TasksPage.FIRST_PAGE_KEY;
+
+    private volatile boolean mHasMore = true;
+
+    // Rows the list holds: loaded rows, less those removed and plus those appended since.
+    @NonNull
+    private final AtomicInteger mLoadedCount = new AtomicInteger();
+
+    public TasksPager(@NonNull TasksDataSource tasksDataSource,
+                      @NonNull TasksFilterType filterType,
+                      int pageSize,
+                      int prefetchDistance) {
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        checkArgument(prefetchDistance >= 0, "prefetchDistance cannot be negative");
+        mTasksDataSource = checkNotNull(tasksDataSource, "tasksDataSource cannot be null");
+        mFilterType = checkNotNull(filterType, "filterType cannot be null");
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+    }
+
+    @NonNull
+    public Flowable<TasksPage> pages() {
+        return mPageRequests
+                .onBackpressureLatest()
+                .startWith(TasksPage.FIRST_PAGE_KEY)
+                .concatMap(afterKey -> mTasksDataSource.getTasksPage(mFilterType, afterKey, mPageSize).take(1))
+                .doOnNext(page -> {
+                    mNextKey = page.getNextKey();
+                    mHasMore = page.hasMore();
+                    mLoadedCount.addAndGet(page.getTasks().size());
+                    mLoading.set(false);
+                });
+    }
+
+    /**
+     * Whether the last page has been loaded and no page request is in flight.
+     */
+    public boolean isFullyLoaded() {
+        return !mHasMore && !mLoading.get();
+    }
+
+    public void onItemBound(int position) {
+        if(mHasMore && position >= mLoadedCount.get() - mPrefetchDistance && mLoading.compareAndSet(false, true)) {
+            mPageRequests.onNext(mNextKey);
+        }
+    }
+
+    /**
+     * Tells the pager the list dropped rows it had loaded, so bound positions keep being measured
+     * against the rows the list actually holds.
+     */
+    public void onItemsRemoved(int count) {
+        mLoadedCount.addAndGet(-count);
+    }
+
+    /**
+     * Tells the pager the list appended rows that did not come from a page.
+     */
+    public void onItemsInserted(int count) {
+        mLoadedCount.addAndGet(count);
+    }
+}
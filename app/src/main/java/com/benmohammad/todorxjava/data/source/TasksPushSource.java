@@ -0,0 +1,28 @@
+package com.benmohammad.todorxjava.data.source;
+
+import com.benmohammad.todorxjava.data.TasksDelta;
+
+import io.reactivex.Flowable;
+
+/**
+ * Remote side of the change stream: the server pushes every change as it happens instead of
+ * waiting to be polled. Versions are the ones of {@link TasksSyncSource}.
+ */
+public interface TasksPushSource {
+
+    /**
+     * Emits the changes made after {@code version}, first the ones already made and then live
+     * ones as they happen, in version order. The stream stays open until cancelled; when the
+     * connection drops it completes or errors, and the caller resumes from the last version it
+     * applied.
+     */
+    Flowable<TasksDelta> observeChanges(long version);
+
+    /**
+     * Whether {@link #observeChanges} really pushes anything. Wrappers answer for the remote they
+     * wrap; when this is false there is no stream to subscribe to.
+     */
+    default boolean supportsPush() {
+        return true;
+    }
+}
@@ -1,28 +1,55 @@
 package com.benmohammad.todorxjava.data.source;
 
-import android.graphics.Path;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
 import com.benmohammad.todorxjava.data.Task;
-import com.benmohammad.todorxjava.data.source.remote.TasksRemoteDataSource;
+import com.benmohammad.todorxjava.data.TaskChangeSet;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-
-import javax.annotation.Nonnegative;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class TasksRepository implements TasksDataSource {
 
+    private static final long DEFAULT_REVALIDATION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final long NEVER_REVALIDATED = Long.MIN_VALUE;
+
+    private static final long PUSHED_CHANGES_BATCH_MILLIS = 100;
+
+    private static final int PUSHED_CHANGES_BATCH_SIZE = 1000;
+
+    private static final long INITIAL_RECONNECT_MILLIS = 1000;
+
+    private static final long MAX_RECONNECT_MILLIS = 5 * 60 * 1000;
+
     @Nullable
     private static TasksRepository INSTANCE = null;
 
@@ -33,22 +60,82 @@ public class TasksRepository implements TasksDataSource {
     private final TasksDataSource mTasksLocalDataSource;
 
     @VisibleForTesting
-    @Nullable
-    Map<String, Task> mCachedTasks;
+    @NonNull
+    final TasksCache mCachedTasks;
 
     @VisibleForTesting
-    boolean mCacheIsDirty = false;
+    volatile boolean mCacheIsDirty = false;
+
+    @NonNull
+    private final BehaviorProcessor<TaskCounts> mTaskCounts = BehaviorProcessor.create();
+
+    @NonNull
+    private final SingleFlight mSingleFlight = new SingleFlight();
+
+    @NonNull
+    private final FlowableProcessor<TaskChangeSet> mTaskChanges = PublishProcessor.<TaskChangeSet>create().toSerialized();
+
+    @NonNull
+    private final ConcurrentMap<TasksFilterType, Long> mRevalidationTtls = new ConcurrentHashMap<>();
+
+    private volatile boolean mStaleWhileRevalidate = false;
+
+    private volatile long mLastRevalidatedAt = NEVER_REVALIDATED;
+
+    @NonNull
+    private final WriteBehindQueue mWriteQueue;
+
+    private volatile boolean mWriteBehind = false;
+
+    @NonNull
+    private final Object mSyncLock = new Object();
+
+    private volatile long mSyncedVersion = TasksSyncSource.INITIAL_VERSION;
+
+    @Nullable
+    private volatile String mTasksValidator;
+
+    @NonNull
+    private final AtomicLong mNotModifiedCount = new AtomicLong();
+
+    @Nullable
+    private Disposable mChangeStream;
+
+    @NonNull
+    private final Scheduler mIoScheduler;
+
+    @Nullable
+    private volatile Runnable mMutationThreadCheck;
 
     private TasksRepository(@NonNull TasksDataSource tasksRemoteDataSource,
-                            @NonNull TasksDataSource tasksLocalDataSource) {
+                            @NonNull TasksDataSource tasksLocalDataSource,
+                            @NonNull CachePolicy cachePolicy,
+                            @NonNull Scheduler ioScheduler) {
         mTasksLocalDataSource = tasksLocalDataSource;
         mTasksRemoteDataSource = tasksRemoteDataSource;
+        mCachedTasks = new TasksCache(cachePolicy);
+        mIoScheduler = ioScheduler;
+        mWriteQueue = new WriteBehindQueue(Arrays.asList(tasksLocalDataSource, tasksRemoteDataSource), ioScheduler);
     }
 
     public static TasksRepository getInstance(@NonNull TasksDataSource tasksRemoteDataSource,
                                               @NonNull TasksDataSource tasksLocalDataSource) {
+        return getInstance(tasksRemoteDataSource, tasksLocalDataSource, CachePolicy.unbounded());
+    }
+
+    public static TasksRepository getInstance(@NonNull TasksDataSource tasksRemoteDataSource,
+                                              @NonNull TasksDataSource tasksLocalDataSource,
+                                              @NonNull CachePolicy cachePolicy) {
+        return getInstance(tasksRemoteDataSource, tasksLocalDataSource, cachePolicy, Schedulers.io());
+    }
+
+    public static TasksRepository getInstance(@NonNull TasksDataSource tasksRemoteDataSource,
+                                              @NonNull TasksDataSource tasksLocalDataSource,
+                                              @NonNull CachePolicy cachePolicy,
+                                              @NonNull Scheduler ioScheduler) {
         if(INSTANCE == null) {
-            INSTANCE = new TasksRepository(tasksRemoteDataSource, tasksLocalDataSource);
+            INSTANCE = new TasksRepository(tasksRemoteDataSource, tasksLocalDataSource, checkNotNull(cachePolicy),
+                    checkNotNull(ioScheduler));
         }
 
         return INSTANCE;
@@ -56,46 +143,330 @@ public class TasksRepository implements TasksDataSource {
 
 
     public static void destroyInstance() {
+        if(INSTANCE != null) {
+            INSTANCE.disconnectChangeStream();
+        }
         INSTANCE = null;
     }
 
+    /**
+     * In stale-while-revalidate mode loads answer from the cache or the local database straight away
+     * and revalidate against the remote in the background, instead of waiting for the remote.
+     */
+    public void setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+        mStaleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    /**
+     * In write-behind mode mutations only update the cache and are queued; a background flusher
+     * coalesces them per task and writes them to the local and remote sources. Reads flush the
+     * queue first, so they always see earlier writes. Turning the mode off flushes the queue.
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        mWriteBehind = writeBehind;
+        if(!writeBehind) {
+            mWriteQueue.flush();
+        }
+    }
+
+    /**
+     * Runs at the start of every blocking mutation, to fail fast on a caller that should have used
+     * the async variant. Injection installs a main thread check in debug builds; {@code null}
+     * removes the check.
+     */
+    public void setMutationThreadCheck(@Nullable Runnable check) {
+        mMutationThreadCheck = check;
+    }
+
+    public void setRevalidationTtl(@NonNull TasksFilterType filterType, long ttl, @NonNull TimeUnit unit) {
+        checkNotNull(filterType);
+        mRevalidationTtls.put(filterType, checkNotNull(unit).toMillis(ttl));
+    }
+
     @Override
     public Flowable<List<Task>> getTasks() {
-        if(mCachedTasks != null && !mCacheIsDirty) {
-            return Flowable.fromIterable(mCachedTasks.values()).toList().toFlowable();
-        } else if(mCachedTasks == null) {
-            mCachedTasks = new LinkedHashMap<>();
+        if(mStaleWhileRevalidate) {
+            return getTasksStaleWhileRevalidate(TasksFilterType.ALL_TASKS);
+        }
+        if(mCachedTasks.isAvailable() && !mCacheIsDirty) {
+            return Flowable.just(mCachedTasks.getTasks());
         }
 
-        Flowable<List<Task>> remoteTasks = getAndSaveRemoteTasks();
+        Flowable<List<Task>> remoteTasks = syncRemoteTasks().andThen(getCurrentTasks(TasksFilterType.ALL_TASKS));
         if(mCacheIsDirty) {
             return remoteTasks;
         } else {
-            Flowable<List<Task>> localTasks = getAndCacheLocalTasks();
-            return Flowable.concat(localTasks, remoteTasks)
+            // switchIfEmpty rather than concat: concat subscribes to the remote as soon as the local
+            // read completes, even after firstOrError has cancelled it.
+            Flowable<List<Task>> localTasks = getLocalTasks(TasksFilterType.ALL_TASKS);
+            return mSingleFlight.load("tasks", localTasks
                     .filter(tasks -> !tasks.isEmpty())
+                    .switchIfEmpty(remoteTasks)
                     .firstOrError()
-                    .toFlowable();
+                    .toFlowable());
         }
     }
 
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        checkNotNull(filterType);
+        if(filterType == TasksFilterType.ALL_TASKS) {
+            return getTasks();
+        }
+        if(mStaleWhileRevalidate) {
+            return getTasksStaleWhileRevalidate(filterType);
+        }
+        if(mCachedTasks.isAvailable() && !mCacheIsDirty) {
+            return Flowable.just(mCachedTasks.getTasks(filterType));
+        }
+
+        if(mCacheIsDirty) {
+            return syncRemoteTasks().andThen(getCurrentTasks(filterType));
+        } else {
+            Flowable<List<Task>> allTasks = getTasks().map(tasks -> filterTasks(tasks, filterType));
+            Flowable<List<Task>> localTasks = getLocalTasks(filterType);
+            return mSingleFlight.load("tasks:" + filterType, localTasks
+                    .filter(tasks -> !tasks.isEmpty())
+                    .switchIfEmpty(allTasks)
+                    .firstOrError()
+                    .toFlowable());
+        }
+    }
+
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        checkNotNull(filterType);
+        Flowable<TasksPage> localPage = afterPendingWrites(mTasksLocalDataSource.getTasksPage(filterType, afterKey, pageSize));
+        Flowable<TasksPage> remoteThenLocalPage = syncRemoteTasks().andThen(localPage);
+        if(mStaleWhileRevalidate) {
+            if(afterKey != TasksPage.FIRST_PAGE_KEY || !needsRevalidation(filterType)) {
+                return localPage;
+            }
+            // Revalidation starts with the first page rather than on completion: pagers take one
+            // page and cancel. With nothing stored yet there is nothing stale to show, so wait.
+            return localPage.concatMap(page -> {
+                if(page.isEmpty() && filterType == TasksFilterType.ALL_TASKS) {
+                    return remoteThenLocalPage;
+                }
+                revalidateInBackground();
+                return Flowable.just(page);
+            });
+        }
+        if(mCacheIsDirty) {
+            return remoteThenLocalPage;
+        } else if(afterKey != TasksPage.FIRST_PAGE_KEY || filterType != TasksFilterType.ALL_TASKS) {
+            return localPage;
+        }
+        return localPage.concatMap(page -> page.isEmpty() ? remoteThenLocalPage : Flowable.just(page));
+    }
+
+    private Flowable<List<Task>> getTasksStaleWhileRevalidate(@NonNull TasksFilterType filterType) {
+        Flowable<List<Task>> staleTasks = getCurrentTasks(filterType);
+        if(!needsRevalidation(filterType)) {
+            return staleTasks;
+        }
+
+        Flowable<List<Task>> revalidatedTasks = syncRemoteTasks()
+                .andThen(getCurrentTasks(filterType))
+                .onErrorResumeNext(Flowable.empty());
+        return Flowable.concat(staleTasks, revalidatedTasks);
+    }
+
+    private boolean needsRevalidation(@NonNull TasksFilterType filterType) {
+        long lastRevalidatedAt = mLastRevalidatedAt;
+        if(mCacheIsDirty || lastRevalidatedAt == NEVER_REVALIDATED) {
+            return true;
+        }
+        Long ttl = mRevalidationTtls.get(filterType);
+        return now() - lastRevalidatedAt >= (ttl != null ? ttl : DEFAULT_REVALIDATION_TTL_MILLIS);
+    }
+
+    private void revalidateInBackground() {
+        syncRemoteTasks().subscribe(() -> { }, throwable -> { });
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @NonNull
+    private static List<Task> filterTasks(@NonNull List<Task> tasks, @NonNull TasksFilterType filterType) {
+        List<Task> filteredTasks = new ArrayList<>();
+        for(Task task : tasks) {
+            if(filterType.accept(task)) {
+                filteredTasks.add(task);
+            }
+        }
+        return filteredTasks;
+    }
+
+    // The list as it is now: from the cache when it holds every task, otherwise from the local
+    // source.
+    private Flowable<List<Task>> getCurrentTasks(@NonNull TasksFilterType filterType) {
+        return Flowable.defer(() -> mCachedTasks.isAvailable()
+                ? Flowable.just(mCachedTasks.getTasks(filterType))
+                : getLocalTasks(filterType));
+    }
+
+    // Fills the cache from what it reads until a bounded cache has evicted: after that every
+    // refill would evict again, so the tasks are read without being cached.
+    private Flowable<List<Task>> getLocalTasks(@NonNull TasksFilterType filterType) {
+        return Flowable.defer(() -> {
+            Flowable<List<Task>> localTasks = afterPendingWrites(mTasksLocalDataSource.getTasks(filterType)).take(1);
+            if(mCachedTasks.isEvicted()) {
+                return localTasks;
+            } else if(filterType == TasksFilterType.ALL_TASKS) {
+                return getAndCacheLocalTasks();
+            }
+            return localTasks.doOnNext(mCachedTasks::putAll);
+        });
+    }
+
     private Flowable<List<Task>> getAndCacheLocalTasks() {
-        return mTasksLocalDataSource.getTasks()
-                .flatMap(tasks -> Flowable.fromIterable(tasks)
-                        .doOnNext(task -> mCachedTasks.put(task.getId(), task))
-                        .toList()
-                        .toFlowable());
+        return afterPendingWrites(mTasksLocalDataSource.getTasks())
+                .take(1)
+                .doOnNext(tasks -> {
+                    mCachedTasks.reload(tasks);
+                    publishChanges(TaskChangeSet.EMPTY);
+                });
+    }
+
+    // Brings the local source and the cache up to date with the remote, sharing one sync between
+    // concurrent callers. It emits nothing: a delta or a not modified answer costs only what
+    // changed, and callers that want a list read it afterwards.
+    @NonNull
+    private Completable syncRemoteTasks() {
+        return mSingleFlight.load("tasks:remote", fetchRemoteTasks().toFlowable()).ignoreElements();
+    }
+
+    @NonNull
+    private Completable fetchRemoteTasks() {
+        if(mTasksRemoteDataSource instanceof TasksSyncSource
+                && ((TasksSyncSource) mTasksRemoteDataSource).supportsDeltaSync()) {
+            return fetchRemoteChanges((TasksSyncSource) mTasksRemoteDataSource);
+        }
+        if(mTasksRemoteDataSource instanceof ConditionalTasksSource
+                && ((ConditionalTasksSource) mTasksRemoteDataSource).supportsConditionalRequests()) {
+            return fetchRemoteTasksIfModified((ConditionalTasksSource) mTasksRemoteDataSource);
+        }
+        return afterPendingWrites(mTasksRemoteDataSource.getTasks())
+                .doOnNext(this::saveRemoteTasks)
+                .ignoreElements()
+                .doOnComplete(this::onRemoteSynced);
+    }
+
+    // A not modified answer has no body, so there is nothing to parse and nothing to write.
+    @NonNull
+    private Completable fetchRemoteTasksIfModified(@NonNull ConditionalTasksSource source) {
+        return afterPendingWrites(Flowable.defer(() -> source.getTasksIfModified(mTasksValidator)))
+                .doOnNext(response -> {
+                    if(response.isNotModified()) {
+                        mNotModifiedCount.incrementAndGet();
+                    } else {
+                        saveRemoteTasks(response.getTasks());
+                        mTasksValidator = response.getValidator();
+                    }
+                })
+                .ignoreElements()
+                .doOnComplete(this::onRemoteSynced);
+    }
+
+    private void saveRemoteTasks(@NonNull List<Task> tasks) {
+        mTasksLocalDataSource.saveTasks(tasks);
+        publishChanges(mCachedTasks.reload(tasks));
+    }
+
+    private void onRemoteSynced() {
+        mCacheIsDirty = false;
+        mLastRevalidatedAt = now();
+    }
+
+    // Pulls only what changed since the last sync, so an unchanged task is never rewritten.
+    @NonNull
+    private Completable fetchRemoteChanges(@NonNull TasksSyncSource syncSource) {
+        return afterPendingWrites(Flowable.defer(() -> syncSource.getChangesSince(mSyncedVersion)))
+                .doOnNext(this::applyRemoteChanges)
+                .ignoreElements()
+                .doOnComplete(this::onRemoteSynced);
+    }
+
+    private void applyRemoteChanges(@NonNull TasksDelta delta) {
+        synchronized(mSyncLock) {
+            if(delta.isReset()) {
+                mTasksLocalDataSource.replaceTasks(delta.getChangedTasks());
+                mCachedTasks.reload(delta.getChangedTasks());
+                publishChanges(TaskChangeSet.INVALIDATED);
+            } else if(delta.getVersion() > mSyncedVersion && !delta.isEmpty()) {
+                if(!delta.getChangedTasks().isEmpty()) {
+                    mTasksLocalDataSource.saveTasks(delta.getChangedTasks());
+                }
+                if(!delta.getDeletedTaskIds().isEmpty()) {
+                    mTasksLocalDataSource.deleteTasks(delta.getDeletedTaskIds());
+                }
+                publishChanges(mCachedTasks.apply(delta.getChangedTasks(), delta.getDeletedTaskIds()));
+            }
+            mSyncedVersion = Math.max(mSyncedVersion, delta.getVersion());
+        }
+    }
+
+    /**
+     * Keeps the local data source and the cache up to date with the changes the remote pushes, if
+     * it has a change stream. Changes are applied in batches; a dropped stream is reopened with
+     * exponential backoff and resumes after the last applied version.
+     */
+    public synchronized void connectChangeStream() {
+        if(mChangeStream != null || !(mTasksRemoteDataSource instanceof TasksPushSource)
+                || !((TasksPushSource) mTasksRemoteDataSource).supportsPush()) {
+            return;
+        }
+        TasksPushSource pushSource = (TasksPushSource) mTasksRemoteDataSource;
+        AtomicLong reconnectMillis = new AtomicLong(INITIAL_RECONNECT_MILLIS);
+        // A batch closes PUSHED_CHANGES_BATCH_MILLIS after its first change, so an idle stream
+        // schedules nothing and never produces an empty batch.
+        mChangeStream = Flowable.defer(() -> pushSource.observeChanges(mSyncedVersion))
+                .publish(changes -> changes.buffer(changes
+                        .throttleFirst(PUSHED_CHANGES_BATCH_MILLIS, TimeUnit.MILLISECONDS, mIoScheduler)
+                        .delay(PUSHED_CHANGES_BATCH_MILLIS, TimeUnit.MILLISECONDS, mIoScheduler)))
+                .filter(changes -> !changes.isEmpty())
+                .concatMapIterable(changes -> Lists.partition(changes, PUSHED_CHANGES_BATCH_SIZE))
+                .observeOn(mIoScheduler)
+                .doOnNext(changes -> {
+                    applyPushedChanges(changes);
+                    reconnectMillis.set(INITIAL_RECONNECT_MILLIS);
+                })
+                .repeatWhen(completions -> completions.concatMap(done -> reconnectDelay(reconnectMillis)))
+                .retryWhen(errors -> errors.concatMap(error -> reconnectDelay(reconnectMillis)))
+                .subscribe(changes -> { }, throwable -> { });
     }
 
-    private Flowable<List<Task>> getAndSaveRemoteTasks() {
-        return mTasksRemoteDataSource.getTasks()
-                .flatMap(tasks -> Flowable.fromIterable(tasks)
-                .doOnNext(task -> {
-                    mTasksLocalDataSource.saveTask(task);
-                    mCachedTasks.put(task.getId(), task);
+    public synchronized void disconnectChangeStream() {
+        if(mChangeStream != null) {
+            mChangeStream.dispose();
+            mChangeStream = null;
+        }
+    }
 
-                }).toList().toFlowable())
-                        .doOnComplete(() -> mCacheIsDirty = false);
+    @NonNull
+    private static Flowable<Long> reconnectDelay(@NonNull AtomicLong reconnectMillis) {
+        long delay = reconnectMillis.get();
+        reconnectMillis.set(Math.min(delay * 2, MAX_RECONNECT_MILLIS));
+        return Flowable.timer(delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Merges a batch of pushed changes into one delta so it costs one write, leaving out those an
+    // overlapping pull has already applied.
+    private void applyPushedChanges(@NonNull List<TasksDelta> changes) {
+        synchronized(mSyncLock) {
+            List<TasksDelta> unseen = new ArrayList<>();
+            for(TasksDelta change : changes) {
+                if(change.isReset() || change.getVersion() > mSyncedVersion) {
+                    unseen.add(change);
+                }
+            }
+            if(!unseen.isEmpty()) {
+                applyRemoteChanges(TasksDelta.merge(unseen));
+            }
+        }
     }
 
     @Override
@@ -108,101 +479,240 @@ public class TasksRepository implements TasksDataSource {
             return Flowable.just(Optional.of(cachedTask));
         }
 
-        if(mCachedTasks == null) {
-            mCachedTasks = new LinkedHashMap<>();
-        }
-
         Flowable<Optional<Task>> localTask = getTaskWithIdFromLocalRepository(taskId);
-        Flowable<Optional<Task>> remoteTask = mTasksRemoteDataSource
-                .getTask(taskId)
+        Flowable<Optional<Task>> remoteTask = afterPendingWrites(mTasksRemoteDataSource.getTask(taskId))
                 .doOnNext(taskOptional -> {
                     if(taskOptional.isPresent()) {
                         Task task = taskOptional.get();
                         mTasksLocalDataSource.saveTask(task);
-                        mCachedTasks.put(task.getId(), task);
+                        mCachedTasks.put(task);
                     }
                 });
-        return Flowable.concat(localTask, remoteTask)
+        return mSingleFlight.load("task:" + taskId, localTask
+                .switchIfEmpty(remoteTask)
                 .firstElement()
-                .toFlowable();
+                .toFlowable());
     }
 
 
 
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        if(mCachedTasks.isAvailable() && !mCacheIsDirty) {
+            return Flowable.just(mCachedTasks.getTaskCounts());
+        }
+
+        Flowable<TaskCounts> localCounts = afterPendingWrites(mTasksLocalDataSource.getTaskCounts()).take(1);
+        Flowable<TaskCounts> remoteThenLocalCounts = syncRemoteTasks().andThen(localCounts);
+        if(mCacheIsDirty) {
+            return remoteThenLocalCounts;
+        }
+        return localCounts.concatMap(counts -> counts.getTotalCount() == 0 ? remoteThenLocalCounts : Flowable.just(counts));
+    }
+
+    @NonNull
+    public Flowable<TaskCounts> observeTaskCounts() {
+        return mTaskCounts
+                .doOnSubscribe(subscription -> {
+                    if(!mTaskCounts.hasValue()) {
+                        loadTaskCounts(getTaskCounts());
+                    }
+                })
+                .distinctUntilChanged()
+                .onBackpressureLatest();
+    }
+
+    @NonNull
+    public Flowable<TaskChangeSet> getTaskChanges() {
+        return mTaskChanges.onBackpressureBuffer();
+    }
+
+    private void publishChanges(@NonNull TaskChangeSet changes) {
+        if(!changes.isEmpty()) {
+            mTaskChanges.onNext(changes);
+        }
+        if(mCachedTasks.isAvailable()) {
+            synchronized(mTaskCounts) {
+                mTaskCounts.onNext(mCachedTasks.getTaskCounts());
+            }
+        } else if(mTaskCounts.hasSubscribers()) {
+            loadTaskCounts(afterPendingWrites(mTasksLocalDataSource.getTaskCounts()));
+        }
+    }
+
+    private void loadTaskCounts(@NonNull Flowable<TaskCounts> counts) {
+        counts.take(1).subscribe(taskCounts -> {
+            synchronized(mTaskCounts) {
+                mTaskCounts.onNext(taskCounts);
+            }
+        }, throwable -> { });
+    }
+
     @Override
     public void saveTask(@NonNull Task task) {
+        checkNotOnMainThread();
         checkNotNull(task);
-        mTasksRemoteDataSource.saveTask(task);
-        mTasksLocalDataSource.saveTask(task);
+        if(mWriteBehind) {
+            mWriteQueue.save(task);
+        } else {
+            mTasksRemoteDataSource.saveTask(task);
+            mTasksLocalDataSource.saveTask(task);
+        }
 
-        if(mCachedTasks == null) {
-            mCachedTasks = new LinkedHashMap<>();
+        publishChanges(mCachedTasks.put(task));
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        checkNotOnMainThread();
+        checkNotNull(tasks);
+        if(mWriteBehind) {
+            for(Task task : tasks) {
+                mWriteQueue.save(task);
+            }
+        } else {
+            mTasksRemoteDataSource.saveTasks(tasks);
+            mTasksLocalDataSource.saveTasks(tasks);
         }
-        mCachedTasks.put(task.getId(), task);
+
+        publishChanges(mCachedTasks.putAll(tasks));
     }
 
     @Override
     public void completeTask(@NonNull Task task) {
+        checkNotOnMainThread();
         checkNotNull(task);
-        mTasksRemoteDataSource.completeTask(task);
-        mTasksLocalDataSource.completeTask(task);
+        if(mWriteBehind) {
+            mWriteQueue.setCompleted(task.getId(), true);
+        } else {
+            mTasksRemoteDataSource.completeTask(task);
+            mTasksLocalDataSource.completeTask(task);
+        }
 
         Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
 
-        if(mCachedTasks == null) {
-            mCachedTasks = new LinkedHashMap<>();
-        }
-        mCachedTasks.put(task.getId(), completedTask);
+        publishChanges(mCachedTasks.put(completedTask));
     }
 
     @Override
     public void completeTask(@NonNull String taskId) {
+        checkNotOnMainThread();
         checkNotNull(taskId);
         Task taskWithId = getTaskWithId(taskId);
         if(taskWithId != null) {
             completeTask(taskWithId);
+        } else {
+            if(mWriteBehind) {
+                mWriteQueue.setCompleted(taskId, true);
+            } else {
+                mTasksRemoteDataSource.completeTask(taskId);
+                mTasksLocalDataSource.completeTask(taskId);
+            }
+            publishChanges(TaskChangeSet.updated(Collections.singleton(taskId)));
+        }
+    }
+
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        checkNotOnMainThread();
+        checkNotNull(taskIds);
+        if(mWriteBehind) {
+            for(String taskId : taskIds) {
+                mWriteQueue.setCompleted(taskId, true);
+            }
+        } else {
+            mTasksRemoteDataSource.completeTasks(taskIds);
+            mTasksLocalDataSource.completeTasks(taskIds);
         }
+
+        List<Task> completedTasks = new ArrayList<>(taskIds.size());
+        List<String> uncachedIds = new ArrayList<>();
+        for(String taskId : taskIds) {
+            Task task = mCachedTasks.get(taskId);
+            if(task != null) {
+                completedTasks.add(new Task(task.getTitle(), task.getDescription(), task.getId(), true));
+            } else {
+                uncachedIds.add(taskId);
+            }
+        }
+        publishChanges(mCachedTasks.putAll(completedTasks));
+        publishChanges(TaskChangeSet.updated(uncachedIds));
     }
 
     @Override
     public void activateTask(@NonNull Task task) {
+        checkNotOnMainThread();
         checkNotNull(task);
-        mTasksRemoteDataSource.activateTask(task);
-        mTasksLocalDataSource.activateTask(task);
+        if(mWriteBehind) {
+            mWriteQueue.setCompleted(task.getId(), false);
+        } else {
+            mTasksRemoteDataSource.activateTask(task);
+            mTasksLocalDataSource.activateTask(task);
+        }
 
         Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
 
-        if(mCachedTasks == null) {
-            mCachedTasks = new LinkedHashMap<>();
-        }
-
-        mCachedTasks.put(task.getId(), activeTask);
+        publishChanges(mCachedTasks.put(activeTask));
     }
 
     @Override
     public void activateTask(@NonNull String taskId) {
+        checkNotOnMainThread();
         checkNotNull(taskId);
         Task taskWithId = getTaskWithId(taskId);
         if(taskWithId != null) {
             activateTask(taskWithId);
+        } else {
+            if(mWriteBehind) {
+                mWriteQueue.setCompleted(taskId, false);
+            } else {
+                mTasksRemoteDataSource.activateTask(taskId);
+                mTasksLocalDataSource.activateTask(taskId);
+            }
+            publishChanges(TaskChangeSet.updated(Collections.singleton(taskId)));
         }
     }
 
     @Override
-    public void clearCompletedTasks() {
-        mTasksRemoteDataSource.clearCompletedTasks();
-        mTasksLocalDataSource.clearCompletedTasks();
-
-        if(mCachedTasks == null) {
-            mCachedTasks = new LinkedHashMap<>();
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        checkNotOnMainThread();
+        checkNotNull(taskIds);
+        if(mWriteBehind) {
+            for(String taskId : taskIds) {
+                mWriteQueue.setCompleted(taskId, false);
+            }
+        } else {
+            mTasksRemoteDataSource.activateTasks(taskIds);
+            mTasksLocalDataSource.activateTasks(taskIds);
         }
-        Iterator<Map.Entry<String, Task>> it = mCachedTasks.entrySet().iterator();
-        while(it.hasNext()) {
-            Map.Entry<String, Task> entry = it.next();
-            if(entry.getValue().isCompleted()) {
-                it.remove();
+
+        List<Task> activeTasks = new ArrayList<>(taskIds.size());
+        List<String> uncachedIds = new ArrayList<>();
+        for(String taskId : taskIds) {
+            Task task = mCachedTasks.get(taskId);
+            if(task != null) {
+                activeTasks.add(new Task(task.getTitle(), task.getDescription(), task.getId()));
+            } else {
+                uncachedIds.add(taskId);
             }
         }
+        publishChanges(mCachedTasks.putAll(activeTasks));
+        publishChanges(TaskChangeSet.updated(uncachedIds));
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        checkNotOnMainThread();
+        if(mWriteBehind) {
+            mWriteQueue.clearCompleted();
+        } else {
+            mTasksRemoteDataSource.clearCompletedTasks();
+            mTasksLocalDataSource.clearCompletedTasks();
+        }
+
+        boolean cacheWasComplete = mCachedTasks.isAvailable();
+        TaskChangeSet changes = mCachedTasks.removeIf(Task::isCompleted);
+        publishChanges(cacheWasComplete ? changes : TaskChangeSet.INVALIDATED);
     }
 
     @Override
@@ -212,41 +722,182 @@ public class TasksRepository implements TasksDataSource {
 
     @Override
     public void deleteAllTasks() {
-        mTasksRemoteDataSource.deleteAllTasks();
-        mTasksLocalDataSource.deleteAllTasks();
-
-        if(mCachedTasks == null) {
-            mCachedTasks = new LinkedHashMap<>();
+        checkNotOnMainThread();
+        if(mWriteBehind) {
+            mWriteQueue.deleteAll();
+        } else {
+            mTasksRemoteDataSource.deleteAllTasks();
+            mTasksLocalDataSource.deleteAllTasks();
         }
 
-        mCachedTasks.clear();
+        boolean cacheWasComplete = mCachedTasks.isAvailable();
+        TaskChangeSet changes = mCachedTasks.clear();
+        publishChanges(cacheWasComplete ? changes : TaskChangeSet.INVALIDATED);
     }
 
     @Override
     public void deleteTask(@NonNull String taskId) {
-        mTasksRemoteDataSource.deleteTask(checkNotNull(taskId));
-        mTasksLocalDataSource.deleteTask(checkNotNull(taskId));
+        checkNotOnMainThread();
+        checkNotNull(taskId);
+        if(mWriteBehind) {
+            mWriteQueue.delete(taskId);
+        } else {
+            mTasksRemoteDataSource.deleteTask(taskId);
+            mTasksLocalDataSource.deleteTask(taskId);
+        }
 
         mCachedTasks.remove(taskId);
+        publishChanges(TaskChangeSet.removed(Collections.singleton(taskId)));
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        checkNotOnMainThread();
+        checkNotNull(taskIds);
+        if(mWriteBehind) {
+            for(String taskId : taskIds) {
+                mWriteQueue.delete(taskId);
+            }
+        } else {
+            mTasksRemoteDataSource.deleteTasks(taskIds);
+            mTasksLocalDataSource.deleteTasks(taskIds);
+        }
+
+        Set<String> deletedIds = new HashSet<>(taskIds);
+        mCachedTasks.removeAll(deletedIds);
+        publishChanges(TaskChangeSet.removed(deletedIds));
+    }
+
+    // The async variants run on the io scheduler themselves, so no caller can block the UI by
+    // forgetting to pick one.
+
+    @NonNull
+    @Override
+    public Completable saveTaskAsync(@NonNull Task task) {
+        return TasksDataSource.super.saveTaskAsync(task).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable saveTasksAsync(@NonNull Collection<Task> tasks) {
+        return TasksDataSource.super.saveTasksAsync(tasks).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTaskAsync(@NonNull Task task) {
+        return TasksDataSource.super.completeTaskAsync(task).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTaskAsync(@NonNull String taskId) {
+        return TasksDataSource.super.completeTaskAsync(taskId).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable completeTasksAsync(@NonNull Collection<String> taskIds) {
+        return TasksDataSource.super.completeTasksAsync(taskIds).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable activateTaskAsync(@NonNull Task task) {
+        return TasksDataSource.super.activateTaskAsync(task).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable activateTaskAsync(@NonNull String taskId) {
+        return TasksDataSource.super.activateTaskAsync(taskId).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable activateTasksAsync(@NonNull Collection<String> taskIds) {
+        return TasksDataSource.super.activateTasksAsync(taskIds).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable clearCompletedTasksAsync() {
+        return TasksDataSource.super.clearCompletedTasksAsync().subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable deleteAllTasksAsync() {
+        return TasksDataSource.super.deleteAllTasksAsync().subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable deleteTaskAsync(@NonNull String taskId) {
+        return TasksDataSource.super.deleteTaskAsync(taskId).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    @Override
+    public Completable deleteTasksAsync(@NonNull Collection<String> taskIds) {
+        return TasksDataSource.super.deleteTasksAsync(taskIds).subscribeOn(mIoScheduler);
+    }
+
+    @NonNull
+    public CacheStats getCacheStats() {
+        return mCachedTasks.getStats();
+    }
+
+    @NonNull
+    public WriteBehindStats getWriteBehindStats() {
+        return mWriteQueue.getStats();
+    }
+
+    public long getUpstreamLoadCount() {
+        return mSingleFlight.getUpstreamLoadCount();
+    }
+
+    public long getCoalescedLoadCount() {
+        return mSingleFlight.getCoalescedLoadCount();
+    }
+
+    /**
+     * Number of remote refreshes answered with "not modified", which skipped the local write.
+     */
+    public long getNotModifiedCount() {
+        return mNotModifiedCount.get();
+    }
+
+    // A failed flush fails the read: storage is missing the queued writes, so it would answer with
+    // state older than what the caller already saw. The writes stay queued for the next flush.
+    @NonNull
+    private <T> Flowable<T> afterPendingWrites(@NonNull Flowable<T> source) {
+        return Flowable.defer(() -> mWriteQueue.isEmpty()
+                ? source
+                : Completable.fromAction(mWriteQueue::flush).andThen(source));
+    }
+
+    // Mutations touch SQLite and the remote; Lint catches direct @WorkerThread calls from UI code,
+    // the installed check catches the ones that slip through at runtime.
+    private void checkNotOnMainThread() {
+        Runnable check = mMutationThreadCheck;
+        if(check != null) {
+            check.run();
+        }
     }
 
     @Nullable
     private Task getTaskWithId(@NonNull String id) {
         checkNotNull(id);
-        if(mCachedTasks == null || mCachedTasks.isEmpty()) {
-            return null;
-        } else {
-            return mCachedTasks.get(id);
-        }
+        return mCachedTasks.get(id);
     }
 
     @NonNull
     Flowable<Optional<Task>> getTaskWithIdFromLocalRepository(@NonNull final String taskId) {
-        return mTasksLocalDataSource
-                .getTask(taskId)
+        return afterPendingWrites(mTasksLocalDataSource.getTask(taskId))
                 .doOnNext(taskOptional -> {
                     if(taskOptional.isPresent()) {
-                        mCachedTasks.put(taskId, taskOptional.get());
+                        mCachedTasks.put(taskOptional.get());
                     }
                 }).firstElement().toFlowable();
     }
@@ -0,0 +1,29 @@
+package com.benmohammad.todorxjava.data.source;
+
+import com.benmohammad.todorxjava.data.TasksDelta;
+
+import io.reactivex.Flowable;
+
+/**
+ * Remote side of the delta sync protocol. Every change on the server is stamped with a new,
+ * strictly increasing version, and deletes are kept as tombstones so that clients learn about
+ * deletes they have not seen yet.
+ */
+public interface TasksSyncSource {
+
+    long INITIAL_VERSION = 0;
+
+    /**
+     * Emits the changes made after {@code version}. Servers that no longer have the history back
+     * to {@code version} answer with a {@link com.benmohammad.todorxjava.data.TasksDelta#reset reset}.
+     */
+    Flowable<TasksDelta> getChangesSince(long version);
+
+    /**
+     * Whether {@link #getChangesSince} really returns deltas. Wrappers answer for the remote they
+     * wrap, and fall back to a reset carrying the full task list when this is false.
+     */
+    default boolean supportsDeltaSync() {
+        return true;
+    }
+}
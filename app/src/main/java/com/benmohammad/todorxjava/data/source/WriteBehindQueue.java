@@ -0,0 +1,365 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Queues task mutations and writes them to the targets in the background. Consecutive writes to
+ * the same task are coalesced, so complete, activate, complete ends up as a single write.
+ * Bulk operations (clear completed, delete all) act as barriers: writes queued before them are
+ * applied first.
+ */
+class WriteBehindQueue {
+
+    static final long FLUSH_DELAY_MILLIS = 500;
+
+    static final int MAX_PENDING_WRITES = 100;
+
+    @NonNull
+    private final List<TasksDataSource> mTargets;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @NonNull
+    private final Object mLock = new Object();
+
+    @NonNull
+    private final Object mFlushLock = new Object();
+
+    @NonNull
+    private final ArrayDeque<Segment> mSegments = new ArrayDeque<>();
+
+    private int mDepth;
+
+    private long mOldestPendingAt;
+
+    private boolean mFlushScheduled;
+
+    private boolean mImmediateFlushScheduled;
+
+    @NonNull
+    private final AtomicLong mEnqueuedCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mWrittenCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mFlushCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mFailedFlushCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mTotalFlushLatencyNanos = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mMaxFlushLatencyNanos = new AtomicLong();
+
+    WriteBehindQueue(@NonNull List<TasksDataSource> targets, @NonNull Scheduler scheduler) {
+        mTargets = ImmutableList.copyOf(checkNotNull(targets, "targets cannot be null"));
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+    }
+
+    boolean isEmpty() {
+        synchronized(mLock) {
+            return mSegments.isEmpty();
+        }
+    }
+
+    void save(@NonNull Task task) {
+        checkNotNull(task);
+        enqueue(task.getId(), PendingWrite.save(task));
+    }
+
+    void setCompleted(@NonNull String taskId, boolean completed) {
+        enqueue(checkNotNull(taskId), PendingWrite.setCompleted(completed));
+    }
+
+    void delete(@NonNull String taskId) {
+        enqueue(checkNotNull(taskId), PendingWrite.delete());
+    }
+
+    void clearCompleted() {
+        synchronized(mLock) {
+            boolean wasEmpty = mSegments.isEmpty();
+            mSegments.addLast(new BulkSegment(BulkSegment.CLEAR_COMPLETED));
+            mDepth++;
+            onEnqueued(wasEmpty);
+        }
+    }
+
+    void deleteAll() {
+        synchronized(mLock) {
+            // Everything still queued is about to be deleted anyway.
+            boolean wasEmpty = mSegments.isEmpty();
+            mSegments.clear();
+            mSegments.addLast(new BulkSegment(BulkSegment.DELETE_ALL));
+            mDepth = 1;
+            onEnqueued(wasEmpty);
+        }
+    }
+
+    /**
+     * Writes everything queued so far on the calling thread. Failed writes are put back at the
+     * head of the queue, retried on the next flush, and the failure is rethrown.
+     */
+    void flush() {
+        synchronized(mFlushLock) {
+            List<Segment> segments;
+            long oldestPendingAt;
+            synchronized(mLock) {
+                mFlushScheduled = false;
+                mImmediateFlushScheduled = false;
+                if(mSegments.isEmpty()) {
+                    return;
+                }
+                segments = new ArrayList<>(mSegments);
+                oldestPendingAt = mOldestPendingAt;
+                mSegments.clear();
+                mDepth = 0;
+            }
+            int applied = 0;
+            try {
+                for(Segment segment : segments) {
+                    segment.apply(mTargets);
+                    mWrittenCount.addAndGet(segment.size());
+                    applied++;
+                }
+            } catch(RuntimeException e) {
+                mFailedFlushCount.incrementAndGet();
+                requeue(segments.subList(applied, segments.size()), oldestPendingAt);
+                throw e;
+            }
+            long latency = System.nanoTime() - oldestPendingAt;
+            mFlushCount.incrementAndGet();
+            mTotalFlushLatencyNanos.addAndGet(latency);
+            long max = mMaxFlushLatencyNanos.get();
+            while(latency > max && !mMaxFlushLatencyNanos.compareAndSet(max, latency)) {
+                max = mMaxFlushLatencyNanos.get();
+            }
+        }
+    }
+
+    @NonNull
+    WriteBehindStats getStats() {
+        int depth;
+        synchronized(mLock) {
+            depth = mDepth;
+        }
+        return new WriteBehindStats(depth, mEnqueuedCount.get(), mWrittenCount.get(), mFlushCount.get(),
+                mFailedFlushCount.get(), mTotalFlushLatencyNanos.get(), mMaxFlushLatencyNanos.get());
+    }
+
+    private void enqueue(@NonNull String taskId, @NonNull PendingWrite write) {
+        synchronized(mLock) {
+            boolean wasEmpty = mSegments.isEmpty();
+            Segment last = mSegments.peekLast();
+            WritesSegment writes;
+            if(last instanceof WritesSegment) {
+                writes = (WritesSegment) last;
+            } else {
+                writes = new WritesSegment();
+                mSegments.addLast(writes);
+            }
+            PendingWrite previous = writes.mWrites.get(taskId);
+            writes.mWrites.put(taskId, previous == null ? write : previous.then(write));
+            if(previous == null) {
+                mDepth++;
+            }
+            onEnqueued(wasEmpty);
+        }
+    }
+
+    // Called with mLock held.
+    private void onEnqueued(boolean wasEmpty) {
+        mEnqueuedCount.incrementAndGet();
+        if(wasEmpty) {
+            mOldestPendingAt = System.nanoTime();
+        }
+        // A requeued batch can take the depth past the limit in one step.
+        if(mDepth >= MAX_PENDING_WRITES) {
+            if(!mImmediateFlushScheduled) {
+                mImmediateFlushScheduled = true;
+                mScheduler.scheduleDirect(this::flushQuietly);
+            }
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    // Called with mLock held.
+    private void scheduleFlush() {
+        if(!mFlushScheduled) {
+            mFlushScheduled = true;
+            mScheduler.scheduleDirect(this::flushQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void requeue(@NonNull List<Segment> failed, long oldestPendingAt) {
+        synchronized(mLock) {
+            for(int i = failed.size() - 1; i >= 0; i--) {
+                mSegments.addFirst(failed.get(i));
+                mDepth += failed.get(i).size();
+            }
+            mOldestPendingAt = oldestPendingAt;
+            scheduleFlush();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch(RuntimeException ignored) {
+            // Counted in the stats and retried on the next flush.
+        }
+    }
+
+    private interface Segment {
+
+        void apply(@NonNull List<TasksDataSource> targets);
+
+        int size();
+    }
+
+    private static final class WritesSegment implements Segment {
+
+        @NonNull
+        final Map<String, PendingWrite> mWrites = new LinkedHashMap<>();
+
+        @Override
+        public void apply(@NonNull List<TasksDataSource> targets) {
+            List<Task> saved = new ArrayList<>();
+            List<String> completed = new ArrayList<>();
+            List<String> activated = new ArrayList<>();
+            List<String> deleted = new ArrayList<>();
+            for(Map.Entry<String, PendingWrite> entry : mWrites.entrySet()) {
+                PendingWrite write = entry.getValue();
+                switch(write.mType) {
+                    case PendingWrite.SAVE:
+                        saved.add(write.mTask);
+                        break;
+                    case PendingWrite.SET_COMPLETED:
+                        (write.mCompleted ? completed : activated).add(entry.getKey());
+                        break;
+                    default:
+                        deleted.add(entry.getKey());
+                        break;
+                }
+            }
+            for(TasksDataSource target : targets) {
+                if(!saved.isEmpty()) {
+                    target.saveTasks(saved);
+                }
+                if(!completed.isEmpty()) {
+                    target.completeTasks(completed);
+                }
+                if(!activated.isEmpty()) {
+                    target.activateTasks(activated);
+                }
+                if(!deleted.isEmpty()) {
+                    target.deleteTasks(deleted);
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return mWrites.size();
+        }
+    }
+
+    private static final class BulkSegment implements Segment {
+
+        static final int CLEAR_COMPLETED = 0;
+
+        static final int DELETE_ALL = 1;
+
+        final int mOperation;
+
+        BulkSegment(int operation) {
+            mOperation = operation;
+        }
+
+        @Override
+        public void apply(@NonNull List<TasksDataSource> targets) {
+            for(TasksDataSource target : targets) {
+                if(mOperation == CLEAR_COMPLETED) {
+                    target.clearCompletedTasks();
+                } else {
+                    target.deleteAllTasks();
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+    }
+
+    private static final class PendingWrite {
+
+        static final int SAVE = 0;
+
+        static final int SET_COMPLETED = 1;
+
+        static final int DELETE = 2;
+
+        final int mType;
+
+        @Nullable
+        final Task mTask;
+
+        final boolean mCompleted;
+
+        private PendingWrite(int type, @Nullable Task task, boolean completed) {
+            mType = type;
+            mTask = task;
+            mCompleted = completed;
+        }
+
+        static PendingWrite save(@NonNull Task task) {
+            return new PendingWrite(SAVE, task, task.isCompleted());
+        }
+
+        static PendingWrite setCompleted(boolean completed) {
+            return new PendingWrite(SET_COMPLETED, null, completed);
+        }
+
+        static PendingWrite delete() {
+            return new PendingWrite(DELETE, null, false);
+        }
+
+        // The single write equivalent to this one followed by next.
+        @NonNull
+        PendingWrite then(@NonNull PendingWrite next) {
+            if(next.mType != SET_COMPLETED) {
+                return next;
+            }
+            switch(mType) {
+                case SAVE:
+                    return save(new Task(mTask.getTitle(), mTask.getDescription(), mTask.getId(), next.mCompleted));
+                case DELETE:
+                    return this;
+                default:
+                    return next;
+            }
+        }
+    }
+}
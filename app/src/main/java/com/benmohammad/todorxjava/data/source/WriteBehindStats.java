@@ -0,0 +1,79 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+public final class WriteBehindStats {
+
+    private final int mQueueDepth;
+
+    private final long mEnqueuedCount;
+
+    private final long mWrittenCount;
+
+    private final long mFlushCount;
+
+    private final long mFailedFlushCount;
+
+    private final long mTotalFlushLatencyNanos;
+
+    private final long mMaxFlushLatencyNanos;
+
+    WriteBehindStats(int queueDepth, long enqueuedCount, long writtenCount, long flushCount,
+                     long failedFlushCount, long totalFlushLatencyNanos, long maxFlushLatencyNanos) {
+        mQueueDepth = queueDepth;
+        mEnqueuedCount = enqueuedCount;
+        mWrittenCount = writtenCount;
+        mFlushCount = flushCount;
+        mFailedFlushCount = failedFlushCount;
+        mTotalFlushLatencyNanos = totalFlushLatencyNanos;
+        mMaxFlushLatencyNanos = maxFlushLatencyNanos;
+    }
+
+    public int getQueueDepth() {
+        return mQueueDepth;
+    }
+
+    public long getEnqueuedCount() {
+        return mEnqueuedCount;
+    }
+
+    public long getWrittenCount() {
+        return mWrittenCount;
+    }
+
+    public long getFlushCount() {
+        return mFlushCount;
+    }
+
+    public long getFailedFlushCount() {
+        return mFailedFlushCount;
+    }
+
+    /**
+     * Mutations accepted per write actually issued; 3.0 means three mutations were folded into each write.
+     */
+    public double getCoalescingRatio() {
+        return mWrittenCount == 0 ? 1.0 : (double) mEnqueuedCount / mWrittenCount;
+    }
+
+    /**
+     * Average time from the oldest queued mutation of a flush until that flush finished writing.
+     */
+    public long getAverageFlushLatencyMillis() {
+        return mFlushCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(mTotalFlushLatencyNanos / mFlushCount);
+    }
+
+    public long getMaxFlushLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(mMaxFlushLatencyNanos);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "WriteBehindStats depth=" + mQueueDepth + " enqueued=" + mEnqueuedCount + " written=" + mWrittenCount
+                + " flushes=" + mFlushCount + " failed=" + mFailedFlushCount
+                + " avgLatencyMs=" + getAverageFlushLatencyMillis() + " maxLatencyMs=" + getMaxFlushLatencyMillis();
+    }
+}
@@ -0,0 +1,63 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import io.reactivex.functions.Function;
+
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE;
+
+/**
+ * Maps cursor rows to tasks, resolving the column indices once per cursor instead of once per row.
+ * The resolved indices are published as one immutable holder, so the mapper can be shared by
+ * queries running on different threads.
+ */
+final class TaskCursorMapper implements Function<Cursor, Task> {
+
+    @Nullable
+    private volatile Columns mColumns;
+
+    @NonNull
+    @Override
+    public Task apply(@NonNull Cursor cursor) {
+        Columns columns = mColumns;
+        if(columns == null || columns.mCursor != cursor) {
+            columns = new Columns(cursor);
+            mColumns = columns;
+        }
+        String itemId = cursor.getString(columns.mEntryId);
+        String title = cursor.getString(columns.mTitle);
+        String description = cursor.getString(columns.mDescription);
+        boolean completed = cursor.getInt(columns.mCompleted) == 1;
+        return new Task(title, description, itemId, completed);
+    }
+
+    private static final class Columns {
+
+        @NonNull
+        final Cursor mCursor;
+
+        final int mEntryId;
+
+        final int mTitle;
+
+        final int mDescription;
+
+        final int mCompleted;
+
+        Columns(@NonNull Cursor cursor) {
+            mCursor = cursor;
+            mEntryId = cursor.getColumnIndexOrThrow(COLUMN_NAME_ENTRY_ID);
+            mTitle = cursor.getColumnIndexOrThrow(COLUMN_NAME_TITLE);
+            mDescription = cursor.getColumnIndexOrThrow(COLUMN_NAME_DESCRIPTION);
+            mCompleted = cursor.getColumnIndexOrThrow(COLUMN_NAME_COMPLETED);
+        }
+    }
+}
@@ -4,32 +4,135 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.OutboxEntry;
+
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_UPDATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.INDEX_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.INDEX_UPDATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.TABLE_NAME;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry._ID;
+
 public class TasksDbHelper extends SQLiteOpenHelper {
 
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 3;
     public static final String DATABASE_NAME = "Tasks.db";
     private static final String TEXT_TYPE = " TEXT";
     private static final String BOOLEAN_TYPE = " INTEGER";
+    private static final String TIMESTAMP_TYPE = " INTEGER NOT NULL";
     private static final String COMMA_SEP = ",";
 
-    private static final String SQL_CREATE_ENTRIES =
-            "CREATE TABLE " + TasksPersistenceContract.TaskEntry.TABLE_NAME + " (" +
-                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE + " PRIMARY KEY," +
-                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
-                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION + TEXT_TYPE + COMMA_SEP +
-                    TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED + BOOLEAN_TYPE + " )";
+    // _id aliases the rowid, so pages and lookups by _id use the table b-tree directly.
+    private static final String SQL_CREATE_ENTRIES_V2 =
+            "CREATE TABLE %s (" +
+                    _ID + " INTEGER PRIMARY KEY" + COMMA_SEP +
+                    COLUMN_NAME_ENTRY_ID + TEXT_TYPE + " NOT NULL UNIQUE" + COMMA_SEP +
+                    COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
+                    COLUMN_NAME_DESCRIPTION + TEXT_TYPE + COMMA_SEP +
+                    COLUMN_NAME_COMPLETED + BOOLEAN_TYPE + COMMA_SEP +
+                    COLUMN_NAME_CREATED_AT + TIMESTAMP_TYPE + COMMA_SEP +
+                    COLUMN_NAME_UPDATED_AT + TIMESTAMP_TYPE + " )";
+
+    private static final String SQL_CREATE_COMPLETED_INDEX =
+            "CREATE INDEX " + INDEX_COMPLETED + " ON " + TABLE_NAME + " (" + COLUMN_NAME_COMPLETED + ")";
+
+    private static final String SQL_CREATE_UPDATED_AT_INDEX =
+            "CREATE INDEX " + INDEX_UPDATED_AT + " ON " + TABLE_NAME + " (" + COLUMN_NAME_UPDATED_AT + ")";
+
+    // AUTOINCREMENT keeps outbox ids strictly increasing, so replay order survives deletes.
+    private static final String SQL_CREATE_OUTBOX =
+            "CREATE TABLE " + OutboxEntry.TABLE_NAME + " (" +
+                    OutboxEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT" + COMMA_SEP +
+                    OutboxEntry.COLUMN_NAME_OPERATION + " INTEGER NOT NULL" + COMMA_SEP +
+                    OutboxEntry.COLUMN_NAME_ENTRY_ID + TEXT_TYPE + COMMA_SEP +
+                    OutboxEntry.COLUMN_NAME_TITLE + TEXT_TYPE + COMMA_SEP +
+                    OutboxEntry.COLUMN_NAME_DESCRIPTION + TEXT_TYPE + COMMA_SEP +
+                    OutboxEntry.COLUMN_NAME_COMPLETED + BOOLEAN_TYPE + COMMA_SEP +
+                    OutboxEntry.COLUMN_NAME_CREATED_AT + TIMESTAMP_TYPE + " )";
+
+    private static final Migration[] MIGRATIONS = {
+            TasksDbHelper::migrateV1ToV2,
+            TasksDbHelper::migrateV2ToV3
+    };
+
+    @Nullable
+    private TasksStatements mStatements;
 
     public TasksDbHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this(context, DATABASE_NAME);
+    }
+
+    @VisibleForTesting
+    TasksDbHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+    }
+
+    void setStatements(@NonNull TasksStatements statements) {
+        mStatements = statements;
+    }
+
+    @Override
+    public synchronized void close() {
+        if(mStatements != null) {
+            mStatements.close();
+        }
+        super.close();
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        db.enableWriteAheadLogging();
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        db.execSQL(SQL_CREATE_ENTRIES);
+        db.execSQL(String.format(SQL_CREATE_ENTRIES_V2, TABLE_NAME));
+        db.execSQL(SQL_CREATE_COMPLETED_INDEX);
+        db.execSQL(SQL_CREATE_UPDATED_AT_INDEX);
+        db.execSQL(SQL_CREATE_OUTBOX);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        for(int version = oldVersion; version < newVersion; version++) {
+            if(version < 1 || version > MIGRATIONS.length) {
+                throw new IllegalStateException("No migration from database version " + version);
+            }
+            MIGRATIONS[version - 1].migrate(db);
+        }
+    }
+
+    // v1 keyed rows by the entryid string and had no timestamps. Rows are copied in rowid order
+    // so existing tasks keep their list position, and stamped with the migration time.
+    private static void migrateV1ToV2(@NonNull SQLiteDatabase db) {
+        String migrationTable = TABLE_NAME + "_v2";
+        long now = System.currentTimeMillis();
+        db.execSQL(String.format(SQL_CREATE_ENTRIES_V2, migrationTable));
+        db.execSQL(String.format("INSERT INTO %1$s (%2$s,%3$s,%4$s,%5$s,%6$s,%7$s) " +
+                        "SELECT %2$s,%3$s,%4$s,%5$s,%8$d,%8$d FROM %9$s WHERE %2$s IS NOT NULL ORDER BY rowid",
+                migrationTable, COLUMN_NAME_ENTRY_ID, COLUMN_NAME_TITLE, COLUMN_NAME_DESCRIPTION,
+                COLUMN_NAME_COMPLETED, COLUMN_NAME_CREATED_AT, COLUMN_NAME_UPDATED_AT, now, TABLE_NAME));
+        db.execSQL("DROP TABLE " + TABLE_NAME);
+        db.execSQL("ALTER TABLE " + migrationTable + " RENAME TO " + TABLE_NAME);
+        db.execSQL(SQL_CREATE_COMPLETED_INDEX);
+        db.execSQL(SQL_CREATE_UPDATED_AT_INDEX);
+    }
+
+    private static void migrateV2ToV3(@NonNull SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_OUTBOX);
+    }
+
+    private interface Migration {
 
+        void migrate(@NonNull SQLiteDatabase db);
     }
 }
@@ -0,0 +1,60 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.squareup.sqlbrite2.BriteDatabase;
+
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs local database writes on the dbWrite scheduler, so writers never contend for the WAL write
+ * lock and readers keep their own pooled connections. Callers block until the write is done. A
+ * write issued from the writer thread itself, for example from inside another write, runs inline:
+ * queueing it behind the write that is waiting for it would deadlock.
+ */
+final class TasksDbWriter {
+
+    @NonNull
+    private final BriteDatabase mDatabase;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @Nullable
+    private volatile Thread mWriterThread;
+
+    TasksDbWriter(@NonNull BriteDatabase database, @NonNull Scheduler scheduler) {
+        mDatabase = checkNotNull(database, "database cannot be null");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+    }
+
+    void write(@NonNull Action action) {
+        if(Thread.currentThread() == mWriterThread) {
+            Completable.fromAction(action).blockingAwait();
+            return;
+        }
+        Completable.fromAction(() -> {
+                    mWriterThread = Thread.currentThread();
+                    action.run();
+                })
+                .subscribeOn(mScheduler)
+                .blockingAwait();
+    }
+
+    void writeInTransaction(@NonNull Action action) {
+        write(() -> {
+            BriteDatabase.Transaction transaction = mDatabase.newTransaction();
+            try {
+                action.run();
+                transaction.markSuccessful();
+            } finally {
+                transaction.end();
+            }
+        });
+    }
+}
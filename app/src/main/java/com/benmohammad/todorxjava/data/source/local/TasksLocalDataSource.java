@@ -1,26 +1,30 @@
 package com.benmohammad.todorxjava.data.source.local;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksPage;
 import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
 import com.benmohammad.todorxjava.util.schedulers.BaseSchedulerProvider;
 import com.google.common.base.Optional;
 import com.squareup.sqlbrite2.BriteDatabase;
 import com.squareup.sqlbrite2.SqlBrite;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
 import io.reactivex.functions.Function;
 
 import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
@@ -28,17 +32,31 @@ import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContr
 import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID;
 import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE;
 import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.TABLE_NAME;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry._ID;
 import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class TasksLocalDataSource implements TasksDataSource {
 
+    private static final int LIST_DESCRIPTION_LENGTH = 80;
+
+    // List rows only need the description as a fallback label for tasks without a title.
+    private static final String LIST_DESCRIPTION = String.format(
+            "CASE WHEN %1$s IS NULL OR %1$s = '' THEN substr(%2$s, 1, %3$d) END AS %2$s",
+            COLUMN_NAME_TITLE, COLUMN_NAME_DESCRIPTION, LIST_DESCRIPTION_LENGTH);
+
     @Nullable
     private static TasksLocalDataSource INSTANCE;
     @NonNull
     private final BriteDatabase mDatabaseHelper;
     @NonNull
-    private Function<Cursor, Task> mTaskMapperFunction;
+    private final TasksStatements mStatements;
+    @NonNull
+    private final TasksDbWriter mWriter;
+    @NonNull
+    private final Function<Cursor, Task> mTaskMapperFunction;
+    @NonNull
+    private final TasksOutbox mOutbox;
 
     private TasksLocalDataSource(@NonNull Context context,
                                  @NonNull BaseSchedulerProvider schedulerProvider) {
@@ -47,16 +65,10 @@ public class TasksLocalDataSource implements TasksDataSource {
         TasksDbHelper dbHelper = new TasksDbHelper(context);
         SqlBrite sqlBrite = new SqlBrite.Builder().build();
         mDatabaseHelper = sqlBrite.wrapDatabaseHelper(dbHelper, schedulerProvider.io());
-        mTaskMapperFunction = this::getTask;
-    }
-
-    @NonNull
-    private Task getTask(@NonNull Cursor c) {
-        String itemId = c.getString(c.getColumnIndexOrThrow(COLUMN_NAME_ENTRY_ID));
-        String title = c.getString(c.getColumnIndexOrThrow(COLUMN_NAME_TITLE));
-        String description = c.getString(c.getColumnIndexOrThrow(COLUMN_NAME_DESCRIPTION));
-        boolean completed = c.getInt(c.getColumnIndexOrThrow(COLUMN_NAME_COMPLETED)) == 1;
-        return new Task(title, description, itemId, completed);
+        mStatements = new TasksStatements(mDatabaseHelper, dbHelper);
+        mWriter = new TasksDbWriter(mDatabaseHelper, schedulerProvider.dbWrite());
+        mTaskMapperFunction = new TaskCursorMapper();
+        mOutbox = new TasksOutbox(mDatabaseHelper, mWriter);
     }
 
     public static TasksLocalDataSource getInstance(@NonNull Context context, @NonNull BaseSchedulerProvider schedulerProvider) {
@@ -70,6 +82,14 @@ public class TasksLocalDataSource implements TasksDataSource {
         INSTANCE = null;
     }
 
+    /**
+     * The outbox of pending remote mutations, stored in the same database as the tasks.
+     */
+    @NonNull
+    public TasksOutbox getOutbox() {
+        return mOutbox;
+    }
+
     @Override
     public Flowable<List<Task>> getTasks() {
         String[] projection = {
@@ -84,6 +104,72 @@ public class TasksLocalDataSource implements TasksDataSource {
                 .toFlowable(BackpressureStrategy.BUFFER);
     }
 
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        checkNotNull(filterType);
+        if(filterType == TasksFilterType.ALL_TASKS) {
+            return getTasks();
+        }
+        String[] projection = {
+                COLUMN_NAME_ENTRY_ID,
+                COLUMN_NAME_TITLE,
+                COLUMN_NAME_DESCRIPTION,
+                COLUMN_NAME_COMPLETED
+        };
+        String sql = String.format("SELECT %s FROM %s WHERE %s = ?", TextUtils.join(",", projection), TABLE_NAME, COLUMN_NAME_COMPLETED);
+        String completed = filterType == TasksFilterType.COMPLETED_TASKS ? "1" : "0";
+        return mDatabaseHelper.createQuery(TABLE_NAME, sql, completed)
+                .mapToList(mTaskMapperFunction)
+                .toFlowable(BackpressureStrategy.BUFFER);
+    }
+
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        checkNotNull(filterType);
+        String[] projection = {
+                _ID,
+                COLUMN_NAME_ENTRY_ID,
+                COLUMN_NAME_TITLE,
+                LIST_DESCRIPTION,
+                COLUMN_NAME_COMPLETED
+        };
+        String[] selectionArgs = {};
+        String filter = "";
+        if(filterType != TasksFilterType.ALL_TASKS) {
+            filter = " AND " + COLUMN_NAME_COMPLETED + " = ?";
+            selectionArgs = new String[]{filterType == TasksFilterType.COMPLETED_TASKS ? "1" : "0"};
+        }
+        String sql = String.format("SELECT %1$s FROM %2$s WHERE %3$s > %4$d%5$s ORDER BY %3$s LIMIT %6$d",
+                TextUtils.join(",", projection), TABLE_NAME, _ID, afterKey, filter, pageSize + 1);
+        return mDatabaseHelper.createQuery(TABLE_NAME, sql, selectionArgs)
+                .take(1)
+                .map(query -> readPage(query.run(), afterKey, pageSize))
+                .toFlowable(BackpressureStrategy.BUFFER);
+    }
+
+    @NonNull
+    private TasksPage readPage(@Nullable Cursor cursor, long afterKey, int pageSize) throws Exception {
+        List<Task> tasks = new ArrayList<>(pageSize);
+        long nextKey = afterKey;
+        boolean hasMore = false;
+        if(cursor != null) {
+            try {
+                int keyIndex = cursor.getColumnIndexOrThrow(_ID);
+                while(cursor.moveToNext()) {
+                    if(tasks.size() == pageSize) {
+                        hasMore = true;
+                        break;
+                    }
+                    nextKey = cursor.getLong(keyIndex);
+                    tasks.add(mTaskMapperFunction.apply(cursor));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return new TasksPage(tasks, afterKey, nextKey, hasMore);
+    }
+
     @Override
     public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
         String[] projection = {
@@ -92,21 +178,54 @@ public class TasksLocalDataSource implements TasksDataSource {
                 COLUMN_NAME_DESCRIPTION,
                 COLUMN_NAME_COMPLETED
         };
-        String sql = String.format("SELECT %s FROM %s WHERE %s LIKE ?", TextUtils.join(",", projection), TasksPersistenceContract.TaskEntry.TABLE_NAME, COLUMN_NAME_ENTRY_ID);
+        String sql = String.format("SELECT %s FROM %s WHERE %s = ?", TextUtils.join(",", projection), TasksPersistenceContract.TaskEntry.TABLE_NAME, COLUMN_NAME_ENTRY_ID);
         return mDatabaseHelper.createQuery(TasksPersistenceContract.TaskEntry.TABLE_NAME, sql, taskId)
                 .mapToOneOrDefault(cursor -> Optional.of(mTaskMapperFunction.apply(cursor)), Optional.<Task>absent())
                 .toFlowable(BackpressureStrategy.BUFFER);
     }
 
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        String sql = String.format("SELECT %1$s, COUNT(*) FROM %2$s GROUP BY %1$s", COLUMN_NAME_COMPLETED, TABLE_NAME);
+        return mDatabaseHelper.createQuery(TABLE_NAME, sql)
+                .map(query -> readTaskCounts(query.run()))
+                .toFlowable(BackpressureStrategy.LATEST);
+    }
+
+    @NonNull
+    private TaskCounts readTaskCounts(@Nullable Cursor cursor) {
+        int active = 0;
+        int completed = 0;
+        if(cursor != null) {
+            try {
+                while(cursor.moveToNext()) {
+                    if(cursor.getInt(0) == 1) {
+                        completed += cursor.getInt(1);
+                    } else {
+                        active += cursor.getInt(1);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return new TaskCounts(active, completed);
+    }
+
     @Override
     public void saveTask(@NonNull Task task) {
         checkNotNull(task);
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME_ENTRY_ID, task.getId());
-        values.put(COLUMN_NAME_TITLE, task.getTitle());
-        values.put(COLUMN_NAME_DESCRIPTION, task.getDescription());
-        values.put(COLUMN_NAME_COMPLETED, task.isCompleted());
-        mDatabaseHelper.insert(TasksPersistenceContract.TaskEntry.TABLE_NAME, values, SQLiteDatabase.CONFLICT_REPLACE);
+        write(() -> mStatements.upsert(task));
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        checkNotNull(tasks);
+        writeInTransaction(() -> {
+            for(Task task : tasks) {
+                mStatements.upsert(task);
+            }
+        });
     }
 
     @Override
@@ -116,11 +235,18 @@ public class TasksLocalDataSource implements TasksDataSource {
 
     @Override
     public void completeTask(@NonNull String taskId) {
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME_COMPLETED, true);
-        String selection = COLUMN_NAME_ENTRY_ID + " LIKE ?";
-        String[] selectionArgs = {taskId};
-        mDatabaseHelper.update(TasksPersistenceContract.TaskEntry.TABLE_NAME, values, selection, selectionArgs);
+        checkNotNull(taskId);
+        write(() -> mStatements.setCompleted(taskId, true));
+    }
+
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        writeInTransaction(() -> {
+            for(String taskId : taskIds) {
+                mStatements.setCompleted(taskId, true);
+            }
+        });
     }
 
     @Override
@@ -130,18 +256,25 @@ public class TasksLocalDataSource implements TasksDataSource {
 
     @Override
     public void activateTask(@NonNull String taskId) {
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME_COMPLETED, false);
-        String selection = COLUMN_NAME_ENTRY_ID + " LIKE ?";
-        String[] selectionArgs = {taskId};
-        mDatabaseHelper.update(TABLE_NAME, values, selection, selectionArgs);
+        checkNotNull(taskId);
+        write(() -> mStatements.setCompleted(taskId, false));
+    }
+
+    @Override
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        writeInTransaction(() -> {
+            for(String taskId : taskIds) {
+                mStatements.setCompleted(taskId, false);
+            }
+        });
     }
 
     @Override
     public void clearCompletedTasks() {
-        String selection = COLUMN_NAME_COMPLETED + " LIKE ?";
+        String selection = COLUMN_NAME_COMPLETED + " = ?";
         String[] selectionArgs = {"1"};
-        mDatabaseHelper.delete(TABLE_NAME, selection, selectionArgs);
+        write(() -> mDatabaseHelper.delete(TABLE_NAME, selection, selectionArgs));
     }
 
     @Override
@@ -151,13 +284,41 @@ public class TasksLocalDataSource implements TasksDataSource {
 
     @Override
     public void deleteAllTasks() {
-        mDatabaseHelper.delete(TABLE_NAME, null);
+        write(() -> mDatabaseHelper.delete(TABLE_NAME, null));
+    }
+
+    @Override
+    public void replaceTasks(@NonNull Collection<Task> tasks) {
+        checkNotNull(tasks);
+        writeInTransaction(() -> {
+            mDatabaseHelper.delete(TABLE_NAME, null);
+            for(Task task : tasks) {
+                mStatements.upsert(task);
+            }
+        });
     }
 
     @Override
     public void deleteTask(@NonNull String taskId) {
-        String selection = COLUMN_NAME_ENTRY_ID + " LIKE ?";
-        String[] selectionArgs = {taskId};
-        mDatabaseHelper.delete(TABLE_NAME, selection, selectionArgs);
+        checkNotNull(taskId);
+        write(() -> mStatements.delete(taskId));
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        writeInTransaction(() -> {
+            for(String taskId : taskIds) {
+                mStatements.delete(taskId);
+            }
+        });
+    }
+
+    private void write(@NonNull Action action) {
+        mWriter.write(action);
+    }
+
+    private void writeInTransaction(@NonNull Action action) {
+        mWriter.writeInTransaction(action);
     }
 }
@@ -0,0 +1,263 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskOperation;
+import com.benmohammad.todorxjava.data.source.TasksBatchSource;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.OutboxEntry;
+import com.squareup.sqlbrite2.BriteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.functions.Action;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Persistent queue of mutations that still have to reach the remote. Entries are replayed oldest
+ * first and deleted as soon as the remote accepted them, so a crash mid-replay re-sends only the
+ * unacknowledged entries instead of losing them. Every queued operation is idempotent (saves carry
+ * the full task, completion carries the target state), and a batch sent in one call ends at a
+ * clear-completed, the only operation whose effect depends on the state it finds. Re-sending an
+ * unacknowledged batch therefore leaves the remote as the first delivery did.
+ */
+public class TasksOutbox {
+
+    private static final int OPERATION_SAVE = 1;
+    private static final int OPERATION_COMPLETE = 2;
+    private static final int OPERATION_ACTIVATE = 3;
+    private static final int OPERATION_DELETE = 4;
+    private static final int OPERATION_CLEAR_COMPLETED = 5;
+    private static final int OPERATION_DELETE_ALL = 6;
+
+    @NonNull
+    private final BriteDatabase mDatabase;
+
+    @NonNull
+    private final TasksDbWriter mWriter;
+
+    TasksOutbox(@NonNull BriteDatabase database, @NonNull TasksDbWriter writer) {
+        mDatabase = checkNotNull(database, "database cannot be null");
+        mWriter = checkNotNull(writer, "writer cannot be null");
+    }
+
+    public void addSaves(@NonNull Collection<Task> tasks) {
+        checkNotNull(tasks);
+        writeInTransaction(() -> {
+            for(Task task : tasks) {
+                ContentValues values = newEntry(OPERATION_SAVE, task.getId());
+                values.put(OutboxEntry.COLUMN_NAME_TITLE, task.getTitle());
+                values.put(OutboxEntry.COLUMN_NAME_DESCRIPTION, task.getDescription());
+                values.put(OutboxEntry.COLUMN_NAME_COMPLETED, task.isCompleted());
+                mDatabase.insert(OutboxEntry.TABLE_NAME, values);
+            }
+        });
+    }
+
+    public void addCompletions(@NonNull Collection<String> taskIds, boolean completed) {
+        addForIds(completed ? OPERATION_COMPLETE : OPERATION_ACTIVATE, taskIds);
+    }
+
+    public void addDeletes(@NonNull Collection<String> taskIds) {
+        addForIds(OPERATION_DELETE, taskIds);
+    }
+
+    public void addClearCompleted() {
+        write(() -> mDatabase.insert(OutboxEntry.TABLE_NAME, newEntry(OPERATION_CLEAR_COMPLETED, null)));
+    }
+
+    public void addDeleteAll() {
+        write(() -> mDatabase.insert(OutboxEntry.TABLE_NAME, newEntry(OPERATION_DELETE_ALL, null)));
+    }
+
+    public void clear() {
+        write(() -> mDatabase.delete(OutboxEntry.TABLE_NAME, null));
+    }
+
+    public int size() {
+        Cursor cursor = mDatabase.query("SELECT COUNT(*) FROM " + OutboxEntry.TABLE_NAME);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Sends the oldest {@code maxBatchSize} entries to {@code remote}, grouping runs of the same
+     * operation into one operation. A remote that {@link TasksBatchSource#supportsBatch() supports
+     * batches} gets the batch in one call, up to and including its first clear-completed; any other
+     * remote gets one call per operation, and each operation's entries are removed as soon as that
+     * call succeeded.
+     *
+     * @return the number of entries replayed, 0 when the outbox is empty
+     */
+    public int replay(@NonNull TasksDataSource remote, int maxBatchSize) {
+        checkNotNull(remote);
+        checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        List<Entry> batch = readEntries(maxBatchSize);
+        if(batch.isEmpty()) {
+            return 0;
+        }
+        List<TaskOperation> operations = new ArrayList<>();
+        List<Long> lastIds = new ArrayList<>();
+        group(batch, operations, lastIds);
+        if(remote instanceof TasksBatchSource && ((TasksBatchSource) remote).supportsBatch()) {
+            // Sent twice, [clear completed, complete 1] would delete 1 the second time round.
+            int end = 0;
+            while(end < operations.size() - 1 && operations.get(end).getType() != TaskOperation.CLEAR_COMPLETED) {
+                end++;
+            }
+            ((TasksBatchSource) remote).applyBatch(operations.subList(0, end + 1));
+            long lastId = lastIds.get(end);
+            removeThrough(lastId);
+            return countThrough(batch, lastId);
+        } else {
+            for(int i = 0; i < operations.size(); i++) {
+                TasksBatchSource.applyEach(remote, Collections.singletonList(operations.get(i)));
+                removeThrough(lastIds.get(i));
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * Every queued entry, oldest first, grouped into operations the way {@link #replay} sends them.
+     */
+    @NonNull
+    public List<TaskOperation> getPendingOperations() {
+        List<TaskOperation> operations = new ArrayList<>();
+        group(readEntries(-1), operations, new ArrayList<>());
+        return operations;
+    }
+
+    private static int countThrough(@NonNull List<Entry> entries, long lastId) {
+        int count = 0;
+        while(count < entries.size() && entries.get(count).mId <= lastId) {
+            count++;
+        }
+        return count;
+    }
+
+    // Groups runs of the same operation into one operation, and records each run's last entry id.
+    private static void group(@NonNull List<Entry> entries, @NonNull List<TaskOperation> operations,
+                              @NonNull List<Long> lastIds) {
+        int start = 0;
+        while(start < entries.size()) {
+            int end = start + 1;
+            while(end < entries.size() && entries.get(end).mOperation == entries.get(start).mOperation) {
+                end++;
+            }
+            operations.add(toOperation(entries.subList(start, end)));
+            lastIds.add(entries.get(end - 1).mId);
+            start = end;
+        }
+    }
+
+    private void removeThrough(long id) {
+        String lastId = String.valueOf(id);
+        write(() -> mDatabase.delete(OutboxEntry.TABLE_NAME, OutboxEntry._ID + " <= ?", lastId));
+    }
+
+    @NonNull
+    private static TaskOperation toOperation(@NonNull List<Entry> run) {
+        List<String> taskIds = new ArrayList<>(run.size());
+        List<Task> tasks = new ArrayList<>(run.size());
+        for(Entry entry : run) {
+            taskIds.add(entry.mTaskId);
+            tasks.add(entry.mTask);
+        }
+        switch(run.get(0).mOperation) {
+            case OPERATION_SAVE:
+                return TaskOperation.save(tasks);
+            case OPERATION_COMPLETE:
+                return TaskOperation.complete(taskIds);
+            case OPERATION_ACTIVATE:
+                return TaskOperation.activate(taskIds);
+            case OPERATION_DELETE:
+                return TaskOperation.delete(taskIds);
+            case OPERATION_CLEAR_COMPLETED:
+                return TaskOperation.clearCompleted();
+            case OPERATION_DELETE_ALL:
+                return TaskOperation.deleteAll();
+            default:
+                throw new IllegalStateException("Unknown outbox operation " + run.get(0).mOperation);
+        }
+    }
+
+    // SQLite reads every row for a negative limit.
+    @NonNull
+    private List<Entry> readEntries(int limit) {
+        String sql = String.format("SELECT %s,%s,%s,%s,%s,%s FROM %s ORDER BY %1$s LIMIT %d",
+                OutboxEntry._ID, OutboxEntry.COLUMN_NAME_OPERATION, OutboxEntry.COLUMN_NAME_ENTRY_ID,
+                OutboxEntry.COLUMN_NAME_TITLE, OutboxEntry.COLUMN_NAME_DESCRIPTION, OutboxEntry.COLUMN_NAME_COMPLETED,
+                OutboxEntry.TABLE_NAME, limit);
+        List<Entry> batch = new ArrayList<>();
+        Cursor cursor = mDatabase.query(sql);
+        try {
+            while(cursor.moveToNext()) {
+                String taskId = cursor.getString(2);
+                Task task = taskId == null
+                        ? null
+                        : new Task(cursor.getString(3), cursor.getString(4), taskId, cursor.getInt(5) == 1);
+                batch.add(new Entry(cursor.getLong(0), cursor.getInt(1), taskId, task));
+            }
+        } finally {
+            cursor.close();
+        }
+        return batch;
+    }
+
+    private void addForIds(int operation, @NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        writeInTransaction(() -> {
+            for(String taskId : taskIds) {
+                mDatabase.insert(OutboxEntry.TABLE_NAME, newEntry(operation, taskId));
+            }
+        });
+    }
+
+    @NonNull
+    private static ContentValues newEntry(int operation, String taskId) {
+        ContentValues values = new ContentValues();
+        values.put(OutboxEntry.COLUMN_NAME_OPERATION, operation);
+        values.put(OutboxEntry.COLUMN_NAME_ENTRY_ID, taskId);
+        values.put(OutboxEntry.COLUMN_NAME_CREATED_AT, System.currentTimeMillis());
+        return values;
+    }
+
+    private void write(@NonNull Action action) {
+        mWriter.write(action);
+    }
+
+    private void writeInTransaction(@NonNull Action action) {
+        mWriter.writeInTransaction(action);
+    }
+
+    private static final class Entry {
+
+        final long mId;
+
+        final int mOperation;
+
+        final String mTaskId;
+
+        final Task mTask;
+
+        Entry(long id, int operation, String taskId, Task task) {
+            mId = id;
+            mOperation = operation;
+            mTaskId = taskId;
+            mTask = task;
+        }
+    }
+}
@@ -12,5 +12,19 @@ public class TasksPersistenceContract {
         public static final String COLUMN_NAME_TITLE = "title";
         public static final String COLUMN_NAME_DESCRIPTION = "description";
         public static final String COLUMN_NAME_COMPLETED = "completed";
+        public static final String COLUMN_NAME_CREATED_AT = "created_at";
+        public static final String COLUMN_NAME_UPDATED_AT = "updated_at";
+        public static final String INDEX_COMPLETED = "tasks_completed_idx";
+        public static final String INDEX_UPDATED_AT = "tasks_updated_at_idx";
+    }
+
+    public static abstract class OutboxEntry implements BaseColumns {
+        public static final String TABLE_NAME = "outbox";
+        public static final String COLUMN_NAME_OPERATION = "operation";
+        public static final String COLUMN_NAME_ENTRY_ID = "entryid";
+        public static final String COLUMN_NAME_TITLE = "title";
+        public static final String COLUMN_NAME_DESCRIPTION = "description";
+        public static final String COLUMN_NAME_COMPLETED = "completed";
+        public static final String COLUMN_NAME_CREATED_AT = "created_at";
     }
 }
@@ -0,0 +1,157 @@
+package com.benmohammad.todorxjava.data.source.local;
+
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.squareup.sqlbrite2.BriteDatabase;
+
+import java.io.Closeable;
+
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_COMPLETED;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_CREATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_DESCRIPTION;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_ENTRY_ID;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_TITLE;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.COLUMN_NAME_UPDATED_AT;
+import static com.benmohammad.todorxjava.data.source.local.TasksPersistenceContract.TaskEntry.TABLE_NAME;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Precompiled statements for the hot task mutations. Statements keep their bindings between calls,
+ * so they are confined to the thread that runs local writes, the dbWrite scheduler. They are
+ * compiled on first use and closed with the {@link TasksDbHelper}.
+ */
+final class TasksStatements implements Closeable {
+
+    private static final String SQL_INSERT = String.format(
+            "INSERT OR REPLACE INTO %s (%s,%s,%s,%s,%s,%s) VALUES (?,?,?,?,?,?)",
+            TABLE_NAME, COLUMN_NAME_ENTRY_ID, COLUMN_NAME_TITLE, COLUMN_NAME_DESCRIPTION, COLUMN_NAME_COMPLETED,
+            COLUMN_NAME_CREATED_AT, COLUMN_NAME_UPDATED_AT);
+
+    private static final String SQL_UPDATE = String.format(
+            "UPDATE %s SET %s = ?, %s = ?, %s = ?, %s = ? WHERE %s = ?",
+            TABLE_NAME, COLUMN_NAME_TITLE, COLUMN_NAME_DESCRIPTION, COLUMN_NAME_COMPLETED, COLUMN_NAME_UPDATED_AT,
+            COLUMN_NAME_ENTRY_ID);
+
+    private static final String SQL_SET_COMPLETED = String.format(
+            "UPDATE %s SET %s = ?, %s = ? WHERE %s = ?",
+            TABLE_NAME, COLUMN_NAME_COMPLETED, COLUMN_NAME_UPDATED_AT, COLUMN_NAME_ENTRY_ID);
+
+    private static final String SQL_DELETE = String.format(
+            "DELETE FROM %s WHERE %s = ?", TABLE_NAME, COLUMN_NAME_ENTRY_ID);
+
+    @NonNull
+    private final BriteDatabase mDatabase;
+
+    @Nullable
+    private SQLiteStatement mInsert;
+
+    @Nullable
+    private SQLiteStatement mUpdate;
+
+    @Nullable
+    private SQLiteStatement mSetCompleted;
+
+    @Nullable
+    private SQLiteStatement mDelete;
+
+    TasksStatements(@NonNull BriteDatabase database, @NonNull TasksDbHelper dbHelper) {
+        mDatabase = checkNotNull(database, "database cannot be null");
+        checkNotNull(dbHelper, "dbHelper cannot be null").setStatements(this);
+    }
+
+    // Updates in place so the row keeps its _id and created_at; only unknown ids are inserted.
+    void upsert(@NonNull Task task) {
+        long now = System.currentTimeMillis();
+        if(mUpdate == null) {
+            mUpdate = compile(SQL_UPDATE);
+        }
+        SQLiteStatement update = mUpdate;
+        int updated;
+        try {
+            bindNullableString(update, 1, task.getTitle());
+            bindNullableString(update, 2, task.getDescription());
+            update.bindLong(3, task.isCompleted() ? 1 : 0);
+            update.bindLong(4, now);
+            update.bindString(5, task.getId());
+            updated = mDatabase.executeUpdateDelete(TABLE_NAME, update);
+        } finally {
+            update.clearBindings();
+        }
+        if(updated > 0) {
+            return;
+        }
+        if(mInsert == null) {
+            mInsert = compile(SQL_INSERT);
+        }
+        SQLiteStatement insert = mInsert;
+        try {
+            insert.bindString(1, task.getId());
+            bindNullableString(insert, 2, task.getTitle());
+            bindNullableString(insert, 3, task.getDescription());
+            insert.bindLong(4, task.isCompleted() ? 1 : 0);
+            insert.bindLong(5, now);
+            insert.bindLong(6, now);
+            mDatabase.executeInsert(TABLE_NAME, insert);
+        } finally {
+            insert.clearBindings();
+        }
+    }
+
+    int setCompleted(@NonNull String taskId, boolean completed) {
+        if(mSetCompleted == null) {
+            mSetCompleted = compile(SQL_SET_COMPLETED);
+        }
+        SQLiteStatement statement = mSetCompleted;
+        try {
+            statement.bindLong(1, completed ? 1 : 0);
+            statement.bindLong(2, System.currentTimeMillis());
+            statement.bindString(3, checkNotNull(taskId));
+            return mDatabase.executeUpdateDelete(TABLE_NAME, statement);
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    int delete(@NonNull String taskId) {
+        if(mDelete == null) {
+            mDelete = compile(SQL_DELETE);
+        }
+        SQLiteStatement statement = mDelete;
+        try {
+            statement.bindString(1, checkNotNull(taskId));
+            return mDatabase.executeUpdateDelete(TABLE_NAME, statement);
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    private static void bindNullableString(@NonNull SQLiteStatement statement, int index, @Nullable String value) {
+        if(value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    @NonNull
+    private SQLiteStatement compile(@NonNull String sql) {
+        return mDatabase.getWritableDatabase().compileStatement(sql);
+    }
+
+    @Override
+    public void close() {
+        for(SQLiteStatement statement : new SQLiteStatement[] {mInsert, mUpdate, mSetCompleted, mDelete}) {
+            if(statement != null) {
+                statement.close();
+            }
+        }
+        mInsert = null;
+        mUpdate = null;
+        mSetCompleted = null;
+        mDelete = null;
+    }
+}
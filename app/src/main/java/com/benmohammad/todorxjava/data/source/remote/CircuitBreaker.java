@@ -0,0 +1,102 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Opens after {@code failureThreshold} consecutive failures and rejects calls for
+ * {@code openMillis}. Then a single trial call is let through: success closes the circuit,
+ * failure opens it again, and a cancelled trial frees the slot for the next call.
+ */
+class CircuitBreaker {
+
+    static final int CLOSED = 0;
+
+    static final int OPEN = 1;
+
+    static final int HALF_OPEN = 2;
+
+    static final int REJECTED = 0;
+
+    static final int ADMITTED = 1;
+
+    static final int ADMITTED_TRIAL = 2;
+
+    private final int mFailureThreshold;
+
+    private final long mOpenMillis;
+
+    @NonNull
+    private final Scheduler mClock;
+
+    private int mState = CLOSED;
+
+    private int mConsecutiveFailures;
+
+    private long mOpenedAt;
+
+    private boolean mTrialInFlight;
+
+    CircuitBreaker(int failureThreshold, long openMillis, @NonNull Scheduler clock) {
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+        mClock = checkNotNull(clock);
+    }
+
+    /**
+     * @return {@link #ADMITTED_TRIAL} for the single call let through while half open,
+     * {@link #ADMITTED} while closed and {@link #REJECTED} otherwise
+     */
+    synchronized int admit() {
+        if(mState == OPEN && now() - mOpenedAt >= mOpenMillis) {
+            mState = HALF_OPEN;
+            mTrialInFlight = false;
+        }
+        if(mState == HALF_OPEN) {
+            if(mTrialInFlight) {
+                return REJECTED;
+            }
+            mTrialInFlight = true;
+            return ADMITTED_TRIAL;
+        }
+        return mState == CLOSED ? ADMITTED : REJECTED;
+    }
+
+    // Neither a success nor a failure: the next call becomes the trial.
+    synchronized void onTrialCancelled() {
+        if(mState == HALF_OPEN) {
+            mTrialInFlight = false;
+        }
+    }
+
+    synchronized void onSuccess() {
+        mConsecutiveFailures = 0;
+        mState = CLOSED;
+    }
+
+    /**
+     * @return true if this failure opened the circuit
+     */
+    synchronized boolean onFailure() {
+        mConsecutiveFailures++;
+        if(mState == HALF_OPEN || (mState == CLOSED && mConsecutiveFailures >= mFailureThreshold)) {
+            mState = OPEN;
+            mOpenedAt = now();
+            return true;
+        }
+        return false;
+    }
+
+    synchronized int getState() {
+        return mState;
+    }
+
+    private long now() {
+        return mClock.now(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,13 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+/**
+ * Thrown instead of calling the remote while its circuit breaker is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException() {
+        super("Remote circuit is open");
+    }
+}
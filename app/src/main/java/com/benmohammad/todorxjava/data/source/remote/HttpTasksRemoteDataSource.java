@@ -0,0 +1,603 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import android.util.JsonReader;
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TaskOperation;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.data.codec.TaskCodec;
+import com.benmohammad.todorxjava.data.codec.TaskDecoder;
+import com.benmohammad.todorxjava.data.source.ConditionalTasksSource;
+import com.benmohammad.todorxjava.data.source.TasksBatchSource;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.TasksPushSource;
+import com.benmohammad.todorxjava.data.source.TasksSyncSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteStreams;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Talks to the tasks backend over HTTP/JSON.
+ * <p>
+ * Every response body is read to the end and closed, never disconnected, so the platform keeps
+ * the connection alive and reuses it for the next request. Request and response bodies are
+ * gzipped; since gzip is requested explicitly the response is also decoded here. Task lists are
+ * read in the binary {@link TaskCodec} format when the server offers it; JSON responses are
+ * parsed token by token straight into {@link Task} objects. Each mutation is one POST to the
+ * batch endpoint, so bulk calls such as {@link #saveTasks(Collection)} cost one round trip, and
+ * {@link #applyBatch(List)} sends any mix of mutations in one POST.
+ * <p>
+ * The change stream is a server-sent events response on its own connection. Live events carry
+ * one changed task ({@code change}) or deleted id ({@code delete}) with its version as the event
+ * id; the catch-up on (re)connect comes as one {@code delta} event in the {@code /changes} format.
+ * Resuming sends the last applied version as {@code Last-Event-ID}.
+ */
+public class HttpTasksRemoteDataSource implements TasksDataSource, TasksSyncSource, ConditionalTasksSource,
+        TasksPushSource, TasksBatchSource {
+
+    static final String PATH_TASKS = "/tasks";
+    static final String PATH_COUNTS = "/counts";
+    static final String PATH_CHANGES = "/changes";
+    static final String PATH_BATCH = "/tasks/batch";
+    static final String PATH_CHANGE_STREAM = "/changes/stream";
+
+    static final String EVENT_CHANGE = "change";
+    static final String EVENT_DELETE = "delete";
+    static final String EVENT_DELTA = "delta";
+
+    static final String OP_SAVE = "save";
+    static final String OP_COMPLETE = "complete";
+    static final String OP_ACTIVATE = "activate";
+    static final String OP_DELETE = "delete";
+    static final String OP_CLEAR_COMPLETED = "clearCompleted";
+    static final String OP_DELETE_ALL = "deleteAll";
+
+    private static final int TIMEOUT_MILLIS = 10000;
+    // The server sends a comment at least this often, so a longer silence means a dead connection.
+    private static final int STREAM_TIMEOUT_MILLIS = 60000;
+    private static final String GZIP = "gzip";
+    private static final String UTF_8 = "UTF-8";
+
+    @Nullable
+    private static HttpTasksRemoteDataSource INSTANCE;
+
+    @NonNull
+    private final String mBaseUrl;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @NonNull
+    private final AtomicLong mRequestCount = new AtomicLong();
+
+    HttpTasksRemoteDataSource(@NonNull String baseUrl, @NonNull Scheduler scheduler) {
+        checkNotNull(baseUrl, "baseUrl cannot be null");
+        mBaseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+    }
+
+    public static HttpTasksRemoteDataSource getInstance(@NonNull String baseUrl, @NonNull Scheduler scheduler) {
+        if(INSTANCE == null) {
+            INSTANCE = new HttpTasksRemoteDataSource(baseUrl, scheduler);
+        }
+        return INSTANCE;
+    }
+
+    public static void destroyInstance() {
+        INSTANCE = null;
+    }
+
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks() {
+        return getTasks(TasksFilterType.ALL_TASKS);
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        checkNotNull(filterType);
+        return getRequired(PATH_TASKS + "?filter=" + filterType.name(), HttpTasksRemoteDataSource::readTaskList);
+    }
+
+    @Override
+    public Flowable<TasksResponse> getTasksIfModified(@Nullable String validator) {
+        return get(PATH_TASKS + "?filter=" + TasksFilterType.ALL_TASKS.name(), validator,
+                (connection, body) -> TasksResponse.modified(readTaskList(connection, body),
+                        connection.getHeaderField("ETag")))
+                .map(response -> response.isPresent() ? response.get() : TasksResponse.notModified(validator));
+    }
+
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        checkNotNull(filterType);
+        String path = PATH_TASKS + "?filter=" + filterType.name() + "&after=" + afterKey + "&limit=" + pageSize;
+        return getRequired(path, (connection, body) -> {
+            JsonReader reader = json(body);
+            List<Task> tasks = Collections.emptyList();
+            long nextKey = afterKey;
+            boolean hasMore = false;
+            reader.beginObject();
+            while(reader.hasNext()) {
+                switch(reader.nextName()) {
+                    case "tasks":
+                        tasks = TaskJson.readTasks(reader);
+                        break;
+                    case "nextKey":
+                        nextKey = reader.nextLong();
+                        break;
+                    case "hasMore":
+                        hasMore = reader.nextBoolean();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return new TasksPage(tasks, afterKey, nextKey, hasMore);
+        });
+    }
+
+    @Override
+    public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+        checkNotNull(taskId);
+        return get(PATH_TASKS + "/" + encode(taskId), null, (connection, body) -> TaskJson.readTask(json(body)))
+                .filter(Optional::isPresent);
+    }
+
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        return getRequired(PATH_COUNTS, (connection, body) -> {
+            JsonReader reader = json(body);
+            int active = 0;
+            int completed = 0;
+            reader.beginObject();
+            while(reader.hasNext()) {
+                switch(reader.nextName()) {
+                    case "active":
+                        active = reader.nextInt();
+                        break;
+                    case "completed":
+                        completed = reader.nextInt();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return new TaskCounts(active, completed);
+        });
+    }
+
+    @Override
+    public Flowable<TasksDelta> getChangesSince(long version) {
+        return getRequired(PATH_CHANGES + "?since=" + version, (connection, body) -> readDelta(json(body), version));
+    }
+
+    @Override
+    public Flowable<TasksDelta> observeChanges(long version) {
+        return Flowable.<TasksDelta>create(emitter -> {
+            HttpURLConnection connection = (HttpURLConnection) new URL(mBaseUrl + PATH_CHANGE_STREAM).openConnection();
+            // The stream never ends on its own, so cancelling has to drop the connection.
+            emitter.setCancellable(connection::disconnect);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(STREAM_TIMEOUT_MILLIS);
+            connection.setRequestProperty("Accept", "text/event-stream");
+            connection.setRequestProperty("Last-Event-ID", Long.toString(version));
+            mRequestCount.incrementAndGet();
+            try {
+                int status = connection.getResponseCode();
+                if(status != HttpURLConnection.HTTP_OK) {
+                    throw new HttpRemoteException(status);
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), UTF_8));
+                String event = EVENT_CHANGE;
+                long eventVersion = version;
+                StringBuilder data = new StringBuilder();
+                String line;
+                while(!emitter.isCancelled() && (line = reader.readLine()) != null) {
+                    if(line.isEmpty()) {
+                        if(data.length() > 0) {
+                            emitter.onNext(parseEvent(event, eventVersion, data.toString()));
+                        }
+                        event = EVENT_CHANGE;
+                        data.setLength(0);
+                    } else if(line.startsWith("id:")) {
+                        eventVersion = Long.parseLong(line.substring(3).trim());
+                    } else if(line.startsWith("event:")) {
+                        event = line.substring(6).trim();
+                    } else if(line.startsWith("data:")) {
+                        data.append(line.substring(5).trim());
+                    }
+                }
+                emitter.onComplete();
+            } catch(IOException e) {
+                if(!emitter.isCancelled()) {
+                    emitter.onError(e);
+                }
+            }
+        }, BackpressureStrategy.BUFFER).subscribeOn(mScheduler);
+    }
+
+    @NonNull
+    private static TasksDelta parseEvent(@NonNull String event, long version, @NonNull String data) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(data));
+        if(EVENT_DELTA.equals(event)) {
+            return readDelta(reader, version);
+        }
+        if(EVENT_DELETE.equals(event)) {
+            String taskId = null;
+            reader.beginObject();
+            while(reader.hasNext()) {
+                if(reader.nextName().equals(TaskJson.ID)) {
+                    taskId = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if(taskId == null) {
+                throw new IOException("Delete event without an id");
+            }
+            return TasksDelta.changes(Collections.emptyList(), Collections.singletonList(taskId), version);
+        }
+        return TasksDelta.changes(Collections.singletonList(TaskJson.readTask(reader)), Collections.emptyList(), version);
+    }
+
+    @NonNull
+    private static TasksDelta readDelta(@NonNull JsonReader reader, long version) throws IOException {
+        List<Task> changedTasks = Collections.emptyList();
+        List<String> deletedTaskIds = Collections.emptyList();
+        long newVersion = version;
+        boolean reset = false;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case "version":
+                    newVersion = reader.nextLong();
+                    break;
+                case "reset":
+                    reset = reader.nextBoolean();
+                    break;
+                case "changed":
+                    changedTasks = TaskJson.readTasks(reader);
+                    break;
+                case "deleted":
+                    deletedTaskIds = TaskJson.readIds(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return reset
+                ? TasksDelta.reset(changedTasks, newVersion)
+                : TasksDelta.changes(changedTasks, deletedTaskIds, newVersion);
+    }
+
+    @Override
+    public void saveTask(@NonNull Task task) {
+        saveTasks(Collections.singletonList(checkNotNull(task)));
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        checkNotNull(tasks);
+        if(!tasks.isEmpty()) {
+            postBatch(Collections.singletonList(TaskOperation.save(tasks)));
+        }
+    }
+
+    @Override
+    public void completeTask(@NonNull Task task) {
+        completeTask(checkNotNull(task).getId());
+    }
+
+    @Override
+    public void completeTask(@NonNull String taskId) {
+        completeTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        if(!taskIds.isEmpty()) {
+            postBatch(Collections.singletonList(TaskOperation.complete(taskIds)));
+        }
+    }
+
+    @Override
+    public void activateTask(@NonNull Task task) {
+        activateTask(checkNotNull(task).getId());
+    }
+
+    @Override
+    public void activateTask(@NonNull String taskId) {
+        activateTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        if(!taskIds.isEmpty()) {
+            postBatch(Collections.singletonList(TaskOperation.activate(taskIds)));
+        }
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        postBatch(Collections.singletonList(TaskOperation.clearCompleted()));
+    }
+
+    @Override
+    public void refreshTasks() {
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        postBatch(Collections.singletonList(TaskOperation.deleteAll()));
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        deleteTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        if(!taskIds.isEmpty()) {
+            postBatch(Collections.singletonList(TaskOperation.delete(taskIds)));
+        }
+    }
+
+    @Override
+    public void applyBatch(@NonNull List<TaskOperation> operations) {
+        checkNotNull(operations);
+        if(!operations.isEmpty()) {
+            postBatch(operations);
+        }
+    }
+
+    /**
+     * GET {@code path} on the scheduler. Emits {@link Optional#absent()} for 404 Not Found and
+     * 304 Not Modified.
+     */
+    @NonNull
+    private <T> Flowable<Optional<T>> get(@NonNull String path, @Nullable String ifNoneMatch,
+                                          @NonNull BodyReader<T> bodyReader) {
+        return Flowable.fromCallable(() -> Optional.fromNullable(execute("GET", path, ifNoneMatch, null, bodyReader, true)))
+                .subscribeOn(mScheduler);
+    }
+
+    /**
+     * GET {@code path} on the scheduler for a resource that always exists. Any answer without a
+     * body, 404 Not Found included, fails with an {@link HttpRemoteException}.
+     */
+    @NonNull
+    private <T> Flowable<T> getRequired(@NonNull String path, @NonNull BodyReader<T> bodyReader) {
+        return Flowable.fromCallable(() -> execute("GET", path, null, null, bodyReader, false))
+                .subscribeOn(mScheduler);
+    }
+
+    // Blocks for the round trip, like the other remotes' mutations.
+    private void postBatch(@NonNull List<TaskOperation> operations) {
+        BodyWriter body = writer -> {
+            writer.beginObject();
+            writer.name("operations").beginArray();
+            for(TaskOperation operation : operations) {
+                writer.beginObject();
+                writer.name("op").value(opName(operation.getType()));
+                if(operation.getType() == TaskOperation.SAVE) {
+                    writer.name("tasks");
+                    TaskJson.writeTasks(writer, operation.getTasks());
+                } else if(!operation.getTaskIds().isEmpty()) {
+                    writer.name("ids");
+                    TaskJson.writeIds(writer, operation.getTaskIds());
+                }
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        };
+        try {
+            execute("POST", PATH_BATCH, null, body, (connection, response) -> {
+                json(response).skipValue();
+                return null;
+            }, true);
+        } catch(IOException e) {
+            throw new HttpRemoteException(e);
+        }
+    }
+
+    @NonNull
+    private static String opName(int type) {
+        switch(type) {
+            case TaskOperation.SAVE:
+                return OP_SAVE;
+            case TaskOperation.COMPLETE:
+                return OP_COMPLETE;
+            case TaskOperation.ACTIVATE:
+                return OP_ACTIVATE;
+            case TaskOperation.DELETE:
+                return OP_DELETE;
+            case TaskOperation.CLEAR_COMPLETED:
+                return OP_CLEAR_COMPLETED;
+            case TaskOperation.DELETE_ALL:
+                return OP_DELETE_ALL;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + type);
+        }
+    }
+
+    /**
+     * Performs one request and returns the parsed body. Answers without a body, 204 No Content,
+     * 304 Not Modified and 404 Not Found, return {@code null} when {@code allowNoBody} is set and
+     * throw an {@link HttpRemoteException} otherwise.
+     */
+    @Nullable
+    private <T> T execute(@NonNull String method, @NonNull String path, @Nullable String ifNoneMatch,
+                          @Nullable BodyWriter bodyWriter, @NonNull BodyReader<T> bodyReader,
+                          boolean allowNoBody) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(mBaseUrl + path).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", TaskCodec.MEDIA_TYPE + ", application/json");
+        connection.setRequestProperty("Accept-Encoding", GZIP);
+        if(ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        if(bodyWriter != null) {
+            byte[] body = gzip(bodyWriter);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setRequestProperty("Content-Encoding", GZIP);
+            connection.setFixedLengthStreamingMode(body.length);
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+        }
+        mRequestCount.incrementAndGet();
+
+        int status = connection.getResponseCode();
+        InputStream in = status >= HttpURLConnection.HTTP_BAD_REQUEST
+                ? connection.getErrorStream()
+                : connection.getInputStream();
+        try {
+            if(status >= HttpURLConnection.HTTP_MULT_CHOICE && status != HttpURLConnection.HTTP_NOT_MODIFIED
+                    && status != HttpURLConnection.HTTP_NOT_FOUND) {
+                throw new HttpRemoteException(status);
+            }
+            if(in == null || status != HttpURLConnection.HTTP_OK) {
+                if(!allowNoBody) {
+                    throw new HttpRemoteException(status);
+                }
+                return null;
+            }
+            InputStream body = GZIP.equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(in) : in;
+            T result = bodyReader.read(connection, body);
+            ByteStreams.exhaust(body);
+            return result;
+        } finally {
+            // Reading to the end before closing hands the connection back to the keep-alive pool.
+            if(in != null) {
+                ByteStreams.exhaust(in);
+                in.close();
+            }
+        }
+    }
+
+    // Task lists come in the binary format when the server supports it, JSON otherwise.
+    @NonNull
+    private static List<Task> readTaskList(@NonNull HttpURLConnection connection, @NonNull InputStream body)
+            throws IOException {
+        String contentType = connection.getContentType();
+        if(contentType != null && contentType.startsWith(TaskCodec.MEDIA_TYPE)) {
+            return new TaskDecoder(body).readAll();
+        }
+        return TaskJson.readTasks(json(body));
+    }
+
+    @NonNull
+    private static JsonReader json(@NonNull InputStream body) throws IOException {
+        return new JsonReader(new InputStreamReader(body, UTF_8));
+    }
+
+    @NonNull
+    private static byte[] gzip(@NonNull BodyWriter bodyWriter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(new GZIPOutputStream(bytes), UTF_8));
+        bodyWriter.write(writer);
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    @NonNull
+    private static String encode(@NonNull String value) {
+        try {
+            return URLEncoder.encode(value, UTF_8);
+        } catch(UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private interface BodyWriter {
+
+        void write(@NonNull JsonWriter writer) throws IOException;
+    }
+
+    private interface BodyReader<T> {
+
+        @Nullable
+        T read(@NonNull HttpURLConnection connection, @NonNull InputStream body) throws IOException;
+    }
+
+    /**
+     * A request that failed on the wire or was answered with an unexpected status.
+     */
+    public static class HttpRemoteException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mStatus;
+
+        HttpRemoteException(int status) {
+            super("Unexpected HTTP status " + status);
+            mStatus = status;
+        }
+
+        HttpRemoteException(@NonNull IOException cause) {
+            super(cause);
+            mStatus = -1;
+        }
+
+        /**
+         * The HTTP status, or -1 when no response arrived.
+         */
+        public int getStatus() {
+            return mStatus;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Response latency model for {@link SimulatedRemoteDataSource}. Samples are drawn from the
+ * backend's seeded {@link Random}, so a given seed and call order always produce the same
+ * latencies.
+ */
+public interface LatencyDistribution {
+
+    long sampleMillis(@NonNull Random random);
+
+    @NonNull
+    static LatencyDistribution fixed(long millis) {
+        checkArgument(millis >= 0, "millis cannot be negative");
+        return random -> millis;
+    }
+
+    /**
+     * Normally distributed latency, clamped at zero.
+     */
+    @NonNull
+    static LatencyDistribution normal(long meanMillis, long stdDevMillis) {
+        checkArgument(meanMillis >= 0 && stdDevMillis >= 0, "mean and standard deviation cannot be negative");
+        return random -> Math.max(0, Math.round(meanMillis + random.nextGaussian() * stdDevMillis));
+    }
+
+    /**
+     * Long-tail Pareto latency: never below {@code minMillis}, with a tail that gets heavier as
+     * {@code shape} approaches 1. Samples are capped at {@code maxMillis}.
+     */
+    @NonNull
+    static LatencyDistribution pareto(long minMillis, double shape, long maxMillis) {
+        checkArgument(minMillis > 0, "minMillis must be positive");
+        checkArgument(shape > 0, "shape must be positive");
+        checkArgument(maxMillis >= minMillis, "maxMillis must not be below minMillis");
+        return random -> {
+            double uniform = 1.0 - random.nextDouble();
+            return Math.min(maxMillis, Math.round(minMillis / Math.pow(uniform, 1.0 / shape)));
+        };
+    }
+}
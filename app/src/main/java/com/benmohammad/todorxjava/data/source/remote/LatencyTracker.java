@@ -0,0 +1,40 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the last {@link #WINDOW} successful calls and answers percentile queries
+ * over them.
+ */
+class LatencyTracker {
+
+    static final int WINDOW = 128;
+
+    private final long[] mSamples = new long[WINDOW];
+
+    private int mNext;
+
+    private int mCount;
+
+    synchronized void record(long latencyMillis) {
+        mSamples[mNext] = latencyMillis;
+        mNext = (mNext + 1) % WINDOW;
+        mCount = Math.min(mCount + 1, WINDOW);
+    }
+
+    synchronized int size() {
+        return mCount;
+    }
+
+    /**
+     * @return the percentile of the recorded latencies, or -1 when nothing was recorded
+     */
+    synchronized long percentile(int percentile) {
+        if(mCount == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        return sorted[Math.min(mCount - 1, mCount * percentile / 100)];
+    }
+}
@@ -0,0 +1,259 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.data.source.ConditionalTasksSource;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.TasksPushSource;
+import com.benmohammad.todorxjava.data.source.TasksSyncSource;
+import com.benmohammad.todorxjava.data.source.local.TasksOutbox;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Remote data source that records mutations in the durable {@link TasksOutbox} and returns
+ * without waiting for the network; an {@link OutboxSyncWorker} delivers them later. Reads don't
+ * wait for the delivery: the mutations still queued are replayed over the remote's answer, so it
+ * is never older than what is queued locally.
+ */
+public class OutboxRemoteDataSource implements TasksDataSource, TasksSyncSource, ConditionalTasksSource,
+        TasksPushSource {
+
+    @Nullable
+    private static OutboxRemoteDataSource INSTANCE;
+
+    @NonNull
+    private final TasksDataSource mRemote;
+
+    @NonNull
+    private final TasksOutbox mOutbox;
+
+    @NonNull
+    private final OutboxSyncWorker mSyncWorker;
+
+    OutboxRemoteDataSource(@NonNull TasksDataSource remote, @NonNull TasksOutbox outbox,
+                           @NonNull Scheduler syncScheduler) {
+        mRemote = checkNotNull(remote, "remote cannot be null");
+        mOutbox = checkNotNull(outbox, "outbox cannot be null");
+        mSyncWorker = new OutboxSyncWorker(outbox, remote, checkNotNull(syncScheduler));
+        // Entries left over from a previous process still have to be delivered.
+        mSyncWorker.requestSync();
+    }
+
+    public static OutboxRemoteDataSource getInstance(@NonNull TasksDataSource remote, @NonNull TasksOutbox outbox,
+                                                     @NonNull Scheduler syncScheduler) {
+        if(INSTANCE == null) {
+            INSTANCE = new OutboxRemoteDataSource(remote, outbox, syncScheduler);
+        }
+        return INSTANCE;
+    }
+
+    public static void destroyInstance() {
+        if(INSTANCE != null) {
+            INSTANCE.mSyncWorker.stop();
+        }
+        INSTANCE = null;
+    }
+
+    /**
+     * Like {@link #destroyInstance()}, and also drops the mutations still queued: after a switch to
+     * another backend they would be replayed against a remote they weren't meant for.
+     */
+    public static void destroyInstanceAndClearOutbox() {
+        OutboxRemoteDataSource instance = INSTANCE;
+        destroyInstance();
+        if(instance != null) {
+            instance.mOutbox.clear();
+        }
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks() {
+        return withPending(overlay -> mRemote.getTasks().map(overlay::apply));
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        return withPending(overlay -> mRemote.getTasks(filterType)
+                .map(tasks -> accepted(overlay.apply(tasks), filterType)));
+    }
+
+    // Pages and counts are not reconciled: the repository only reads them from local storage.
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        return Flowable.defer(() -> mRemote.getTasksPage(filterType, afterKey, pageSize));
+    }
+
+    @Override
+    public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+        return withPending(overlay -> mRemote.getTask(taskId).map(task -> overlay.apply(taskId, task)));
+    }
+
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        return Flowable.defer(mRemote::getTaskCounts);
+    }
+
+    /**
+     * Delegates to the wrapped remote when it speaks the delta protocol; otherwise every sync is
+     * a reset carrying the full task list.
+     */
+    @Override
+    public Flowable<TasksDelta> getChangesSince(long version) {
+        if(supportsDeltaSync()) {
+            return withPending(overlay -> ((TasksSyncSource) mRemote).getChangesSince(version).map(overlay::apply));
+        }
+        return getTasks().map(tasks -> TasksDelta.reset(tasks, INITIAL_VERSION));
+    }
+
+    @Override
+    public boolean supportsDeltaSync() {
+        return mRemote instanceof TasksSyncSource && ((TasksSyncSource) mRemote).supportsDeltaSync();
+    }
+
+    @Override
+    public Flowable<TasksResponse> getTasksIfModified(@Nullable String validator) {
+        if(supportsConditionalRequests()) {
+            // An unmodified answer leaves the client's state, which already has the queued mutations.
+            return withPending(overlay -> ((ConditionalTasksSource) mRemote).getTasksIfModified(validator)
+                    .map(response -> response.isNotModified()
+                            ? response
+                            : TasksResponse.modified(overlay.apply(response.getTasks()), response.getValidator())));
+        }
+        return getTasks().map(tasks -> TasksResponse.modified(tasks, null));
+    }
+
+    @Override
+    public boolean supportsConditionalRequests() {
+        return mRemote instanceof ConditionalTasksSource
+                && ((ConditionalTasksSource) mRemote).supportsConditionalRequests();
+    }
+
+    // Pushed changes don't wait for the outbox; one that races a queued mutation is superseded by
+    // that mutation's own change once it is delivered.
+    @Override
+    public Flowable<TasksDelta> observeChanges(long version) {
+        if(supportsPush()) {
+            return ((TasksPushSource) mRemote).observeChanges(version);
+        }
+        return Flowable.never();
+    }
+
+    @Override
+    public boolean supportsPush() {
+        return mRemote instanceof TasksPushSource && ((TasksPushSource) mRemote).supportsPush();
+    }
+
+    @Override
+    public void saveTask(@NonNull Task task) {
+        saveTasks(Collections.singletonList(checkNotNull(task)));
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        mOutbox.addSaves(tasks);
+        mSyncWorker.requestSync();
+    }
+
+    @Override
+    public void completeTask(@NonNull Task task) {
+        completeTask(checkNotNull(task).getId());
+    }
+
+    @Override
+    public void completeTask(@NonNull String taskId) {
+        completeTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        mOutbox.addCompletions(taskIds, true);
+        mSyncWorker.requestSync();
+    }
+
+    @Override
+    public void activateTask(@NonNull Task task) {
+        activateTask(checkNotNull(task).getId());
+    }
+
+    @Override
+    public void activateTask(@NonNull String taskId) {
+        activateTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        mOutbox.addCompletions(taskIds, false);
+        mSyncWorker.requestSync();
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        mOutbox.addClearCompleted();
+        mSyncWorker.requestSync();
+    }
+
+    @Override
+    public void refreshTasks() {
+        mRemote.refreshTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        mOutbox.addDeleteAll();
+        mSyncWorker.requestSync();
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        deleteTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        mOutbox.addDeletes(taskIds);
+        mSyncWorker.requestSync();
+    }
+
+    // The queued mutations are read before the remote answers: one delivered in the meantime is
+    // then replayed over an answer that already has it, which changes nothing.
+    @NonNull
+    private <T> Flowable<T> withPending(@NonNull Function<PendingOverlay, Flowable<T>> read) {
+        return Flowable.defer(() -> {
+            PendingOverlay overlay = new PendingOverlay(mOutbox.getPendingOperations());
+            if(!overlay.isEmpty()) {
+                // The worker may be backing off after failures; try the delivery again now.
+                mSyncWorker.requestSync();
+            }
+            return read.apply(overlay);
+        });
+    }
+
+    @NonNull
+    private static List<Task> accepted(@NonNull List<Task> tasks, @NonNull TasksFilterType filterType) {
+        List<Task> accepted = new ArrayList<>(tasks.size());
+        for(Task task : tasks) {
+            if(filterType.accept(task)) {
+                accepted.add(task);
+            }
+        }
+        return accepted;
+    }
+}
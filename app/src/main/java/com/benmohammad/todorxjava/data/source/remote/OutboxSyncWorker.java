@@ -0,0 +1,116 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.local.TasksOutbox;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Scheduler;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Replays the {@link TasksOutbox} against the remote in batches of {@link #BATCH_SIZE}. A failed
+ * replay is retried with exponential backoff; the entries stay in the outbox until it succeeds.
+ */
+public class OutboxSyncWorker {
+
+    static final int BATCH_SIZE = 50;
+
+    static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+    static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    @NonNull
+    private final TasksOutbox mOutbox;
+
+    @NonNull
+    private final TasksDataSource mRemote;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @NonNull
+    private final Object mReplayLock = new Object();
+
+    @NonNull
+    private final Object mScheduleLock = new Object();
+
+    private boolean mSyncScheduled;
+
+    private volatile boolean mStopped;
+
+    private long mBackoffMillis = INITIAL_BACKOFF_MILLIS;
+
+    public OutboxSyncWorker(@NonNull TasksOutbox outbox, @NonNull TasksDataSource remote,
+                            @NonNull Scheduler scheduler) {
+        mOutbox = checkNotNull(outbox, "outbox cannot be null");
+        mRemote = checkNotNull(remote, "remote cannot be null");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+    }
+
+    /**
+     * Schedules a replay unless one is already pending.
+     */
+    public void requestSync() {
+        synchronized(mScheduleLock) {
+            if(mSyncScheduled || mStopped) {
+                return;
+            }
+            mSyncScheduled = true;
+        }
+        mScheduler.scheduleDirect(this::syncQuietly);
+    }
+
+    /**
+     * Replays the outbox on the calling thread until it is empty.
+     *
+     * @throws RuntimeException the remote failure; the unacknowledged entries stay queued
+     */
+    @WorkerThread
+    public void drain() {
+        synchronized(mReplayLock) {
+            while(!mStopped && mOutbox.replay(mRemote, BATCH_SIZE) > 0) {
+                // keep going until the outbox is empty
+            }
+        }
+    }
+
+    /**
+     * Stops replaying once the batch in flight is done, and schedules no more replays. The entries
+     * left stay queued.
+     */
+    public void stop() {
+        mStopped = true;
+    }
+
+    private void syncQuietly() {
+        synchronized(mScheduleLock) {
+            mSyncScheduled = false;
+        }
+        try {
+            drain();
+            synchronized(mScheduleLock) {
+                mBackoffMillis = INITIAL_BACKOFF_MILLIS;
+            }
+        } catch(RuntimeException e) {
+            retryLater();
+        }
+    }
+
+    private void retryLater() {
+        long delay;
+        synchronized(mScheduleLock) {
+            if(mSyncScheduled || mStopped) {
+                return;
+            }
+            mSyncScheduled = true;
+            delay = mBackoffMillis;
+            mBackoffMillis = Math.min(mBackoffMillis * 2, MAX_BACKOFF_MILLIS);
+        }
+        mScheduler.scheduleDirect(this::syncQuietly, delay, TimeUnit.MILLISECONDS);
+    }
+}
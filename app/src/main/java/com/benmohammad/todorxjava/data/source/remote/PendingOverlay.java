@@ -0,0 +1,120 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskOperation;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.google.common.base.Optional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Replays mutations the remote hasn't received yet over what it answered with, so a read returns
+ * the state the remote will have once they are delivered. Completions only apply to tasks in the
+ * answer; saves carry the whole task and always apply.
+ */
+final class PendingOverlay {
+
+    @NonNull
+    private final List<TaskOperation> mOperations;
+
+    PendingOverlay(@NonNull List<TaskOperation> operations) {
+        mOperations = checkNotNull(operations, "operations cannot be null");
+    }
+
+    boolean isEmpty() {
+        return mOperations.isEmpty();
+    }
+
+    @NonNull
+    List<Task> apply(@NonNull List<Task> tasks) {
+        return new ArrayList<>(replay(tasks, new LinkedHashSet<>()).values());
+    }
+
+    @NonNull
+    Optional<Task> apply(@NonNull String taskId, @NonNull Optional<Task> task) {
+        List<Task> tasks = task.isPresent() ? Collections.singletonList(task.get()) : Collections.emptyList();
+        return Optional.fromNullable(replay(tasks, new LinkedHashSet<>()).get(taskId));
+    }
+
+    // A pending delete-all makes the answer a reset: nothing the client holds survives it.
+    @NonNull
+    TasksDelta apply(@NonNull TasksDelta delta) {
+        Set<String> deletedTaskIds = new LinkedHashSet<>(delta.getDeletedTaskIds());
+        List<Task> tasks = new ArrayList<>(replay(delta.getChangedTasks(), deletedTaskIds).values());
+        if(delta.isReset() || deletesAll()) {
+            return TasksDelta.reset(tasks, delta.getVersion());
+        }
+        return TasksDelta.changes(tasks, new ArrayList<>(deletedTaskIds), delta.getVersion());
+    }
+
+    private boolean deletesAll() {
+        for(TaskOperation operation : mOperations) {
+            if(operation.getType() == TaskOperation.DELETE_ALL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private Map<String, Task> replay(@NonNull List<Task> tasks, @NonNull Set<String> deletedTaskIds) {
+        Map<String, Task> rows = new LinkedHashMap<>();
+        for(Task task : tasks) {
+            rows.put(task.getId(), task);
+        }
+        for(TaskOperation operation : mOperations) {
+            switch(operation.getType()) {
+                case TaskOperation.SAVE:
+                    for(Task task : operation.getTasks()) {
+                        rows.put(task.getId(), task);
+                        deletedTaskIds.remove(task.getId());
+                    }
+                    break;
+                case TaskOperation.COMPLETE:
+                case TaskOperation.ACTIVATE:
+                    boolean completed = operation.getType() == TaskOperation.COMPLETE;
+                    for(String taskId : operation.getTaskIds()) {
+                        Task task = rows.get(taskId);
+                        if(task != null) {
+                            rows.put(taskId, new Task(task.getTitle(), task.getDescription(), taskId, completed));
+                        }
+                    }
+                    break;
+                case TaskOperation.DELETE:
+                    for(String taskId : operation.getTaskIds()) {
+                        rows.remove(taskId);
+                        deletedTaskIds.add(taskId);
+                    }
+                    break;
+                case TaskOperation.CLEAR_COMPLETED:
+                    Iterator<Task> it = rows.values().iterator();
+                    while(it.hasNext()) {
+                        Task task = it.next();
+                        if(task.isCompleted()) {
+                            it.remove();
+                            deletedTaskIds.add(task.getId());
+                        }
+                    }
+                    break;
+                case TaskOperation.DELETE_ALL:
+                    deletedTaskIds.addAll(rows.keySet());
+                    rows.clear();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation.getType());
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,130 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+public final class RemoteCallStats {
+
+    private final long mCallCount;
+
+    private final long mAttemptCount;
+
+    private final long mSuccessCount;
+
+    private final long mFailureCount;
+
+    private final long mTimeoutCount;
+
+    private final long mRetryCount;
+
+    private final long mHedgeCount;
+
+    private final long mHedgeWinCount;
+
+    private final long mRejectedCount;
+
+    private final long mCircuitOpenCount;
+
+    private final boolean mCircuitOpen;
+
+    private final long mP50LatencyMillis;
+
+    private final long mP99LatencyMillis;
+
+    RemoteCallStats(long callCount, long attemptCount, long successCount, long failureCount, long timeoutCount,
+                    long retryCount, long hedgeCount, long hedgeWinCount, long rejectedCount,
+                    long circuitOpenCount, boolean circuitOpen, long p50LatencyMillis, long p99LatencyMillis) {
+        mCallCount = callCount;
+        mAttemptCount = attemptCount;
+        mSuccessCount = successCount;
+        mFailureCount = failureCount;
+        mTimeoutCount = timeoutCount;
+        mRetryCount = retryCount;
+        mHedgeCount = hedgeCount;
+        mHedgeWinCount = hedgeWinCount;
+        mRejectedCount = rejectedCount;
+        mCircuitOpenCount = circuitOpenCount;
+        mCircuitOpen = circuitOpen;
+        mP50LatencyMillis = p50LatencyMillis;
+        mP99LatencyMillis = p99LatencyMillis;
+    }
+
+    /**
+     * Calls made by clients, however many attempts each one took.
+     */
+    public long getCallCount() {
+        return mCallCount;
+    }
+
+    /**
+     * Requests actually sent to the remote, including retries and hedges.
+     */
+    public long getAttemptCount() {
+        return mAttemptCount;
+    }
+
+    public long getSuccessCount() {
+        return mSuccessCount;
+    }
+
+    public long getFailureCount() {
+        return mFailureCount;
+    }
+
+    /**
+     * Attempts abandoned at the deadline; also counted as failures.
+     */
+    public long getTimeoutCount() {
+        return mTimeoutCount;
+    }
+
+    public long getRetryCount() {
+        return mRetryCount;
+    }
+
+    public long getHedgeCount() {
+        return mHedgeCount;
+    }
+
+    /**
+     * Hedged requests that answered before the original one.
+     */
+    public long getHedgeWinCount() {
+        return mHedgeWinCount;
+    }
+
+    /**
+     * Calls failed fast because the circuit was open.
+     */
+    public long getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    public long getCircuitOpenCount() {
+        return mCircuitOpenCount;
+    }
+
+    public boolean isCircuitOpen() {
+        return mCircuitOpen;
+    }
+
+    /**
+     * Median latency of recent successful reads, -1 before the first one.
+     */
+    public long getP50LatencyMillis() {
+        return mP50LatencyMillis;
+    }
+
+    public long getP99LatencyMillis() {
+        return mP99LatencyMillis;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "RemoteCallStats calls=" + mCallCount + " attempts=" + mAttemptCount + " successes=" + mSuccessCount
+                + " failures=" + mFailureCount + " timeouts=" + mTimeoutCount + " retries=" + mRetryCount
+                + " hedges=" + mHedgeCount + " hedgeWins=" + mHedgeWinCount + " rejected=" + mRejectedCount
+                + " circuitOpened=" + mCircuitOpenCount + " circuitOpen=" + mCircuitOpen
+                + " p50Ms=" + mP50LatencyMillis + " p99Ms=" + mP99LatencyMillis;
+    }
+}
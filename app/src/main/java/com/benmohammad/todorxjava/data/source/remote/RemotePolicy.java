@@ -0,0 +1,160 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Timeouts, hedging, retry and circuit breaker settings for {@link ResilientRemoteDataSource}.
+ */
+public final class RemotePolicy {
+
+    private final long mDeadlineMillis;
+
+    private final int mHedgePercentile;
+
+    private final int mHedgeMinSamples;
+
+    private final long mMinHedgeDelayMillis;
+
+    private final int mMaxRetries;
+
+    private final long mBaseBackoffMillis;
+
+    private final long mMaxBackoffMillis;
+
+    private final int mFailureThreshold;
+
+    private final long mOpenMillis;
+
+    private RemotePolicy(@NonNull Builder builder) {
+        mDeadlineMillis = builder.mDeadlineMillis;
+        mHedgePercentile = builder.mHedgePercentile;
+        mHedgeMinSamples = builder.mHedgeMinSamples;
+        mMinHedgeDelayMillis = builder.mMinHedgeDelayMillis;
+        mMaxRetries = builder.mMaxRetries;
+        mBaseBackoffMillis = builder.mBaseBackoffMillis;
+        mMaxBackoffMillis = builder.mMaxBackoffMillis;
+        mFailureThreshold = builder.mFailureThreshold;
+        mOpenMillis = builder.mOpenMillis;
+    }
+
+    @NonNull
+    public static RemotePolicy defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * Longest a single attempt may take before it is abandoned and counted as a failure.
+     */
+    public long getDeadlineMillis() {
+        return mDeadlineMillis;
+    }
+
+    /**
+     * A read still running after this percentile of recent read latencies gets a duplicate
+     * request; the first answer wins. 0 disables hedging.
+     */
+    public int getHedgePercentile() {
+        return mHedgePercentile;
+    }
+
+    public int getHedgeMinSamples() {
+        return mHedgeMinSamples;
+    }
+
+    public long getMinHedgeDelayMillis() {
+        return mMinHedgeDelayMillis;
+    }
+
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    public long getBaseBackoffMillis() {
+        return mBaseBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return mMaxBackoffMillis;
+    }
+
+    /**
+     * Consecutive failed attempts that open the circuit.
+     */
+    public int getFailureThreshold() {
+        return mFailureThreshold;
+    }
+
+    /**
+     * How long an open circuit rejects calls before it lets a single trial call through.
+     */
+    public long getOpenMillis() {
+        return mOpenMillis;
+    }
+
+    public static final class Builder {
+
+        private long mDeadlineMillis = 10000;
+
+        private int mHedgePercentile = 95;
+
+        private int mHedgeMinSamples = 20;
+
+        private long mMinHedgeDelayMillis = 50;
+
+        private int mMaxRetries = 2;
+
+        private long mBaseBackoffMillis = 200;
+
+        private long mMaxBackoffMillis = 2000;
+
+        private int mFailureThreshold = 5;
+
+        private long mOpenMillis = 30000;
+
+        @NonNull
+        public Builder deadline(long deadline, @NonNull TimeUnit unit) {
+            checkArgument(deadline > 0, "deadline must be positive");
+            mDeadlineMillis = checkNotNull(unit).toMillis(deadline);
+            return this;
+        }
+
+        @NonNull
+        public Builder hedgeAfterPercentile(int percentile, int minSamples, long minDelay, @NonNull TimeUnit unit) {
+            checkArgument(percentile >= 0 && percentile < 100, "percentile must be in [0, 100)");
+            checkArgument(minSamples > 0, "minSamples must be positive");
+            mHedgePercentile = percentile;
+            mHedgeMinSamples = minSamples;
+            mMinHedgeDelayMillis = checkNotNull(unit).toMillis(minDelay);
+            return this;
+        }
+
+        @NonNull
+        public Builder retry(int maxRetries, long baseBackoff, long maxBackoff, @NonNull TimeUnit unit) {
+            checkArgument(maxRetries >= 0, "maxRetries cannot be negative");
+            checkArgument(baseBackoff > 0 && maxBackoff >= baseBackoff, "invalid backoff bounds");
+            mMaxRetries = maxRetries;
+            mBaseBackoffMillis = checkNotNull(unit).toMillis(baseBackoff);
+            mMaxBackoffMillis = unit.toMillis(maxBackoff);
+            return this;
+        }
+
+        @NonNull
+        public Builder circuitBreaker(int failureThreshold, long openDuration, @NonNull TimeUnit unit) {
+            checkArgument(failureThreshold > 0, "failureThreshold must be positive");
+            checkArgument(openDuration > 0, "openDuration must be positive");
+            mFailureThreshold = failureThreshold;
+            mOpenMillis = checkNotNull(unit).toMillis(openDuration);
+            return this;
+        }
+
+        @NonNull
+        public RemotePolicy build() {
+            return new RemotePolicy(this);
+        }
+    }
+}
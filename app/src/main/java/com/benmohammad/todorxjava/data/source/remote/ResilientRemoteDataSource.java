@@ -0,0 +1,409 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TaskOperation;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.data.source.ConditionalTasksSource;
+import com.benmohammad.todorxjava.data.source.TasksBatchSource;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.TasksPushSource;
+import com.benmohammad.todorxjava.data.source.TasksSyncSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Action;
+import io.reactivex.subjects.CompletableSubject;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Guards a remote data source with a {@link RemotePolicy}: every attempt has a deadline, slow
+ * reads are hedged with a duplicate request, failures are retried with jittered exponential
+ * backoff, and a circuit breaker fails calls fast while the remote keeps failing. Reads are
+ * hedged because they are side-effect free; mutations are only retried, which is safe because
+ * they are idempotent. A mutation abandoned at its deadline can't be cancelled, so mutations run
+ * one at a time and each attempt waits for the previous call to return before it starts.
+ */
+public class ResilientRemoteDataSource implements TasksDataSource, TasksSyncSource, ConditionalTasksSource,
+        TasksPushSource, TasksBatchSource {
+
+    @Nullable
+    private static ResilientRemoteDataSource INSTANCE;
+
+    @NonNull
+    private final TasksDataSource mRemote;
+
+    @NonNull
+    private final RemotePolicy mPolicy;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    @NonNull
+    private final CircuitBreaker mCircuitBreaker;
+
+    @NonNull
+    private final LatencyTracker mLatencies = new LatencyTracker();
+
+    @NonNull
+    private final Random mRandom = new Random();
+
+    @NonNull
+    private final AtomicLong mCallCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mAttemptCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mSuccessCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mFailureCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mTimeoutCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mRetryCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mHedgeCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mHedgeWinCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mRejectedCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mCircuitOpenCount = new AtomicLong();
+
+    @NonNull
+    private final Object mWriteLock = new Object();
+
+    // Completes once the last mutation handed to the remote has returned.
+    @NonNull
+    private volatile Completable mRunningWrite = Completable.complete();
+
+    ResilientRemoteDataSource(@NonNull TasksDataSource remote, @NonNull RemotePolicy policy,
+                              @NonNull Scheduler scheduler) {
+        mRemote = checkNotNull(remote, "remote cannot be null");
+        mPolicy = checkNotNull(policy, "policy cannot be null");
+        mScheduler = checkNotNull(scheduler, "scheduler cannot be null");
+        mCircuitBreaker = new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenMillis(), scheduler);
+    }
+
+    public static ResilientRemoteDataSource getInstance(@NonNull TasksDataSource remote, @NonNull RemotePolicy policy,
+                                                        @NonNull Scheduler scheduler) {
+        if(INSTANCE == null) {
+            INSTANCE = new ResilientRemoteDataSource(remote, policy, scheduler);
+        }
+        return INSTANCE;
+    }
+
+    public static void destroyInstance() {
+        INSTANCE = null;
+    }
+
+    @NonNull
+    public RemoteCallStats getStats() {
+        return new RemoteCallStats(mCallCount.get(), mAttemptCount.get(), mSuccessCount.get(), mFailureCount.get(),
+                mTimeoutCount.get(), mRetryCount.get(), mHedgeCount.get(), mHedgeWinCount.get(), mRejectedCount.get(),
+                mCircuitOpenCount.get(), mCircuitBreaker.getState() == CircuitBreaker.OPEN,
+                mLatencies.percentile(50), mLatencies.percentile(99));
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks() {
+        return read(mRemote::getTasks);
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        return read(() -> mRemote.getTasks(filterType));
+    }
+
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        return read(() -> mRemote.getTasksPage(filterType, afterKey, pageSize));
+    }
+
+    @Override
+    public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+        return read(() -> mRemote.getTask(taskId));
+    }
+
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        return read(mRemote::getTaskCounts);
+    }
+
+    @Override
+    public Flowable<TasksDelta> getChangesSince(long version) {
+        if(supportsDeltaSync()) {
+            return read(() -> ((TasksSyncSource) mRemote).getChangesSince(version));
+        }
+        return getTasks().map(tasks -> TasksDelta.reset(tasks, INITIAL_VERSION));
+    }
+
+    @Override
+    public boolean supportsDeltaSync() {
+        return mRemote instanceof TasksSyncSource && ((TasksSyncSource) mRemote).supportsDeltaSync();
+    }
+
+    @Override
+    public Flowable<TasksResponse> getTasksIfModified(@Nullable String validator) {
+        if(supportsConditionalRequests()) {
+            return read(() -> ((ConditionalTasksSource) mRemote).getTasksIfModified(validator));
+        }
+        return getTasks().map(tasks -> TasksResponse.modified(tasks, null));
+    }
+
+    @Override
+    public boolean supportsConditionalRequests() {
+        return mRemote instanceof ConditionalTasksSource
+                && ((ConditionalTasksSource) mRemote).supportsConditionalRequests();
+    }
+
+    // The stream is long-lived, so deadlines and hedging don't apply; the subscriber reconnects.
+    @Override
+    public Flowable<TasksDelta> observeChanges(long version) {
+        if(supportsPush()) {
+            return ((TasksPushSource) mRemote).observeChanges(version);
+        }
+        return Flowable.never();
+    }
+
+    @Override
+    public boolean supportsPush() {
+        return mRemote instanceof TasksPushSource && ((TasksPushSource) mRemote).supportsPush();
+    }
+
+    @Override
+    public void saveTask(@NonNull Task task) {
+        write(() -> mRemote.saveTask(task));
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        write(() -> mRemote.saveTasks(tasks));
+    }
+
+    @Override
+    public void completeTask(@NonNull Task task) {
+        write(() -> mRemote.completeTask(task));
+    }
+
+    @Override
+    public void completeTask(@NonNull String taskId) {
+        write(() -> mRemote.completeTask(taskId));
+    }
+
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        write(() -> mRemote.completeTasks(taskIds));
+    }
+
+    @Override
+    public void activateTask(@NonNull Task task) {
+        write(() -> mRemote.activateTask(task));
+    }
+
+    @Override
+    public void activateTask(@NonNull String taskId) {
+        write(() -> mRemote.activateTask(taskId));
+    }
+
+    @Override
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        write(() -> mRemote.activateTasks(taskIds));
+    }
+
+    // The whole batch is one attempt, retried as a unit.
+    @Override
+    public void applyBatch(@NonNull List<TaskOperation> operations) {
+        if(supportsBatch()) {
+            write(() -> ((TasksBatchSource) mRemote).applyBatch(operations));
+        } else {
+            TasksBatchSource.applyEach(this, operations);
+        }
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return mRemote instanceof TasksBatchSource && ((TasksBatchSource) mRemote).supportsBatch();
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        write(mRemote::clearCompletedTasks);
+    }
+
+    @Override
+    public void refreshTasks() {
+        mRemote.refreshTasks();
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(mRemote::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        write(() -> mRemote.deleteTask(taskId));
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        write(() -> mRemote.deleteTasks(taskIds));
+    }
+
+    @NonNull
+    private <T> Flowable<T> read(@NonNull Callable<Flowable<T>> call) {
+        return withRetry(Flowable.defer(() -> hedged(call)));
+    }
+
+    // Mutations run on the scheduler so that a hung call can be abandoned at the deadline. The
+    // abandoned call keeps going, so the retry or the next mutation waits for it outside its own
+    // deadline; otherwise a late complete could land after the activate that followed it.
+    private void write(@NonNull Action action) {
+        synchronized(mWriteLock) {
+            withRetry(Completable.defer(() -> mRunningWrite).andThen(attempt(() -> runWrite(action), false)))
+                    .ignoreElements()
+                    .blockingAwait();
+        }
+    }
+
+    @NonNull
+    private Flowable<Object> runWrite(@NonNull Action action) {
+        CompletableSubject finished = CompletableSubject.create();
+        AtomicBoolean started = new AtomicBoolean();
+        mRunningWrite = finished;
+        return Completable.fromAction(() -> {
+                    if(started.compareAndSet(false, true)) {
+                        try {
+                            action.run();
+                        } finally {
+                            finished.onComplete();
+                        }
+                    }
+                })
+                .subscribeOn(mScheduler)
+                .doOnDispose(() -> {
+                    // Abandoned before the scheduler got to it, so it never reaches the remote.
+                    if(started.compareAndSet(false, true)) {
+                        finished.onComplete();
+                    }
+                })
+                .<Object>toFlowable();
+    }
+
+    @NonNull
+    private <T> Flowable<T> hedged(@NonNull Callable<Flowable<T>> call) {
+        Flowable<T> primary = attempt(call, true);
+        long hedgeDelay = hedgeDelayMillis();
+        if(hedgeDelay < 0) {
+            return primary;
+        }
+        // Only a value from the hedge may win the race: a failed hedge is dropped and the primary
+        // keeps going. No hedge starts unless the circuit is closed.
+        Flowable<T> hedge = Flowable.timer(hedgeDelay, TimeUnit.MILLISECONDS, mScheduler)
+                .flatMap(tick -> {
+                    if(mCircuitBreaker.getState() != CircuitBreaker.CLOSED) {
+                        return Flowable.<T>never();
+                    }
+                    mHedgeCount.incrementAndGet();
+                    return attempt(call, true)
+                            .doOnNext(value -> mHedgeWinCount.incrementAndGet())
+                            .onErrorResumeNext(Flowable.<T>never());
+                });
+        // The first request to answer wins and the other one is cancelled.
+        return Flowable.amb(Arrays.asList(primary, hedge));
+    }
+
+    @NonNull
+    private <T> Flowable<T> attempt(@NonNull Callable<Flowable<T>> call, boolean trackLatency) {
+        return Flowable.defer(() -> {
+            int admission = mCircuitBreaker.admit();
+            if(admission == CircuitBreaker.REJECTED) {
+                mRejectedCount.incrementAndGet();
+                return Flowable.error(new CircuitOpenException());
+            }
+            mAttemptCount.incrementAndGet();
+            long start = mScheduler.now(TimeUnit.MILLISECONDS);
+            return call.call()
+                    .timeout(mPolicy.getDeadlineMillis(), TimeUnit.MILLISECONDS, mScheduler)
+                    .doOnComplete(() -> {
+                        mSuccessCount.incrementAndGet();
+                        mCircuitBreaker.onSuccess();
+                        if(trackLatency) {
+                            mLatencies.record(mScheduler.now(TimeUnit.MILLISECONDS) - start);
+                        }
+                    })
+                    .doOnError(error -> {
+                        mFailureCount.incrementAndGet();
+                        if(error instanceof TimeoutException) {
+                            mTimeoutCount.incrementAndGet();
+                        }
+                        if(mCircuitBreaker.onFailure()) {
+                            mCircuitOpenCount.incrementAndGet();
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if(admission == CircuitBreaker.ADMITTED_TRIAL) {
+                            mCircuitBreaker.onTrialCancelled();
+                        }
+                    });
+        });
+    }
+
+    @NonNull
+    private <T> Flowable<T> withRetry(@NonNull Flowable<T> attempts) {
+        return Flowable.defer(() -> {
+            mCallCount.incrementAndGet();
+            AtomicInteger retries = new AtomicInteger();
+            return attempts.retryWhen(errors -> errors.flatMap(error -> {
+                if(error instanceof CircuitOpenException || retries.get() >= mPolicy.getMaxRetries()) {
+                    return Flowable.error(error);
+                }
+                mRetryCount.incrementAndGet();
+                return Flowable.timer(backoffMillis(retries.getAndIncrement()), TimeUnit.MILLISECONDS, mScheduler);
+            }));
+        });
+    }
+
+    // Full jitter: a uniformly random delay up to the exponential bound, so clients that failed
+    // together do not retry together.
+    private long backoffMillis(int retry) {
+        long bound = Math.min(mPolicy.getMaxBackoffMillis(), mPolicy.getBaseBackoffMillis() << Math.min(retry, 20));
+        return (long) (mRandom.nextDouble() * bound);
+    }
+
+    private long hedgeDelayMillis() {
+        if(mPolicy.getHedgePercentile() == 0 || mLatencies.size() < mPolicy.getHedgeMinSamples()) {
+            return -1;
+        }
+        return Math.max(mPolicy.getMinHedgeDelayMillis(), mLatencies.percentile(mPolicy.getHedgePercentile()));
+    }
+}
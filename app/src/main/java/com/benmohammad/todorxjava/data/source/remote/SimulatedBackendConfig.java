@@ -0,0 +1,134 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Behaviour of a {@link SimulatedRemoteDataSource}: latency, failure rate, bandwidth, initial
+ * data and the seed that makes all of it reproducible.
+ */
+public final class SimulatedBackendConfig {
+
+    public static final long UNLIMITED_BANDWIDTH = 0;
+
+    @NonNull
+    private final LatencyDistribution mLatency;
+
+    private final double mErrorRate;
+
+    private final long mBytesPerSecond;
+
+    private final long mSeed;
+
+    private final int mTaskCount;
+
+    @NonNull
+    private final Scheduler mScheduler;
+
+    private SimulatedBackendConfig(@NonNull Builder builder) {
+        mLatency = builder.mLatency;
+        mErrorRate = builder.mErrorRate;
+        mBytesPerSecond = builder.mBytesPerSecond;
+        mSeed = builder.mSeed;
+        mTaskCount = builder.mTaskCount;
+        mScheduler = builder.mScheduler;
+    }
+
+    @NonNull
+    public LatencyDistribution getLatency() {
+        return mLatency;
+    }
+
+    /**
+     * Probability in [0, 1] that a request fails after its latency has elapsed.
+     */
+    public double getErrorRate() {
+        return mErrorRate;
+    }
+
+    public long getBytesPerSecond() {
+        return mBytesPerSecond;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    public int getTaskCount() {
+        return mTaskCount;
+    }
+
+    @NonNull
+    public Scheduler getScheduler() {
+        return mScheduler;
+    }
+
+    public static final class Builder {
+
+        @NonNull
+        private LatencyDistribution mLatency = LatencyDistribution.fixed(0);
+
+        private double mErrorRate = 0;
+
+        private long mBytesPerSecond = UNLIMITED_BANDWIDTH;
+
+        private long mSeed = 0;
+
+        private int mTaskCount = 0;
+
+        @NonNull
+        private Scheduler mScheduler = Schedulers.computation();
+
+        @NonNull
+        public Builder latency(@NonNull LatencyDistribution latency) {
+            mLatency = checkNotNull(latency);
+            return this;
+        }
+
+        @NonNull
+        public Builder errorRate(double errorRate) {
+            checkArgument(errorRate >= 0 && errorRate <= 1, "errorRate must be in [0, 1]");
+            mErrorRate = errorRate;
+            return this;
+        }
+
+        @NonNull
+        public Builder bandwidth(long bytesPerSecond) {
+            checkArgument(bytesPerSecond >= 0, "bytesPerSecond cannot be negative");
+            mBytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        @NonNull
+        public Builder seed(long seed) {
+            mSeed = seed;
+            return this;
+        }
+
+        /**
+         * Number of generated tasks the backend starts with.
+         */
+        @NonNull
+        public Builder taskCount(int taskCount) {
+            checkArgument(taskCount >= 0, "taskCount cannot be negative");
+            mTaskCount = taskCount;
+            return this;
+        }
+
+        @NonNull
+        public Builder scheduler(@NonNull Scheduler scheduler) {
+            mScheduler = checkNotNull(scheduler);
+            return this;
+        }
+
+        @NonNull
+        public SimulatedBackendConfig build() {
+            return new SimulatedBackendConfig(this);
+        }
+    }
+}
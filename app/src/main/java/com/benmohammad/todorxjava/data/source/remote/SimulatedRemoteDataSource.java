@@ -0,0 +1,470 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.data.source.ConditionalTasksSource;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.TasksPushSource;
+import com.benmohammad.todorxjava.data.source.TasksSyncSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.processors.UnicastProcessor;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * In-process backend stand-in for load testing. Every request waits for a latency sampled from
+ * the configured distribution plus the time its payload takes at the configured bandwidth, and
+ * then fails with the configured probability. All randomness comes from one seeded
+ * {@link Random}, so the same seed and call order reproduce the same run. The state is safe to
+ * use from any thread and supports the delta sync, conditional fetch and change stream protocols.
+ * Pushed changes are delivered without simulated latency.
+ */
+public class SimulatedRemoteDataSource implements TasksDataSource, TasksSyncSource, ConditionalTasksSource,
+        TasksPushSource {
+
+    private static final int RESPONSE_OVERHEAD_BYTES = 64;
+    private static final int TASK_OVERHEAD_BYTES = 48;
+    private static final int ID_BYTES = 40;
+
+    @Nullable
+    private static SimulatedRemoteDataSource INSTANCE;
+
+    @NonNull
+    private final SimulatedBackendConfig mConfig;
+
+    @NonNull
+    private final Random mRandom;
+
+    @NonNull
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+
+    @NonNull
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+
+    // Latest change per task, keyed by version; deleted tasks stay in here as tombstones.
+    @NonNull
+    private final NavigableMap<Long, String> mChangeLog = new TreeMap<>();
+
+    @NonNull
+    private final Map<String, Long> mTaskVersions = new HashMap<>();
+
+    private long mVersion = INITIAL_VERSION;
+
+    // Every change as it is recorded, published with the write lock held.
+    @NonNull
+    private final PublishProcessor<TasksDelta> mChanges = PublishProcessor.create();
+
+    @NonNull
+    private final AtomicLong mRequestCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mFailedRequestCount = new AtomicLong();
+
+    @NonNull
+    private final AtomicLong mTransferredBytes = new AtomicLong();
+
+    SimulatedRemoteDataSource(@NonNull SimulatedBackendConfig config) {
+        mConfig = checkNotNull(config, "config cannot be null");
+        mRandom = new Random(config.getSeed());
+        for(int i = 0; i < config.getTaskCount(); i++) {
+            putTask(new Task("Task " + i, "Generated task " + i, "sim-" + i, mRandom.nextInt(4) == 0));
+        }
+    }
+
+    public static SimulatedRemoteDataSource getInstance(@NonNull SimulatedBackendConfig config) {
+        if(INSTANCE == null) {
+            INSTANCE = new SimulatedRemoteDataSource(config);
+        }
+        return INSTANCE;
+    }
+
+    public static void destroyInstance() {
+        INSTANCE = null;
+    }
+
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    public long getFailedRequestCount() {
+        return mFailedRequestCount.get();
+    }
+
+    /**
+     * Request and response payload bytes of every request so far, failed ones included.
+     */
+    public long getTransferredBytes() {
+        return mTransferredBytes.get();
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks() {
+        return getTasks(TasksFilterType.ALL_TASKS);
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        checkNotNull(filterType);
+        return respond(() -> {
+            List<Task> tasks = new ArrayList<>();
+            for(Task task : mTasks.values()) {
+                if(filterType.accept(task)) {
+                    tasks.add(task);
+                }
+            }
+            return tasks;
+        });
+    }
+
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        checkNotNull(filterType);
+        return respond(() -> {
+            List<Task> tasks = new ArrayList<>();
+            for(Task task : mTasks.values()) {
+                if(filterType.accept(task)) {
+                    tasks.add(task);
+                }
+            }
+            int from = (int) Math.min(afterKey, tasks.size());
+            int to = Math.min(from + pageSize, tasks.size());
+            return new TasksPage(new ArrayList<>(tasks.subList(from, to)), afterKey, to, to < tasks.size());
+        });
+    }
+
+    @Override
+    public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+        checkNotNull(taskId);
+        return respond(() -> {
+            Task task = mTasks.get(taskId);
+            return task != null ? Optional.of(task) : null;
+        });
+    }
+
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        return respond(() -> {
+            int completed = 0;
+            for(Task task : mTasks.values()) {
+                if(task.isCompleted()) {
+                    completed++;
+                }
+            }
+            return new TaskCounts(mTasks.size() - completed, completed);
+        });
+    }
+
+    @Override
+    public Flowable<TasksDelta> getChangesSince(long version) {
+        return respond(() -> changesSince(version));
+    }
+
+    @Override
+    public Flowable<TasksDelta> observeChanges(long version) {
+        return Flowable.defer(() -> {
+            // Taking the backlog and subscribing under the read lock means no change falls
+            // between the two; the unicast processor buffers live changes until the backlog is out.
+            UnicastProcessor<TasksDelta> liveChanges = UnicastProcessor.create();
+            TasksDelta backlog;
+            Disposable subscription;
+            mLock.readLock().lock();
+            try {
+                backlog = changesSince(version);
+                subscription = mChanges.subscribe(liveChanges::onNext);
+            } finally {
+                mLock.readLock().unlock();
+            }
+            return Flowable.just(backlog)
+                    .concatWith(liveChanges)
+                    .doFinally(subscription::dispose);
+        });
+    }
+
+    @Override
+    public Flowable<TasksResponse> getTasksIfModified(@Nullable String validator) {
+        return respond(() -> {
+            String currentValidator = "\"" + mVersion + "\"";
+            return currentValidator.equals(validator)
+                    ? TasksResponse.notModified(currentValidator)
+                    : TasksResponse.modified(new ArrayList<>(mTasks.values()), currentValidator);
+        });
+    }
+
+    @Override
+    public void saveTask(@NonNull Task task) {
+        saveTasks(Collections.singletonList(checkNotNull(task)));
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        checkNotNull(tasks);
+        mutate(bytesOf(tasks), () -> {
+            for(Task task : tasks) {
+                putTask(task);
+            }
+        });
+    }
+
+    @Override
+    public void completeTask(@NonNull Task task) {
+        completeTask(checkNotNull(task).getId());
+    }
+
+    @Override
+    public void completeTask(@NonNull String taskId) {
+        completeTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        setCompleted(taskIds, true);
+    }
+
+    @Override
+    public void activateTask(@NonNull Task task) {
+        activateTask(checkNotNull(task).getId());
+    }
+
+    @Override
+    public void activateTask(@NonNull String taskId) {
+        activateTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        setCompleted(taskIds, false);
+    }
+
+    @Override
+    public void clearCompletedTasks() {
+        mutate(0, () -> {
+            for(Task task : new ArrayList<>(mTasks.values())) {
+                if(task.isCompleted()) {
+                    removeTask(task.getId());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void refreshTasks() {
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        mutate(0, () -> {
+            for(String taskId : new ArrayList<>(mTasks.keySet())) {
+                removeTask(taskId);
+            }
+        });
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        deleteTasks(Collections.singletonList(checkNotNull(taskId)));
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        checkNotNull(taskIds);
+        mutate((long) ID_BYTES * taskIds.size(), () -> {
+            for(String taskId : taskIds) {
+                removeTask(taskId);
+            }
+        });
+    }
+
+    private void setCompleted(@NonNull Collection<String> taskIds, boolean completed) {
+        checkNotNull(taskIds);
+        mutate((long) ID_BYTES * taskIds.size(), () -> {
+            for(String taskId : taskIds) {
+                Task task = mTasks.get(taskId);
+                if(task != null) {
+                    putTask(new Task(task.getTitle(), task.getDescription(), taskId, completed));
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds the response body under the read lock when the request arrives, then delivers it
+     * once the simulated latency and transfer time have passed. A {@code null} body completes
+     * without a value.
+     */
+    @NonNull
+    private <T> Flowable<T> respond(@NonNull Callable<T> handler) {
+        return Flowable.defer(() -> {
+            T body;
+            mLock.readLock().lock();
+            try {
+                body = handler.call();
+            } finally {
+                mLock.readLock().unlock();
+            }
+            Outcome outcome = nextOutcome(RESPONSE_OVERHEAD_BYTES + bytesOf(body));
+            Flowable<T> response = outcome.mFails
+                    ? Flowable.error(new SimulatedBackendException())
+                    : body == null ? Flowable.empty() : Flowable.just(body);
+            if(outcome.mDelayMillis == 0) {
+                return response;
+            }
+            return Flowable.timer(outcome.mDelayMillis, TimeUnit.MILLISECONDS, mConfig.getScheduler())
+                    .concatMap(tick -> response);
+        });
+    }
+
+    // Mutations block the caller for the simulated round trip, like a synchronous HTTP call.
+    private void mutate(long requestBytes, @NonNull Runnable change) {
+        Outcome outcome = nextOutcome(RESPONSE_OVERHEAD_BYTES + requestBytes);
+        if(outcome.mDelayMillis > 0) {
+            Completable.timer(outcome.mDelayMillis, TimeUnit.MILLISECONDS, mConfig.getScheduler()).blockingAwait();
+        }
+        if(outcome.mFails) {
+            throw new SimulatedBackendException();
+        }
+        mLock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    @NonNull
+    private Outcome nextOutcome(long payloadBytes) {
+        long latency;
+        boolean fails;
+        synchronized(mRandom) {
+            latency = mConfig.getLatency().sampleMillis(mRandom);
+            fails = mConfig.getErrorRate() > 0 && mRandom.nextDouble() < mConfig.getErrorRate();
+        }
+        long bandwidth = mConfig.getBytesPerSecond();
+        long transfer = bandwidth == SimulatedBackendConfig.UNLIMITED_BANDWIDTH ? 0 : payloadBytes * 1000 / bandwidth;
+        mRequestCount.incrementAndGet();
+        mTransferredBytes.addAndGet(payloadBytes);
+        if(fails) {
+            mFailedRequestCount.incrementAndGet();
+        }
+        return new Outcome(latency + transfer, fails);
+    }
+
+    // Called with the write lock held, or from the constructor.
+    private void putTask(@NonNull Task task) {
+        mTasks.put(task.getId(), task);
+        recordChange(task.getId());
+    }
+
+    // Called with the write lock held.
+    private void removeTask(@NonNull String taskId) {
+        if(mTasks.remove(taskId) != null) {
+            recordChange(taskId);
+        }
+    }
+
+    private void recordChange(@NonNull String taskId) {
+        Long previousVersion = mTaskVersions.put(taskId, ++mVersion);
+        if(previousVersion != null) {
+            mChangeLog.remove(previousVersion);
+        }
+        mChangeLog.put(mVersion, taskId);
+        if(mChanges.hasSubscribers()) {
+            Task task = mTasks.get(taskId);
+            mChanges.onNext(task != null
+                    ? TasksDelta.changes(Collections.singletonList(task), Collections.emptyList(), mVersion)
+                    : TasksDelta.changes(Collections.emptyList(), Collections.singletonList(taskId), mVersion));
+        }
+    }
+
+    // Called with the read or write lock held.
+    @NonNull
+    private TasksDelta changesSince(long version) {
+        List<Task> changedTasks = new ArrayList<>();
+        List<String> deletedTaskIds = new ArrayList<>();
+        for(String taskId : mChangeLog.tailMap(version, false).values()) {
+            Task task = mTasks.get(taskId);
+            if(task != null) {
+                changedTasks.add(task);
+            } else {
+                deletedTaskIds.add(taskId);
+            }
+        }
+        return TasksDelta.changes(changedTasks, deletedTaskIds, mVersion);
+    }
+
+    private static long bytesOf(@Nullable Object body) {
+        if(body instanceof Task) {
+            Task task = (Task) body;
+            return TASK_OVERHEAD_BYTES + length(task.getId()) + length(task.getTitle()) + length(task.getDescription());
+        } else if(body instanceof Collection) {
+            long bytes = 0;
+            for(Object element : (Collection<?>) body) {
+                bytes += bytesOf(element);
+            }
+            return bytes;
+        } else if(body instanceof TasksPage) {
+            return bytesOf(((TasksPage) body).getTasks());
+        } else if(body instanceof TasksDelta) {
+            TasksDelta delta = (TasksDelta) body;
+            return bytesOf(delta.getChangedTasks()) + (long) ID_BYTES * delta.getDeletedTaskIds().size();
+        } else if(body instanceof TasksResponse) {
+            TasksResponse response = (TasksResponse) body;
+            return response.isNotModified() ? 0 : bytesOf(response.getTasks());
+        } else if(body instanceof Optional) {
+            return bytesOf(((Optional<?>) body).orNull());
+        }
+        return 0;
+    }
+
+    private static int length(@Nullable String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public static class SimulatedBackendException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        SimulatedBackendException() {
+            super("Simulated backend failure");
+        }
+    }
+
+    private static final class Outcome {
+
+        final long mDelayMillis;
+
+        final boolean mFails;
+
+        Outcome(long delayMillis, boolean fails) {
+            mDelayMillis = delayMillis;
+            mFails = fails;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Streaming JSON form of tasks used by the HTTP remote:
+ * {@code {"id": "...", "title": "...", "description": "...", "completed": false}}.
+ * Tasks are read token by token straight into {@link Task} objects, without an intermediate tree.
+ */
+final class TaskJson {
+
+    static final String ID = "id";
+    static final String TITLE = "title";
+    static final String DESCRIPTION = "description";
+    static final String COMPLETED = "completed";
+
+    private TaskJson() {
+    }
+
+    static void writeTask(@NonNull JsonWriter writer, @NonNull Task task) throws IOException {
+        writer.beginObject();
+        writer.name(ID).value(task.getId());
+        writer.name(TITLE).value(task.getTitle());
+        writer.name(DESCRIPTION).value(task.getDescription());
+        writer.name(COMPLETED).value(task.isCompleted());
+        writer.endObject();
+    }
+
+    static void writeTasks(@NonNull JsonWriter writer, @NonNull Collection<Task> tasks) throws IOException {
+        writer.beginArray();
+        for(Task task : tasks) {
+            writeTask(writer, task);
+        }
+        writer.endArray();
+    }
+
+    static void writeIds(@NonNull JsonWriter writer, @NonNull Collection<String> taskIds) throws IOException {
+        writer.beginArray();
+        for(String taskId : taskIds) {
+            writer.value(taskId);
+        }
+        writer.endArray();
+    }
+
+    @NonNull
+    static Task readTask(@NonNull JsonReader reader) throws IOException {
+        String id = null;
+        String title = null;
+        String description = null;
+        boolean completed = false;
+        reader.beginObject();
+        while(reader.hasNext()) {
+            switch(reader.nextName()) {
+                case ID:
+                    id = reader.nextString();
+                    break;
+                case TITLE:
+                    title = nextNullableString(reader);
+                    break;
+                case DESCRIPTION:
+                    description = nextNullableString(reader);
+                    break;
+                case COMPLETED:
+                    completed = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if(id == null) {
+            throw new IOException("Task without an id");
+        }
+        return new Task(title, description, id, completed);
+    }
+
+    @NonNull
+    static List<Task> readTasks(@NonNull JsonReader reader) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        reader.beginArray();
+        while(reader.hasNext()) {
+            tasks.add(readTask(reader));
+        }
+        reader.endArray();
+        return tasks;
+    }
+
+    @NonNull
+    static List<String> readIds(@NonNull JsonReader reader) throws IOException {
+        List<String> taskIds = new ArrayList<>();
+        reader.beginArray();
+        while(reader.hasNext()) {
+            taskIds.add(reader.nextString());
+        }
+        reader.endArray();
+        return taskIds;
+    }
+
+    @Nullable
+    static String nextNullableString(@NonNull JsonReader reader) throws IOException {
+        if(reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
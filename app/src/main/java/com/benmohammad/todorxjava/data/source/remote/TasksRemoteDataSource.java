@@ -1,24 +1,40 @@
 package com.benmohammad.todorxjava.data.source.remote;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.data.source.ConditionalTasksSource;
 import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.data.source.TasksSyncSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
 import com.google.common.base.Optional;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Flowable;
 
-public class TasksRemoteDataSource implements TasksDataSource {
+public class TasksRemoteDataSource implements TasksDataSource, TasksSyncSource, ConditionalTasksSource {
 
     private static TasksRemoteDataSource INSTANCE;
     private static final int SERVICE_LATENCY_IN_MILLIS = 5000;
     private final static Map<String, Task> TASKS_SERVICE_DATA;
+    // Latest change per task, keyed by version; deleted tasks stay in here as tombstones.
+    private final static NavigableMap<Long, String> CHANGE_LOG = new TreeMap<>();
+    private final static Map<String, Long> TASK_VERSIONS = new HashMap<>();
+    private static long sVersion = INITIAL_VERSION;
 
     static {
         TASKS_SERVICE_DATA = new LinkedHashMap<>(2);
@@ -34,22 +50,97 @@ public class TasksRemoteDataSource implements TasksDataSource {
     }
 
     private static void addTask(String title, String description) {
-        Task newTask = new Task(title, description);
-        TASKS_SERVICE_DATA.put(newTask.getId(), newTask);
+        putTask(new Task(title, description));
+    }
+
+    private static void putTask(@NonNull Task task) {
+        synchronized(CHANGE_LOG) {
+            TASKS_SERVICE_DATA.put(task.getId(), task);
+            recordChange(task.getId());
+        }
+    }
+
+    private static void removeTask(@NonNull String taskId) {
+        synchronized(CHANGE_LOG) {
+            if(TASKS_SERVICE_DATA.remove(taskId) != null) {
+                recordChange(taskId);
+            }
+        }
+    }
+
+    // Called with CHANGE_LOG held.
+    private static void recordChange(@NonNull String taskId) {
+        Long previousVersion = TASK_VERSIONS.put(taskId, ++sVersion);
+        if(previousVersion != null) {
+            CHANGE_LOG.remove(previousVersion);
+        }
+        CHANGE_LOG.put(sVersion, taskId);
+    }
+
+    // Writes hold CHANGE_LOG, so reads copy what they need under it too.
+    @NonNull
+    private static List<Task> snapshot() {
+        synchronized(CHANGE_LOG) {
+            return new ArrayList<>(TASKS_SERVICE_DATA.values());
+        }
+    }
+
+    @Nullable
+    private static Task findTask(@NonNull String taskId) {
+        synchronized(CHANGE_LOG) {
+            return TASKS_SERVICE_DATA.get(taskId);
+        }
     }
 
     @Override
     public Flowable<List<Task>> getTasks() {
         return Flowable
-                .fromIterable(TASKS_SERVICE_DATA.values())
+                .defer(() -> Flowable.fromIterable(snapshot()))
                 .delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS)
                 .toList()
                 .toFlowable();
     }
 
+    @Override
+    public Flowable<TasksResponse> getTasksIfModified(@Nullable String validator) {
+        TasksResponse response;
+        synchronized(CHANGE_LOG) {
+            // Every change bumps the version, so it doubles as the entity tag of the whole list.
+            String currentValidator = "\"" + sVersion + "\"";
+            response = currentValidator.equals(validator)
+                    ? TasksResponse.notModified(currentValidator)
+                    : TasksResponse.modified(new ArrayList<>(TASKS_SERVICE_DATA.values()), currentValidator);
+        }
+        return Flowable.just(response).delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        return Flowable
+                .defer(() -> Flowable.fromIterable(snapshot()))
+                .filter(filterType::accept)
+                .delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS)
+                .toList()
+                .toFlowable();
+    }
+
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        List<Task> tasks = new ArrayList<>();
+        for(Task task : snapshot()) {
+            if(filterType.accept(task)) {
+                tasks.add(task);
+            }
+        }
+        int from = (int) Math.min(afterKey, tasks.size());
+        int to = Math.min(from + pageSize, tasks.size());
+        TasksPage page = new TasksPage(new ArrayList<>(tasks.subList(from, to)), afterKey, to, to < tasks.size());
+        return Flowable.just(page).delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
-        final Task task = TASKS_SERVICE_DATA.get(taskId);
+        final Task task = findTask(taskId);
         if(task != null) {
             return Flowable.just(Optional.of(task)).delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS);
         } else {
@@ -57,40 +148,103 @@ public class TasksRemoteDataSource implements TasksDataSource {
         }
     }
 
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        List<Task> tasks = snapshot();
+        int completed = 0;
+        for(Task task : tasks) {
+            if(task.isCompleted()) {
+                completed++;
+            }
+        }
+        TaskCounts counts = new TaskCounts(tasks.size() - completed, completed);
+        return Flowable.just(counts).delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Flowable<TasksDelta> getChangesSince(long version) {
+        List<Task> changedTasks = new ArrayList<>();
+        List<String> deletedTaskIds = new ArrayList<>();
+        long currentVersion;
+        synchronized(CHANGE_LOG) {
+            for(String taskId : CHANGE_LOG.tailMap(version, false).values()) {
+                Task task = TASKS_SERVICE_DATA.get(taskId);
+                if(task != null) {
+                    changedTasks.add(task);
+                } else {
+                    deletedTaskIds.add(taskId);
+                }
+            }
+            currentVersion = sVersion;
+        }
+        TasksDelta delta = TasksDelta.changes(changedTasks, deletedTaskIds, currentVersion);
+        return Flowable.just(delta).delay(SERVICE_LATENCY_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public void saveTask(@NonNull Task task) {
-        TASKS_SERVICE_DATA.put(task.getId(), task);
+        putTask(task);
+    }
+
+    @Override
+    public void saveTasks(@NonNull Collection<Task> tasks) {
+        for(Task task : tasks) {
+            saveTask(task);
+        }
     }
 
     @Override
     public void completeTask(@NonNull Task task) {
-        Task completedTask = new Task(task.getTitle(), task.getDescription(), task.getId(), true);
-        TASKS_SERVICE_DATA.put(task.getId(), completedTask);
+        putTask(new Task(task.getTitle(), task.getDescription(), task.getId(), true));
     }
 
     @Override
     public void completeTask(@NonNull String taskId) {
+        // Held across the lookup so a concurrent delete cannot be undone by the write.
+        synchronized(CHANGE_LOG) {
+            Task task = TASKS_SERVICE_DATA.get(taskId);
+            if(task != null) {
+                completeTask(task);
+            }
+        }
+    }
 
+    @Override
+    public void completeTasks(@NonNull Collection<String> taskIds) {
+        for(String taskId : taskIds) {
+            completeTask(taskId);
+        }
     }
 
     @Override
     public void activateTask(@NonNull Task task) {
-        Task activeTask = new Task(task.getTitle(), task.getDescription(), task.getId());
-        TASKS_SERVICE_DATA.put(task.getId(), activeTask);
+        putTask(new Task(task.getTitle(), task.getDescription(), task.getId()));
     }
 
     @Override
     public void activateTask(@NonNull String taskId) {
+        synchronized(CHANGE_LOG) {
+            Task task = TASKS_SERVICE_DATA.get(taskId);
+            if(task != null) {
+                activateTask(task);
+            }
+        }
+    }
 
+    @Override
+    public void activateTasks(@NonNull Collection<String> taskIds) {
+        for(String taskId : taskIds) {
+            activateTask(taskId);
+        }
     }
 
     @Override
     public void clearCompletedTasks() {
-        Iterator<Map.Entry<String, Task>> it = TASKS_SERVICE_DATA.entrySet().iterator();
-        while(it.hasNext()) {
-            Map.Entry<String, Task> entry = it.next();
-            if(entry.getValue().isCompleted()) {
-                it.remove();
+        synchronized(CHANGE_LOG) {
+            for(Task task : new ArrayList<>(TASKS_SERVICE_DATA.values())) {
+                if(task.isCompleted()) {
+                    removeTask(task.getId());
+                }
             }
         }
     }
@@ -102,11 +256,22 @@ public class TasksRemoteDataSource implements TasksDataSource {
 
     @Override
     public void deleteAllTasks() {
-        TASKS_SERVICE_DATA.clear();
+        synchronized(CHANGE_LOG) {
+            for(String taskId : new ArrayList<>(TASKS_SERVICE_DATA.keySet())) {
+                removeTask(taskId);
+            }
+        }
     }
 
     @Override
     public void deleteTask(@NonNull String taskId) {
-        TASKS_SERVICE_DATA.remove(taskId);
+        removeTask(taskId);
+    }
+
+    @Override
+    public void deleteTasks(@NonNull Collection<String> taskIds) {
+        for(String taskId : taskIds) {
+            deleteTask(taskId);
+        }
     }
 }
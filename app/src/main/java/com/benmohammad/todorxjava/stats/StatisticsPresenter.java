@@ -1,18 +1,13 @@
 package com.benmohammad.todorxjava.stats;
 
-import android.util.Pair;
-
 import androidx.annotation.NonNull;
 
-import com.benmohammad.todorxjava.data.Task;
 import com.benmohammad.todorxjava.data.source.TasksRepository;
 import com.benmohammad.todorxjava.util.EspressoIdlingResource;
 import com.benmohammad.todorxjava.util.schedulers.BaseSchedulerProvider;
-import com.google.common.primitives.Ints;
 
 import javax.annotation.Nonnull;
 
-import io.reactivex.Flowable;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
 
@@ -58,15 +53,8 @@ public class StatisticsPresenter implements StatisticsContract.Presenter {
         mStatisticsView.setProgressIndicator(true);
         EspressoIdlingResource.increment();
 
-        Flowable<Task> tasks = mTasksRepository
-                .getTasks()
-                .flatMap(Flowable::fromIterable);
-
-        Flowable<Long> completedTasks = tasks.filter(Task::isCompleted).count().toFlowable();
-        Flowable<Long> activeTasks = tasks.filter(Task::isActive).count().toFlowable();
-
-        Disposable disposable = Flowable
-                .zip(completedTasks, activeTasks, (completed, active) -> Pair.create(active, completed))
+        Disposable disposable = mTasksRepository
+                .observeTaskCounts()
                 .subscribeOn(mSchedulerProvider.computation())
                 .observeOn(mSchedulerProvider.ui())
                 .doFinally(() -> {
@@ -75,9 +63,14 @@ public class StatisticsPresenter implements StatisticsContract.Presenter {
                     }
                 })
                 .subscribe(
-                        stats -> mStatisticsView.showStatistics(Ints.saturatedCast(stats.first), Ints.saturatedCast(stats.second)),
-                        throwable -> mStatisticsView.showLoadingStatisticsError(),
-                        () -> mStatisticsView.setProgressIndicator(false));
+                        counts -> {
+                            if(!EspressoIdlingResource.getIdlingResource().isIdleNow()) {
+                                EspressoIdlingResource.decrement();
+                            }
+                            mStatisticsView.setProgressIndicator(false);
+                            mStatisticsView.showStatistics(counts.getActiveCount(), counts.getCompletedCount());
+                        },
+                        throwable -> mStatisticsView.showLoadingStatisticsError());
 
         compositeDisposable.add(disposable);
 
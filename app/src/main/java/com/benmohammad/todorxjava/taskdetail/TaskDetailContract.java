@@ -17,6 +17,7 @@ public interface TaskDetailContract {
         void showTaskDeleted();
         void showTaskMarkedComplete();
         void showTaskMarkedActive();
+        void showSaveTaskError();
         boolean isActive();
 
     }
@@ -149,6 +149,11 @@ public class TaskDetailFragment extends Fragment implements TaskDetailContract.V
         Snackbar.make(getView(), getString(R.string.task_marked_active), Snackbar.LENGTH_SHORT).show();
     }
 
+    @Override
+    public void showSaveTaskError() {
+        Snackbar.make(getView(), getString(R.string.save_task_error), Snackbar.LENGTH_SHORT).show();
+    }
+
     @Override
     public boolean isActive() {
         return isAdded();
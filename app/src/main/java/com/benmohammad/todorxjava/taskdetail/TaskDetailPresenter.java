@@ -6,10 +6,10 @@ import androidx.annotation.Nullable;
 import com.benmohammad.todorxjava.data.Task;
 import com.benmohammad.todorxjava.data.source.TasksRepository;
 import com.benmohammad.todorxjava.util.schedulers.BaseSchedulerProvider;
+import com.benmohammad.todorxjava.util.schedulers.MutationRunner;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
 
-
 import io.reactivex.disposables.CompositeDisposable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -30,6 +30,9 @@ public class TaskDetailPresenter implements TaskDetailContract.Presenter {
     @NonNull
     private CompositeDisposable compositeDisposable;
 
+    @NonNull
+    private final MutationRunner mMutations;
+
     public TaskDetailPresenter(@Nullable String taskId,
                                @NonNull TasksRepository tasksRepository,
                                @NonNull TaskDetailContract.View taskDetailView,
@@ -39,6 +42,7 @@ public class TaskDetailPresenter implements TaskDetailContract.Presenter {
         mTaskDetailView = checkNotNull(taskDetailView, "tasks detail view cannot be null");
         mSchedulerProvider = checkNotNull(schedulerProvider, "scheduler cannot be null");
         compositeDisposable = new CompositeDisposable();
+        mMutations = new MutationRunner(schedulerProvider);
         mTaskDetailView.setPresenter(this);
     }
 
@@ -58,9 +62,8 @@ public class TaskDetailPresenter implements TaskDetailContract.Presenter {
             mTaskDetailView.showMissingTask();
             return;
         }
-        mTasksRepository.deleteTask(mTaskId);
-        mTaskDetailView.showTaskDeleted();
-
+        mMutations.run(mTasksRepository.deleteTaskAsync(mTaskId),
+                mTaskDetailView::showTaskDeleted, mTaskDetailView::showSaveTaskError);
     }
 
     @Override
@@ -69,8 +72,8 @@ public class TaskDetailPresenter implements TaskDetailContract.Presenter {
             mTaskDetailView.showMissingTask();
             return;
         }
-        mTasksRepository.completeTask(mTaskId);
-        mTaskDetailView.showTaskMarkedComplete();
+        mMutations.run(mTasksRepository.completeTaskAsync(mTaskId),
+                mTaskDetailView::showTaskMarkedComplete, mTaskDetailView::showSaveTaskError);
     }
 
     @Override
@@ -79,8 +82,8 @@ public class TaskDetailPresenter implements TaskDetailContract.Presenter {
             mTaskDetailView.showMissingTask();
             return;
         }
-        mTasksRepository.activateTask(mTaskId);
-        mTaskDetailView.showTaskMarkedActive();
+        mMutations.run(mTasksRepository.activateTaskAsync(mTaskId),
+                mTaskDetailView::showTaskMarkedActive, mTaskDetailView::showSaveTaskError);
     }
 
     @Override
@@ -91,6 +94,7 @@ public class TaskDetailPresenter implements TaskDetailContract.Presenter {
     @Override
     public void unsubscribe() {
         compositeDisposable.clear();
+        mMutations.clear();
     }
 
     private void openTask() {
@@ -6,6 +6,7 @@ import com.benmohammad.todorxjava.BasePresenter;
 import com.benmohammad.todorxjava.BaseView;
 import com.benmohammad.todorxjava.data.Task;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TasksContract {
@@ -14,12 +15,16 @@ public interface TasksContract {
 
         void setLoadingIndicator(boolean active);
         void showTasks(List<Task> tasks);
+        void showMoreTasks(List<Task> tasks);
+        void updateTasks(List<Task> tasks);
+        void removeTasks(Collection<String> taskIds);
         void showAddTask();
         void showTaskDetailsUI(String taskId);
         void showTaskMarkedComplete();
         void showTaskMarkedActive();
         void showCompletedTasksCleared();
         void showLoadingTasksError();
+        void showSaveTaskError();
         void showNoTasks();
         void showActiveFilterLabel();
         void showCompletedFilterLabel();
@@ -33,6 +38,7 @@ public interface TasksContract {
     interface Presenter extends BasePresenter {
         void result(int requestCode, int resultCode);
         void loadTasks(boolean forceUpdate);
+        void loadMoreTasks(int boundPosition);
         void addNewTask();
         void openTaskDetails(@NonNull Task requestedTask);
         void completeTasks(@NonNull Task completedTask);
@@ -1,8 +1,24 @@
 package com.benmohammad.todorxjava.tasks;
 
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+
 public enum TasksFilterType {
 
     ALL_TASKS,
     ACTIVE_TASKS,
-    COMPLETED_TASKS
+    COMPLETED_TASKS;
+
+    public boolean accept(@NonNull Task task) {
+        switch(this) {
+            case ACTIVE_TASKS:
+                return task.isActive();
+            case COMPLETED_TASKS:
+                return task.isCompleted();
+            case ALL_TASKS:
+            default:
+                return true;
+        }
+    }
 }
@@ -30,7 +30,10 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.snackbar.Snackbar;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -87,6 +90,21 @@ public class TasksFragment extends Fragment implements TasksContract.View {
         mNoTasksView.setVisibility(View.GONE);
     }
 
+    @Override
+    public void showMoreTasks(List<Task> tasks) {
+        mListAdapter.appendData(tasks);
+    }
+
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        mListAdapter.updateData(tasks);
+    }
+
+    @Override
+    public void removeTasks(Collection<String> taskIds) {
+        mListAdapter.removeData(taskIds);
+    }
+
     @Override
     public void showAddTask() {
         Intent intent = new Intent(getContext(), AddEditTaskActivity.class);
@@ -123,6 +141,11 @@ public class TasksFragment extends Fragment implements TasksContract.View {
 
     }
 
+    @Override
+    public void showSaveTaskError() {
+        showMessage(getString(R.string.save_task_error));
+    }
+
     private void showMessage(String message) {
         Snackbar.make(getView(), message, Snackbar.LENGTH_SHORT).show();
     }
@@ -252,6 +275,11 @@ public class TasksFragment extends Fragment implements TasksContract.View {
         public void onActivateTaskClick(Task activatedTask) {
             mPresenter.activeTask(activatedTask);
         }
+
+        @Override
+        public void onTaskBound(int position) {
+            mPresenter.loadMoreTasks(position);
+        }
     };
 
     @Override
@@ -307,6 +335,7 @@ public class TasksFragment extends Fragment implements TasksContract.View {
 
     private static class TasksAdapter extends BaseAdapter {
         private List<Task> mTasks;
+        private Map<String, Integer> mPositions;
         private TaskItemListener mItemListener;
 
         public TasksAdapter(List<Task> tasks, TaskItemListener listener) {
@@ -319,8 +348,53 @@ public class TasksFragment extends Fragment implements TasksContract.View {
             notifyDataSetChanged();
         }
 
+        public void appendData(List<Task> tasks) {
+            for(Task task : checkNotNull(tasks)) {
+                Integer position = mPositions.get(task.getId());
+                if(position != null) {
+                    mTasks.set(position, task);
+                } else {
+                    mPositions.put(task.getId(), mTasks.size());
+                    mTasks.add(task);
+                }
+            }
+            notifyDataSetChanged();
+        }
+
+        public void removeData(Collection<String> taskIds) {
+            List<Task> tasks = new ArrayList<>(mTasks.size());
+            for(Task task : mTasks) {
+                if(!checkNotNull(taskIds).contains(task.getId())) {
+                    tasks.add(task);
+                }
+            }
+            if(tasks.size() != mTasks.size()) {
+                setList(tasks);
+                notifyDataSetChanged();
+            }
+        }
+
+        public void updateData(List<Task> tasks) {
+            boolean changed = false;
+            for(Task task : checkNotNull(tasks)) {
+                Integer position = mPositions.get(task.getId());
+                if(position != null) {
+                    mTasks.set(position, task);
+                    changed = true;
+                }
+            }
+            if(changed) {
+                notifyDataSetChanged();
+            }
+        }
+
         private void setList(List<Task> tasks) {
-            mTasks = checkNotNull(tasks);
+            mTasks = new ArrayList<>(checkNotNull(tasks).size());
+            mPositions = new HashMap<>();
+            for(Task task : tasks) {
+                mPositions.put(task.getId(), mTasks.size());
+                mTasks.add(task);
+            }
         }
 
         @Override
@@ -368,6 +442,8 @@ public class TasksFragment extends Fragment implements TasksContract.View {
 
             rowView.setOnClickListener(v -> mItemListener.onTaskClick(task));
 
+            mItemListener.onTaskBound(position);
+
             return rowView;
 
         }
@@ -377,5 +453,6 @@ public class TasksFragment extends Fragment implements TasksContract.View {
         void onTaskClick(Task clickedTask);
         void onCompleteTaskClick(Task completedTask);
         void onActivateTaskClick(Task activatedTask);
+        void onTaskBound(int position);
     }
 }
@@ -3,25 +3,38 @@ package com.benmohammad.todorxjava.tasks;
 import android.app.Activity;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.benmohammad.todorxjava.addedittask.AddEditTaskActivity;
 import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskChangeSet;
+import com.benmohammad.todorxjava.data.source.TasksPager;
 import com.benmohammad.todorxjava.data.source.TasksRepository;
 import com.benmohammad.todorxjava.util.EspressoIdlingResource;
 import com.benmohammad.todorxjava.util.schedulers.BaseSchedulerProvider;
+import com.benmohammad.todorxjava.util.schedulers.MutationRunner;
+import com.google.common.base.Optional;
+import com.google.common.collect.Sets;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-
-import javax.annotation.Nonnegative;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.reactivex.Flowable;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class TasksPresenter implements TasksContract.Presenter {
 
+    private static final int PAGE_SIZE = 50;
+
+    private static final int PREFETCH_DISTANCE = 15;
+
     @NonNull
     private final TasksRepository mTasksRepository;
 
@@ -36,15 +49,28 @@ public class TasksPresenter implements TasksContract.Presenter {
 
     private boolean mFirstLoad = true;
 
+    @Nullable
+    private TasksPager mTasksPager;
+
+    @NonNull
+    private final Set<String> mShownTaskIds = new HashSet<>();
+
     @NonNull
     private CompositeDisposable mCompositeDisposable;
 
+    @NonNull
+    private final CompositeDisposable mTaskChangesDisposable = new CompositeDisposable();
+
+    @NonNull
+    private final MutationRunner mMutations;
+
     public TasksPresenter(@NonNull TasksRepository tasksRepository,
                           @NonNull TasksContract.View tasksView,
                           @NonNull BaseSchedulerProvider schedulerProvider) {
         mTasksRepository = checkNotNull(tasksRepository, "tasksRepo cannot be null");
         mTasksView = checkNotNull(tasksView, "tasksView cannot be null");
         mSchedulerProvider = checkNotNull(schedulerProvider, "schedulerProvider cannot be null");
+        mMutations = new MutationRunner(schedulerProvider);
         mCompositeDisposable = new CompositeDisposable();
         mTasksView.setPresenter(this);
     }
@@ -70,38 +96,145 @@ public class TasksPresenter implements TasksContract.Presenter {
             mTasksRepository.refreshTasks();
         }
 
+        // The page stream stays open for later pages, so the load counts as done at the first page,
+        // or when the stream ends before it; whichever comes first decrements.
         EspressoIdlingResource.increment();
+        AtomicBoolean loaded = new AtomicBoolean(false);
+        Action onLoaded = () -> {
+            if(loaded.compareAndSet(false, true)) {
+                EspressoIdlingResource.decrement();
+            }
+        };
 
         mCompositeDisposable.clear();
-        Disposable disposable = mTasksRepository
-                .getTasks()
-                .flatMap(Flowable::fromIterable)
-                .filter(task -> {
-                    switch(mCurrentFiltering) {
-                        case ACTIVE_TASKS:
-                            return task.isActive();
-                        case COMPLETED_TASKS:
-                            return task.isCompleted();
-                        case ALL_TASKS:
-                        default:
-                            return true;
-                    }
-                }).toList()
+        mTasksPager = new TasksPager(mTasksRepository, mCurrentFiltering, PAGE_SIZE, PREFETCH_DISTANCE);
+        Disposable disposable = mTasksPager
+                .pages()
                 .subscribeOn(mSchedulerProvider.io())
                 .observeOn(mSchedulerProvider.ui())
-                .doFinally(() -> {
-                    if(!EspressoIdlingResource.getIdlingResource().isIdleNow()) {
-                        EspressoIdlingResource.decrement();
-                    }
-                }).subscribe(tasks -> {
-                        processTasks(tasks);
-                        mTasksView.setLoadingIndicator(false);
+                .doFinally(onLoaded)
+                .subscribe(page -> {
+                        if(page.isFirstPage()) {
+                            onLoaded.run();
+                            mShownTaskIds.clear();
+                            addShownTasks(page.getTasks());
+                            processTasks(page.getTasks());
+                            mTasksView.setLoadingIndicator(false);
+                        } else if(!page.isEmpty()) {
+                            addShownTasks(page.getTasks());
+                            mTasksView.showMoreTasks(page.getTasks());
+                        }
                 },
-                        throwable -> mTasksView .showLoadingTasksError());
+                        throwable -> mTasksView.showLoadingTasksError());
 
         mCompositeDisposable.add(disposable);
     }
 
+    @Override
+    public void loadMoreTasks(int boundPosition) {
+        if(mTasksPager != null) {
+            mTasksPager.onItemBound(boundPosition);
+        }
+    }
+
+    // Applies a change set to the pages already shown instead of reloading them. Only an
+    // invalidation, or a task that moves into the current filter, needs a reload: keyset pages
+    // already past its position would never load it. Updates that only carry an id are looked up
+    // first and applied once the tasks are known.
+    private void processTaskChanges(@NonNull TaskChangeSet changes) {
+        if(changes.isInvalidated()) {
+            loadTasks(false, false);
+            return;
+        }
+        List<Task> updatedTasks = new ArrayList<>();
+        List<Task> newTasks = new ArrayList<>();
+        Set<String> removedIds = new HashSet<>();
+        Set<String> unknownIds = new HashSet<>();
+        for(String taskId : changes.getRemovedIds()) {
+            if(mShownTaskIds.contains(taskId)) {
+                removedIds.add(taskId);
+            }
+        }
+        for(String taskId : Sets.union(changes.getInsertedIds(), changes.getUpdatedIds())) {
+            Task task = changes.getTask(taskId);
+            boolean shown = mShownTaskIds.contains(taskId);
+            if(task == null) {
+                unknownIds.add(taskId);
+            } else if(!mCurrentFiltering.accept(task)) {
+                if(shown) {
+                    removedIds.add(taskId);
+                }
+            } else if(shown) {
+                updatedTasks.add(task);
+            } else if(!changes.getInsertedIds().contains(taskId)) {
+                loadTasks(false, false);
+                return;
+            } else if(mTasksPager != null && mTasksPager.isFullyLoaded()) {
+                // New rows sort last, so a pager that still has pages to load will reach them.
+                newTasks.add(task);
+            }
+        }
+
+        if(!updatedTasks.isEmpty()) {
+            mTasksView.updateTasks(updatedTasks);
+        }
+        if(!removedIds.isEmpty()) {
+            mShownTaskIds.removeAll(removedIds);
+            mTasksView.removeTasks(removedIds);
+            if(mTasksPager != null) {
+                mTasksPager.onItemsRemoved(removedIds.size());
+            }
+        }
+        if(!newTasks.isEmpty()) {
+            boolean wasEmpty = mShownTaskIds.isEmpty();
+            addShownTasks(newTasks);
+            if(mTasksPager != null) {
+                mTasksPager.onItemsInserted(newTasks.size());
+            }
+            if(wasEmpty) {
+                processTasks(newTasks);
+            } else {
+                mTasksView.showMoreTasks(newTasks);
+            }
+        } else if(!removedIds.isEmpty() && mShownTaskIds.isEmpty()) {
+            processEmptyTasks();
+        }
+        if(!unknownIds.isEmpty()) {
+            loadChangedTasks(unknownIds);
+        }
+    }
+
+    // Completing or activating a task the repository has not cached publishes only its id, so
+    // the task is read back to find out whether it still belongs on screen. A reload replaces the
+    // pages anyway, so it also cancels the lookup.
+    private void loadChangedTasks(@NonNull Set<String> taskIds) {
+        TaskChangeSet.Builder changes = new TaskChangeSet.Builder();
+        Disposable disposable = Flowable
+                .fromIterable(taskIds)
+                .concatMap(taskId -> mTasksRepository
+                        .getTask(taskId)
+                        .take(1)
+                        .defaultIfEmpty(Optional.absent())
+                        .doOnNext(task -> {
+                            if(task.isPresent()) {
+                                changes.update(task.get());
+                            } else {
+                                changes.remove(taskId);
+                            }
+                        }))
+                .ignoreElements()
+                .subscribeOn(mSchedulerProvider.io())
+                .observeOn(mSchedulerProvider.ui())
+                .subscribe(() -> processTaskChanges(changes.build()), throwable -> loadTasks(false, false));
+        mCompositeDisposable.add(disposable);
+    }
+
+    private void addShownTasks(@NonNull List<Task> tasks) {
+        for(Task task : tasks) {
+            mShownTaskIds.add(task.getId());
+        }
+    }
+
     private void processTasks(@NonNull List<Task> tasks) {
         if(tasks.isEmpty()) {
             processEmptyTasks();
@@ -153,24 +286,21 @@ public class TasksPresenter implements TasksContract.Presenter {
     @Override
     public void completeTasks(@NonNull Task completedTask) {
         checkNotNull(completedTask, "completedTask cannot be null");
-        mTasksRepository.completeTask(completedTask);
-        mTasksView.showTaskMarkedComplete();
-        loadTasks(false, false);
+        mMutations.run(mTasksRepository.completeTaskAsync(completedTask.getId()),
+                mTasksView::showTaskMarkedComplete, mTasksView::showSaveTaskError);
     }
 
     @Override
     public void activeTask(@NonNull Task activeTask) {
         checkNotNull(activeTask, "activeTask cannot be null");
-        mTasksRepository.activateTask(activeTask);
-        mTasksView.showTaskMarkedActive();
-        loadTasks(false, false);
+        mMutations.run(mTasksRepository.activateTaskAsync(activeTask.getId()),
+                mTasksView::showTaskMarkedActive, mTasksView::showSaveTaskError);
     }
 
     @Override
     public void clearCompletedTasks() {
-        mTasksRepository.clearCompletedTasks();
-        mTasksView.showCompletedTasksCleared();
-        loadTasks(false, false);
+        mMutations.run(mTasksRepository.clearCompletedTasksAsync(),
+                mTasksView::showCompletedTasksCleared, mTasksView::showSaveTaskError);
     }
 
     @Override
@@ -186,11 +316,19 @@ public class TasksPresenter implements TasksContract.Presenter {
     @Override
     public void subscribe() {
         loadTasks(false);
-
+        mTasksRepository.connectChangeStream();
+        mTaskChangesDisposable.clear();
+        mTaskChangesDisposable.add(mTasksRepository
+                .getTaskChanges()
+                .observeOn(mSchedulerProvider.ui())
+                .subscribe(this::processTaskChanges, throwable -> mTasksView.showLoadingTasksError()));
     }
 
     @Override
     public void unsubscribe() {
         mCompositeDisposable.clear();
+        mTaskChangesDisposable.clear();
+        mMutations.clear();
+        mTasksRepository.disconnectChangeStream();
     }
 }
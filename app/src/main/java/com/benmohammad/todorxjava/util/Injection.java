@@ -1,11 +1,23 @@
 package com.benmohammad.todorxjava.util;
 
+import android.app.ActivityManager;
 import android.content.Context;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import com.benmohammad.todorxjava.BuildConfig;
+import com.benmohammad.todorxjava.data.source.CachePolicy;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
 import com.benmohammad.todorxjava.data.source.TasksRepository;
 import com.benmohammad.todorxjava.data.source.local.TasksLocalDataSource;
+import com.benmohammad.todorxjava.data.source.remote.HttpTasksRemoteDataSource;
+import com.benmohammad.todorxjava.data.source.remote.OutboxRemoteDataSource;
+import com.benmohammad.todorxjava.data.source.remote.RemotePolicy;
+import com.benmohammad.todorxjava.data.source.remote.ResilientRemoteDataSource;
+import com.benmohammad.todorxjava.data.source.remote.SimulatedBackendConfig;
+import com.benmohammad.todorxjava.data.source.remote.SimulatedRemoteDataSource;
 import com.benmohammad.todorxjava.data.source.remote.TasksRemoteDataSource;
 import com.benmohammad.todorxjava.util.schedulers.BaseSchedulerProvider;
 import com.benmohammad.todorxjava.util.schedulers.SchedulerProvider;
@@ -14,10 +26,86 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 public class Injection {
 
+    private static final long LOW_RAM_CACHE_BYTES = 512 * 1024;
+    private static final long DEFAULT_CACHE_BYTES = 4 * 1024 * 1024;
+
+    @Nullable
+    private static String sHttpBackendUrl;
+
+    @Nullable
+    private static SimulatedBackendConfig sSimulatedBackend;
+
+    /**
+     * Makes the repository talk to the HTTP backend at {@code baseUrl}. Takes precedence over a
+     * simulated backend; {@code null} restores the default remote.
+     */
+    public static void useHttpBackend(@Nullable String baseUrl) {
+        sHttpBackendUrl = baseUrl;
+        destroyRemoteInstances();
+    }
+
+    /**
+     * Makes the repository talk to a {@link SimulatedRemoteDataSource} built from {@code config}
+     * instead of the default remote, for load tests and benchmarks. {@code null} restores the
+     * default remote.
+     */
+    public static void useSimulatedBackend(@Nullable SimulatedBackendConfig config) {
+        sSimulatedBackend = config;
+        destroyRemoteInstances();
+    }
+
+    // The wrappers and the repository hold on to the remote they were built with, so they go too
+    // and the next provideTasksRepository() builds them around the new backend. Mutations still
+    // queued for the old backend are dropped.
+    private static void destroyRemoteInstances() {
+        TasksRepository.destroyInstance();
+        OutboxRemoteDataSource.destroyInstanceAndClearOutbox();
+        ResilientRemoteDataSource.destroyInstance();
+        HttpTasksRemoteDataSource.destroyInstance();
+        SimulatedRemoteDataSource.destroyInstance();
+    }
+
     public static TasksRepository provideTasksRepository(@NonNull Context context) {
         checkNotNull(context);
-        return TasksRepository.getInstance(TasksRemoteDataSource.getInstance(),
-                TasksLocalDataSource.getInstance(context, provideSchedulerProvider()));
+        BaseSchedulerProvider schedulerProvider = provideSchedulerProvider();
+        TasksLocalDataSource localDataSource = TasksLocalDataSource.getInstance(context, schedulerProvider);
+        TasksDataSource resilientRemote = ResilientRemoteDataSource.getInstance(provideRemoteDataSource(),
+                RemotePolicy.defaults(), schedulerProvider.io());
+        TasksDataSource remoteDataSource = OutboxRemoteDataSource.getInstance(resilientRemote,
+                localDataSource.getOutbox(), schedulerProvider.io());
+        TasksRepository repository = TasksRepository.getInstance(remoteDataSource, localDataSource,
+                provideCachePolicy(context), schedulerProvider.io());
+        repository.setStaleWhileRevalidate(true);
+        if(BuildConfig.DEBUG) {
+            repository.setMutationThreadCheck(Injection::checkNotOnMainThread);
+        }
+        return repository;
+    }
+
+    private static void checkNotOnMainThread() {
+        if(Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("Task mutations must not run on the main thread");
+        }
+    }
+
+    public static TasksDataSource provideRemoteDataSource() {
+        String httpBackendUrl = sHttpBackendUrl;
+        if(httpBackendUrl != null) {
+            return HttpTasksRemoteDataSource.getInstance(httpBackendUrl, provideSchedulerProvider().io());
+        }
+        SimulatedBackendConfig simulatedBackend = sSimulatedBackend;
+        if(simulatedBackend != null) {
+            return SimulatedRemoteDataSource.getInstance(simulatedBackend);
+        }
+        return TasksRemoteDataSource.getInstance();
+    }
+
+    public static CachePolicy provideCachePolicy(@NonNull Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if(activityManager != null && activityManager.isLowRamDevice()) {
+            return CachePolicy.maxBytes(LOW_RAM_CACHE_BYTES);
+        }
+        return CachePolicy.maxBytes(DEFAULT_CACHE_BYTES);
     }
 
     public static BaseSchedulerProvider provideSchedulerProvider() {
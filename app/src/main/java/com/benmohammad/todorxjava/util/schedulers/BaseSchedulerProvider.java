@@ -14,4 +14,10 @@ public interface BaseSchedulerProvider {
 
     @NonNull
     Scheduler ui();
+
+    /**
+     * Single-threaded scheduler that serializes every write to the local database.
+     */
+    @NonNull
+    Scheduler dbWrite();
 }
@@ -24,4 +24,10 @@ public class ImmediateSchedulerProvider implements BaseSchedulerProvider {
     public Scheduler ui() {
         return Schedulers.trampoline();
     }
+
+    @NonNull
+    @Override
+    public Scheduler dbWrite() {
+        return Schedulers.trampoline();
+    }
 }
@@ -0,0 +1,39 @@
+package com.benmohammad.todorxjava.util.schedulers;
+
+import androidx.annotation.NonNull;
+
+import io.reactivex.Completable;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.functions.Action;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs repository writes for a presenter on the io scheduler and reports the outcome on the ui
+ * scheduler. The write is cached, so {@link #clear()} only detaches the view; it never cancels a
+ * write that has started.
+ */
+public class MutationRunner {
+
+    @NonNull
+    private final BaseSchedulerProvider mSchedulerProvider;
+
+    @NonNull
+    private final CompositeDisposable mDisposables = new CompositeDisposable();
+
+    public MutationRunner(@NonNull BaseSchedulerProvider schedulerProvider) {
+        mSchedulerProvider = checkNotNull(schedulerProvider, "schedulerProvider cannot be null");
+    }
+
+    public void run(@NonNull Completable mutation, @NonNull Action onComplete, @NonNull Action onError) {
+        checkNotNull(onError);
+        Completable write = checkNotNull(mutation).subscribeOn(mSchedulerProvider.io()).cache();
+        mDisposables.add(write
+                .observeOn(mSchedulerProvider.ui())
+                .subscribe(checkNotNull(onComplete), throwable -> onError.run()));
+    }
+
+    public void clear() {
+        mDisposables.clear();
+    }
+}
@@ -3,6 +3,8 @@ package com.benmohammad.todorxjava.util.schedulers;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.concurrent.Executors;
+
 import io.reactivex.Scheduler;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.schedulers.Schedulers;
@@ -12,6 +14,13 @@ public class SchedulerProvider implements BaseSchedulerProvider {
     @Nullable
     private static SchedulerProvider INSTANCE;
 
+    @NonNull
+    private final Scheduler mDbWriteScheduler = Schedulers.from(Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tasks-db-writer");
+        thread.setDaemon(true);
+        return thread;
+    }));
+
     public SchedulerProvider() {}
 
     public static synchronized SchedulerProvider getInstance() {
@@ -38,4 +47,10 @@ public class SchedulerProvider implements BaseSchedulerProvider {
     public Scheduler ui() {
         return AndroidSchedulers.mainThread();
     }
+
+    @NonNull
+    @Override
+    public Scheduler dbWrite() {
+        return mDbWriteScheduler;
+    }
 }
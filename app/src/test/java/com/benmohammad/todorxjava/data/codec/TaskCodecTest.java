@@ -0,0 +1,127 @@
+package com.benmohammad.todorxjava.data.codec;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskCodecTest {
+
+    @Test
+    public void roundTrip_keepsEveryField() throws IOException {
+        List<Task> tasks = Arrays.asList(
+                new Task("title", "description", UUID.randomUUID().toString(), true),
+                new Task(null, null, "not-a-uuid"),
+                new Task("\u00fcnicode \u2713", "", "6F9619FF-8B86-D011-B42D-00C04FC964FF"),
+                new Task("title", "same title again"),
+                new Task(repeat('x', 20000), repeat('y', 300), "long"));
+
+        for(boolean titleDictionary : new boolean[] {false, true}) {
+            List<Task> decoded = TaskCodec.decode(TaskCodec.encode(tasks, titleDictionary));
+
+            assertEquals(tasks.size(), decoded.size());
+            for(int i = 0; i < tasks.size(); i++) {
+                assertEquals(tasks.get(i), decoded.get(i));
+                assertEquals(tasks.get(i).getDescription(), decoded.get(i).getDescription());
+                assertEquals(tasks.get(i).isCompleted(), decoded.get(i).isCompleted());
+            }
+            assertNull(decoded.get(1).getTitle());
+        }
+    }
+
+    @Test
+    public void uuidIds_takeSixteenBytes() throws IOException {
+        byte[] bytes = TaskCodec.encode(Collections.singletonList(new Task(null, null, UUID.randomUUID().toString())), false);
+
+        // header, tag, id, end marker
+        assertEquals(4 + 1 + 16 + 1, bytes.length);
+    }
+
+    @Test
+    public void titleDictionary_shrinksRepeatedTitles() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            tasks.add(new Task("Buy groceries for the week " + (i % 10), null, UUID.randomUUID().toString()));
+        }
+
+        byte[] plain = TaskCodec.encode(tasks, false);
+        byte[] compressed = TaskCodec.encode(tasks, true);
+
+        assertTrue(plain.length + " vs " + compressed.length, compressed.length < plain.length / 2);
+        assertEquals(tasks, TaskCodec.decode(compressed));
+    }
+
+    @Test
+    public void streams_canBeWrittenAndReadIncrementally() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskEncoder encoder = new TaskEncoder(out, true);
+        encoder.write(new Task("a", "b", "first"));
+        encoder.write(new Task("a", "c", "second"));
+        encoder.finish();
+
+        TaskDecoder decoder = new TaskDecoder(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("first", decoder.read().getId());
+        assertEquals("c", decoder.read().getDescription());
+        assertNull(decoder.read());
+        assertNull(decoder.read());
+    }
+
+    @Test
+    public void unknownVersionAndTruncation_areRejected() throws IOException {
+        byte[] bytes = TaskCodec.encode(Collections.singletonList(new Task("title", "description")), false);
+        byte[] futureVersion = bytes.clone();
+        futureVersion[2] = (byte) (TaskCodec.VERSION + 1);
+        try {
+            TaskCodec.decode(futureVersion);
+            fail("Expected an unsupported version");
+        } catch(IOException expected) {
+            assertTrue(expected.getMessage().contains("version"));
+        }
+
+        try {
+            TaskCodec.decode(Arrays.copyOf(bytes, bytes.length - 3));
+            fail("Expected a truncated stream");
+        } catch(EOFException expected) {
+            // ok
+        }
+    }
+
+    @Test
+    public void oversizedString_isRejectedWithoutCorruptingTheStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskEncoder encoder = new TaskEncoder(out, false);
+        encoder.write(new Task("a", null, "first"));
+        try {
+            encoder.write(new Task("a", repeat('x', TaskCodec.MAX_STRING_BYTES + 1), "oversized"));
+            fail("Expected a string the decoder would reject");
+        } catch(IOException expected) {
+            // ok
+        }
+        encoder.write(new Task("b", null, "second"));
+        encoder.finish();
+
+        List<Task> decoded = TaskCodec.decode(out.toByteArray());
+        assertEquals(2, decoded.size());
+        assertEquals("second", decoded.get(1).getId());
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,67 @@
+package com.benmohammad.todorxjava.data.codec;
+
+import com.benmohammad.todorxjava.data.Task;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskSnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip_replacesTheLastSnapshot() throws IOException {
+        File file = new File(mFolder.getRoot(), "tasks.snapshot");
+        TaskSnapshotFile snapshot = new TaskSnapshotFile(file);
+        assertNull(snapshot.read());
+
+        snapshot.write(Collections.singletonList(new Task("old", "", "1")));
+        List<Task> tasks = Arrays.asList(
+                new Task("title", "description", UUID.randomUUID().toString(), true),
+                new Task("title", null, "2"));
+        snapshot.write(tasks);
+
+        List<Task> read = new TaskSnapshotFile(file).read();
+        assertEquals(tasks, read);
+        assertTrue(read.get(0).isCompleted());
+        assertNull(read.get(1).getDescription());
+        assertEquals(Collections.singletonList(file), Arrays.asList(mFolder.getRoot().listFiles()));
+    }
+
+    @Test
+    public void truncatedSnapshot_failsTheRead() throws IOException {
+        File file = new File(mFolder.getRoot(), "tasks.snapshot");
+        TaskSnapshotFile snapshot = new TaskSnapshotFile(file);
+        snapshot.write(Arrays.asList(new Task("one", "", "1"), new Task("two", "", "2")));
+        long length = file.length();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.getChannel().truncate(length - 3);
+        out.close();
+
+        try {
+            snapshot.read();
+            fail("a truncated snapshot should not be read");
+        } catch(IOException expected) {
+            // the caller falls back to the database
+        }
+
+        snapshot.delete();
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,211 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+
+/**
+ * Thread-safe in-memory data source for repository and presenter tests. Page keys are insertion positions, so
+ * new tasks sort last as they do in SQLite. Counts the reads and the write calls it gets, and
+ * separately the reads of the whole list.
+ */
+public class InMemoryTasksDataSource implements TasksDataSource {
+
+    final AtomicInteger mReadCount = new AtomicInteger();
+
+    final AtomicInteger mListReadCount = new AtomicInteger();
+
+    final AtomicInteger mWriteCount = new AtomicInteger();
+
+    private final Map<String, Task> mTasks = new LinkedHashMap<>();
+
+    public InMemoryTasksDataSource(@NonNull Task... tasks) {
+        for(Task task : tasks) {
+            mTasks.put(task.getId(), task);
+        }
+    }
+
+    @NonNull
+    synchronized List<Task> snapshot() {
+        return new ArrayList<>(mTasks.values());
+    }
+
+    @NonNull
+    private List<Task> read() {
+        mReadCount.incrementAndGet();
+        return snapshot();
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks() {
+        return Flowable.fromCallable(() -> {
+            mListReadCount.incrementAndGet();
+            return read();
+        });
+    }
+
+    @Override
+    public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+        return getTasks().map(tasks -> {
+            List<Task> filtered = new ArrayList<>();
+            for(Task task : tasks) {
+                if(filterType.accept(task)) {
+                    filtered.add(task);
+                }
+            }
+            return filtered;
+        });
+    }
+
+    @Override
+    public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+        return Flowable.fromCallable(this::read).map(tasks -> {
+            List<Task> page = new ArrayList<>();
+            long nextKey = afterKey;
+            for(int key = (int) afterKey + 1; key <= tasks.size(); key++) {
+                Task task = tasks.get(key - 1);
+                if(!filterType.accept(task)) {
+                    continue;
+                }
+                if(page.size() == pageSize) {
+                    return new TasksPage(page, afterKey, nextKey, true);
+                }
+                page.add(task);
+                nextKey = key;
+            }
+            return new TasksPage(page, afterKey, nextKey, false);
+        });
+    }
+
+    @Override
+    public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+        return Flowable.fromCallable(() -> {
+            mReadCount.incrementAndGet();
+            synchronized(this) {
+                return Optional.fromNullable(mTasks.get(taskId));
+            }
+        });
+    }
+
+    @Override
+    public Flowable<TaskCounts> getTaskCounts() {
+        return Flowable.fromCallable(this::read).map(tasks -> {
+            int completed = 0;
+            for(Task task : tasks) {
+                if(task.isCompleted()) {
+                    completed++;
+                }
+            }
+            return new TaskCounts(tasks.size() - completed, completed);
+        });
+    }
+
+    @Override
+    public void saveTask(@NonNull Task task) {
+        saveTasks(Collections.singletonList(task));
+    }
+
+    @Override
+    public synchronized void saveTasks(@NonNull Collection<Task> tasks) {
+        mWriteCount.incrementAndGet();
+        for(Task task : tasks) {
+            mTasks.put(task.getId(), task);
+        }
+    }
+
+    @Override
+    public void completeTask(@NonNull Task task) {
+        completeTask(task.getId());
+    }
+
+    @Override
+    public void completeTask(@NonNull String taskId) {
+        completeTasks(Collections.singletonList(taskId));
+    }
+
+    @Override
+    public synchronized void completeTasks(@NonNull Collection<String> taskIds) {
+        setCompleted(taskIds, true);
+    }
+
+    @Override
+    public void activateTask(@NonNull Task task) {
+        activateTask(task.getId());
+    }
+
+    @Override
+    public synchronized void activateTask(@NonNull String taskId) {
+        setCompleted(Collections.singletonList(taskId), false);
+    }
+
+    @Override
+    public synchronized void activateTasks(@NonNull Collection<String> taskIds) {
+        setCompleted(taskIds, false);
+    }
+
+    private void setCompleted(@NonNull Collection<String> taskIds, boolean completed) {
+        mWriteCount.incrementAndGet();
+        for(String taskId : taskIds) {
+            Task task = mTasks.get(taskId);
+            if(task != null) {
+                mTasks.put(taskId, new Task(task.getTitle(), task.getDescription(), taskId, completed));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void clearCompletedTasks() {
+        mWriteCount.incrementAndGet();
+        Iterator<Task> tasks = mTasks.values().iterator();
+        while(tasks.hasNext()) {
+            if(tasks.next().isCompleted()) {
+                tasks.remove();
+            }
+        }
+    }
+
+    @Override
+    public void refreshTasks() {
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        mWriteCount.incrementAndGet();
+        mTasks.clear();
+    }
+
+    @Override
+    public void deleteTask(@NonNull String taskId) {
+        deleteTasks(Collections.singletonList(taskId));
+    }
+
+    @Override
+    public synchronized void deleteTasks(@NonNull Collection<String> taskIds) {
+        mWriteCount.incrementAndGet();
+        mTasks.keySet().removeAll(taskIds);
+    }
+
+    @Override
+    public synchronized void replaceTasks(@NonNull Collection<Task> tasks) {
+        mWriteCount.incrementAndGet();
+        mTasks.clear();
+        for(Task task : tasks) {
+            mTasks.put(task.getId(), task);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.benmohammad.todorxjava.data.source;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskChangeSet;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TasksCacheTest {
+
+    private static final int READERS = 8;
+    private static final int WRITERS = 4;
+    private static final int WRITES_PER_WRITER = 20000;
+
+    @Test
+    public void snapshot_isNotAffectedByLaterWrites() {
+        TasksCache cache = new TasksCache();
+        cache.put(new Task("title1", "description1", "1"));
+
+        List<Task> snapshot = cache.getTasks();
+        cache.put(new Task("title2", "description2", "2"));
+        cache.remove("1");
+
+        assertEquals(1, snapshot.size());
+        assertEquals("1", snapshot.get(0).getId());
+        assertEquals(1, cache.size());
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    public void removeAll_dropsOnlyTheCachedIds() {
+        TasksCache cache = new TasksCache();
+        cache.reload(Arrays.asList(new Task("title1", "description1", "1"),
+                new Task("title2", "description2", "2"), new Task("title3", "description3", "3")));
+
+        TaskChangeSet changes = cache.removeAll(Arrays.asList("1", "3", "4"));
+
+        assertEquals(Arrays.asList("1", "3"), new ArrayList<>(changes.getRemovedIds()));
+        assertEquals(1, cache.size());
+        assertEquals("2", cache.getTasks().get(0).getId());
+    }
+
+    @Test
+    public void availability_followsFullLoadsOnly() {
+        TasksCache cache = new TasksCache();
+        cache.put(new Task("title1", "description1", "1"));
+        assertFalse(cache.isAvailable());
+
+        cache.reload(Arrays.asList(new Task("title2", "description2", "2")));
+        assertTrue(cache.isAvailable());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void reload_replacesTheSnapshot() {
+        TasksCache cache = new TasksCache();
+        cache.reload(Arrays.asList(new Task("title1", "description1", "1"),
+                new Task("title2", "description2", "2", true)));
+
+        TaskChangeSet changes = cache.reload(Arrays.asList(new Task("title2", "description2", "2", true)));
+
+        assertEquals(1, cache.size());
+        assertNull(cache.get("1"));
+        assertEquals(Arrays.asList("1"), new ArrayList<>(changes.getRemovedIds()));
+        assertEquals(new TaskCounts(0, 1), cache.getTaskCounts());
+    }
+
+    @Test
+    public void overBudget_evictsLeastRecentlyUsedAndBecomesUnavailable() {
+        TasksCache cache = new TasksCache(CachePolicy.maxEntries(2));
+        cache.reload(Arrays.asList(new Task("title1", "description1", "1"),
+                new Task("title2", "description2", "2")));
+        assertTrue(cache.isAvailable());
+
+        cache.get("1");
+        cache.put(new Task("title3", "description3", "3"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("2"));
+        assertEquals("title1", cache.get("1").getTitle());
+        assertFalse(cache.isAvailable());
+
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getEvictionCount());
+    }
+
+    @Test
+    public void readSinceTheLastEviction_keepsAnEntry() {
+        TasksCache cache = new TasksCache(CachePolicy.maxEntries(3));
+        cache.reload(Arrays.asList(new Task("title1", "description1", "1"),
+                new Task("title2", "description2", "2"), new Task("title3", "description3", "3")));
+        cache.put(new Task("title4", "description4", "4"));
+        assertNull(cache.get("1"));
+
+        cache.get("2");
+        cache.put(new Task("title5", "description5", "5"));
+
+        assertEquals("title2", cache.get("2").getTitle());
+        assertNull(cache.get("3"));
+        assertEquals(2, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void partiallyEvicted_stillServesHitsById() {
+        TasksCache cache = new TasksCache(CachePolicy.maxEntries(100));
+        List<Task> tasks = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            tasks.add(new Task("title" + i, "description", "task-" + i));
+        }
+
+        cache.reload(tasks);
+
+        assertFalse(cache.isAvailable());
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getStats().getEvictionCount());
+        assertNull(cache.get("task-899"));
+        assertEquals("title900", cache.get("task-900").getTitle());
+        assertEquals(100, cache.getTaskCounts().getActiveCount());
+    }
+
+    @Test
+    public void taskCounts_followEveryWrite() {
+        TasksCache cache = new TasksCache();
+        cache.reload(Arrays.asList(new Task("title1", "description1", "1"),
+                new Task("title2", "description2", "2", true)));
+        assertEquals(new TaskCounts(1, 1), cache.getTaskCounts());
+
+        cache.put(new Task("title1", "description1", "1", true));
+        assertEquals(new TaskCounts(0, 2), cache.getTaskCounts());
+
+        cache.removeIf(Task::isCompleted);
+        assertEquals(TaskCounts.EMPTY, cache.getTaskCounts());
+    }
+
+    // Also prints the throughput: readers never take the writer lock unless they keep colliding with writes.
+    @Test
+    public void concurrentReadersAndWriters_seeConsistentSnapshots() throws Exception {
+        TasksCache cache = new TasksCache();
+        List<Task> seed = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            seed.add(new Task("seed" + i, "description", "seed-" + i));
+        }
+        cache.reload(seed);
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        ExecutorService executor = Executors.newFixedThreadPool(READERS + WRITERS);
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicLong reads = new AtomicLong();
+
+        for(int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    for(int i = 0; i < WRITES_PER_WRITER; i++) {
+                        String a = "a-" + writer + "-" + i;
+                        String b = "b-" + writer + "-" + i;
+                        Set<String> pair = ImmutableSet.of(a, b);
+                        cache.putAll(Arrays.asList(new Task("a", "pair", a), new Task("b", "pair", b)));
+                        cache.removeIf(task -> pair.contains(task.getId()));
+                    }
+                } finally {
+                    writersDone.countDown();
+                }
+                return null;
+            }));
+        }
+
+        for(int r = 0; r < READERS; r++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                long snapshots = 0;
+                while(writersDone.getCount() > 0) {
+                    List<Task> snapshot = cache.getTasks();
+                    snapshots++;
+                    Set<String> ids = new HashSet<>();
+                    for(Task task : snapshot) {
+                        ids.add(task.getId());
+                    }
+                    for(String id : ids) {
+                        if(id.startsWith("a-")) {
+                            assertTrue("torn write for " + id, ids.contains("b-" + id.substring(2)));
+                        }
+                    }
+                    assertEquals(snapshot.size(), ids.size());
+                }
+                reads.addAndGet(snapshots);
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for(Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(seed.size(), cache.size());
+        long writes = 2L * WRITERS * WRITES_PER_WRITER;
+        System.out.println(String.format(Locale.US, "TasksCache: %d readers, %d writers: %.0f snapshot reads/s, %.0f writes/s",
+                READERS, WRITERS, reads.get() / seconds, writes / seconds));
+    }
+}
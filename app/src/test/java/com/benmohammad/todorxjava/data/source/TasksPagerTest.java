@@ -0,0 +1,37 @@
+package com.benmohammad.todorxjava.data.source;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+
+import org.junit.Test;
+
+import io.reactivex.subscribers.TestSubscriber;
+
+public class TasksPagerTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final int PREFETCH_DISTANCE = 3;
+
+    @Test
+    public void removedRows_thenScrollingToTheEnd_loadsTheNextPage() {
+        Task[] tasks = new Task[3 * PAGE_SIZE];
+        for(int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("title " + i, "description", String.valueOf(i));
+        }
+        TasksPager pager = new TasksPager(new InMemoryTasksDataSource(tasks), TasksFilterType.ALL_TASKS,
+                PAGE_SIZE, PREFETCH_DISTANCE);
+        TestSubscriber<TasksPage> pages = pager.pages().test();
+        pages.assertValueCount(1);
+
+        // The list dropped half the first page, so its last row now sits at position 4.
+        pager.onItemsRemoved(PAGE_SIZE / 2);
+        pager.onItemBound(PAGE_SIZE / 2 - 1);
+        pages.assertValueCount(2);
+
+        pager.onItemsInserted(2);
+        pager.onItemBound(PAGE_SIZE / 2 + PAGE_SIZE + 2 - PREFETCH_DISTANCE - 1);
+        pages.assertValueCount(2);
+    }
+}
@@ -0,0 +1,295 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.benmohammad.todorxjava.data.source.remote.RemotePolicy;
+import com.benmohammad.todorxjava.data.source.remote.ResilientRemoteDataSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TasksRepositoryTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    @After
+    public void tearDown() {
+        TasksRepository.destroyInstance();
+    }
+
+    @Test
+    public void staleWhileRevalidate_pagerStartsRevalidationOnRefresh() {
+        InMemoryTasksDataSource remote = new InMemoryTasksDataSource(new Task("remote", "description", "1"));
+        InMemoryTasksDataSource local = new InMemoryTasksDataSource(new Task("local", "description", "1"));
+        TasksRepository repository = TasksRepository.getInstance(remote, local);
+        repository.setStaleWhileRevalidate(true);
+
+        repository.refreshTasks();
+        TasksPage page = firstPage(repository);
+
+        assertEquals("local", page.getTasks().get(0).getTitle());
+        assertEquals(1, remote.mReadCount.get());
+        assertEquals("remote", local.snapshot().get(0).getTitle());
+    }
+
+    @Test
+    public void staleWhileRevalidate_emptyFirstPageWaitsForTheRemote() {
+        InMemoryTasksDataSource remote = new InMemoryTasksDataSource(new Task("remote", "description", "1"));
+        InMemoryTasksDataSource local = new InMemoryTasksDataSource();
+        TasksRepository repository = TasksRepository.getInstance(remote, local);
+        repository.setStaleWhileRevalidate(true);
+
+        TasksPage page = firstPage(repository);
+
+        assertEquals(1, page.getTasks().size());
+        assertEquals("remote", page.getTasks().get(0).getTitle());
+        assertEquals(1, remote.mReadCount.get());
+    }
+
+    @Test
+    public void asyncMutations_runOnTheIoScheduler() {
+        InMemoryTasksDataSource remote = new InMemoryTasksDataSource();
+        InMemoryTasksDataSource local = new InMemoryTasksDataSource();
+        TestScheduler io = new TestScheduler();
+        AtomicInteger checks = new AtomicInteger();
+        TasksRepository repository = TasksRepository.getInstance(remote, local, CachePolicy.unbounded(), io);
+        repository.setMutationThreadCheck(checks::incrementAndGet);
+
+        TestObserver<Void> observer = repository.saveTaskAsync(new Task("title", "description", "1")).test();
+        assertEquals(0, local.mWriteCount.get());
+
+        io.triggerActions();
+        observer.assertComplete();
+        assertEquals(1, local.snapshot().size());
+        assertEquals(1, remote.snapshot().size());
+        assertEquals(1, checks.get());
+    }
+
+    @Test
+    public void resetDelta_replacesTheLocalTasksInOneWrite() {
+        SyncingDataSource remote = new SyncingDataSource(
+                TasksDelta.reset(Collections.singletonList(new Task("remote", "description", "2")), 7));
+        InMemoryTasksDataSource local = new InMemoryTasksDataSource(new Task("stale", "description", "1"));
+        TasksRepository repository = TasksRepository.getInstance(remote, local);
+
+        repository.refreshTasks();
+        List<Task> tasks = repository.getTasks().blockingFirst();
+
+        assertEquals(1, remote.mDeltaCount.get());
+        assertEquals(1, local.mWriteCount.get());
+        assertEquals(Collections.singletonList("2"), ids(local.snapshot()));
+        assertEquals(Collections.singletonList("2"), ids(tasks));
+    }
+
+    @Test
+    public void deltaSyncOverAnEvictedCache_doesNotReadTheWholeTable() {
+        SyncingDataSource remote = new SyncingDataSource(TasksDelta.changes(
+                Collections.singletonList(new Task("changed", "description", "1")), Collections.emptyList(), 2));
+        InMemoryTasksDataSource local = new InMemoryTasksDataSource(new Task("first", "description", "1"),
+                new Task("second", "description", "2"), new Task("third", "description", "3"));
+        TasksRepository repository = TasksRepository.getInstance(remote, local, CachePolicy.maxEntries(2));
+        repository.getTasks().blockingFirst();
+        assertEquals(1, local.mListReadCount.get());
+
+        repository.refreshTasks();
+        TasksPage page = firstPage(repository);
+
+        assertEquals(1, remote.mDeltaCount.get());
+        assertEquals("changed", page.getTasks().get(0).getTitle());
+        assertEquals(1, local.mListReadCount.get());
+    }
+
+    @Test
+    public void failedFlush_failsTheReadInsteadOfServingTheOldRow() {
+        FailingWritesDataSource local = new FailingWritesDataSource(new Task("title", "description", "1"));
+        TasksRepository repository = TasksRepository.getInstance(new InMemoryTasksDataSource(), local,
+                CachePolicy.unbounded(), new TestScheduler());
+        repository.setWriteBehind(true);
+        repository.deleteTask("1");
+
+        local.mFail = true;
+        repository.getTask("1").test().assertError(IllegalStateException.class);
+
+        local.mFail = false;
+        repository.getTask("1").test().assertValue(Optional.absent());
+        assertTrue(local.snapshot().isEmpty());
+    }
+
+    @Test
+    public void wrappers_advertiseDeltaSyncOnlyWhenTheRemoteHasIt() {
+        TasksSyncSource overPlain = ResilientRemoteDataSource.getInstance(new InMemoryTasksDataSource(),
+                RemotePolicy.defaults(), Schedulers.trampoline());
+        ResilientRemoteDataSource.destroyInstance();
+        TasksSyncSource overSync = ResilientRemoteDataSource.getInstance(
+                new SyncingDataSource(TasksDelta.reset(Collections.emptyList(), 1)),
+                RemotePolicy.defaults(), Schedulers.trampoline());
+        ResilientRemoteDataSource.destroyInstance();
+
+        assertFalse(overPlain.supportsDeltaSync());
+        assertTrue(overSync.supportsDeltaSync());
+    }
+
+    @Test
+    public void notModifiedThroughTheResilientWrapper_skipsTheLocalWrite() {
+        ConditionalDataSource conditional = new ConditionalDataSource(new Task("remote", "description", "1"));
+        ResilientRemoteDataSource remote = ResilientRemoteDataSource.getInstance(conditional,
+                RemotePolicy.defaults(), Schedulers.io());
+        InMemoryTasksDataSource local = new InMemoryTasksDataSource();
+        try {
+            TasksRepository repository = TasksRepository.getInstance(remote, local);
+
+            repository.refreshTasks();
+            assertEquals(1, repository.getTasks().blockingFirst().size());
+            repository.refreshTasks();
+            assertEquals(1, repository.getTasks().blockingFirst().size());
+
+            assertEquals(2, conditional.mConditionalCount.get());
+            assertEquals(1, repository.getNotModifiedCount());
+            assertEquals(1, local.mWriteCount.get());
+        } finally {
+            ResilientRemoteDataSource.destroyInstance();
+        }
+    }
+
+    @Test
+    public void pushedChanges_areWrittenInOneBatchAndIdleStreamsWakeNothing() {
+        PushingDataSource remote = new PushingDataSource();
+        InMemoryTasksDataSource local = new InMemoryTasksDataSource();
+        TestScheduler io = new TestScheduler();
+        TasksRepository repository = TasksRepository.getInstance(remote, local, CachePolicy.unbounded(), io);
+
+        repository.connectChangeStream();
+        assertTrue(remote.mChanges.hasSubscribers());
+        io.advanceTimeBy(1, TimeUnit.SECONDS);
+        assertEquals(0, local.mWriteCount.get());
+
+        for(int i = 1; i <= 3; i++) {
+            remote.mChanges.onNext(TasksDelta.changes(
+                    Collections.singletonList(new Task("pushed", "", String.valueOf(i))), Collections.emptyList(), i));
+            io.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+        }
+        io.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        assertEquals(1, local.mWriteCount.get());
+        assertEquals(3, local.snapshot().size());
+    }
+
+    @Test
+    public void wrappers_advertisePushOnlyWhenTheRemoteHasIt() {
+        TasksPushSource overPlain = ResilientRemoteDataSource.getInstance(new InMemoryTasksDataSource(),
+                RemotePolicy.defaults(), Schedulers.trampoline());
+        ResilientRemoteDataSource.destroyInstance();
+        TasksPushSource overPush = ResilientRemoteDataSource.getInstance(new PushingDataSource(),
+                RemotePolicy.defaults(), Schedulers.trampoline());
+        ResilientRemoteDataSource.destroyInstance();
+
+        assertFalse(overPlain.supportsPush());
+        assertTrue(overPush.supportsPush());
+    }
+
+    private static List<String> ids(List<Task> tasks) {
+        List<String> ids = new ArrayList<>();
+        for(Task task : tasks) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    private static final class FailingWritesDataSource extends InMemoryTasksDataSource {
+
+        volatile boolean mFail;
+
+        FailingWritesDataSource(Task... tasks) {
+            super(tasks);
+        }
+
+        @Override
+        public synchronized void deleteTasks(@NonNull Collection<String> taskIds) {
+            if(mFail) {
+                throw new IllegalStateException("disk full");
+            }
+            super.deleteTasks(taskIds);
+        }
+    }
+
+    private static final class SyncingDataSource extends InMemoryTasksDataSource implements TasksSyncSource {
+
+        final AtomicInteger mDeltaCount = new AtomicInteger();
+
+        private final TasksDelta mDelta;
+
+        SyncingDataSource(TasksDelta delta) {
+            mDelta = delta;
+        }
+
+        @Override
+        public Flowable<TasksDelta> getChangesSince(long version) {
+            return Flowable.fromCallable(() -> {
+                mDeltaCount.incrementAndGet();
+                return mDelta;
+            });
+        }
+    }
+
+    // The validator is the number of writes so far.
+    private static final class ConditionalDataSource extends InMemoryTasksDataSource
+            implements ConditionalTasksSource {
+
+        final AtomicInteger mConditionalCount = new AtomicInteger();
+
+        ConditionalDataSource(Task... tasks) {
+            super(tasks);
+        }
+
+        @Override
+        public Flowable<TasksResponse> getTasksIfModified(@Nullable String validator) {
+            return getTasks().map(tasks -> {
+                mConditionalCount.incrementAndGet();
+                String current = "v" + mWriteCount.get();
+                return current.equals(validator)
+                        ? TasksResponse.notModified(current)
+                        : TasksResponse.modified(tasks, current);
+            });
+        }
+    }
+
+    private static final class PushingDataSource extends InMemoryTasksDataSource implements TasksPushSource {
+
+        final PublishProcessor<TasksDelta> mChanges = PublishProcessor.create();
+
+        @Override
+        public Flowable<TasksDelta> observeChanges(long version) {
+            return mChanges;
+        }
+    }
+
+    private static TasksPage firstPage(TasksRepository repository) {
+        return new TasksPager(repository, TasksFilterType.ALL_TASKS, PAGE_SIZE, 0)
+                .pages()
+                .blockingFirst();
+    }
+}
@@ -0,0 +1,255 @@
+package com.benmohammad.todorxjava.data.source;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBehindQueueTest {
+
+    @Test
+    public void toggles_coalesceIntoOneWrite() {
+        RecordingDataSource target = new RecordingDataSource();
+        TestScheduler scheduler = new TestScheduler();
+        WriteBehindQueue queue = new WriteBehindQueue(Collections.singletonList(target), scheduler);
+
+        queue.setCompleted("1", true);
+        queue.setCompleted("1", false);
+        queue.setCompleted("1", true);
+        assertTrue(target.mCalls.isEmpty());
+
+        scheduler.advanceTimeBy(WriteBehindQueue.FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(Collections.singletonList("completeTasks [1]"), target.mCalls);
+        WriteBehindStats stats = queue.getStats();
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(3, stats.getEnqueuedCount());
+        assertEquals(1, stats.getWrittenCount());
+        assertEquals(3.0, stats.getCoalescingRatio(), 0.0);
+    }
+
+    @Test
+    public void saveThenToggle_writesSavedTaskWithFinalState() {
+        RecordingDataSource target = new RecordingDataSource();
+        WriteBehindQueue queue = new WriteBehindQueue(Collections.singletonList(target), new TestScheduler());
+
+        queue.save(new Task("title", "description", "1"));
+        queue.setCompleted("1", true);
+        queue.flush();
+
+        assertEquals(Collections.singletonList("saveTasks [1:true]"), target.mCalls);
+    }
+
+    @Test
+    public void bulkOperations_keepOrderAndDeleteAllDropsPendingWrites() {
+        RecordingDataSource target = new RecordingDataSource();
+        WriteBehindQueue queue = new WriteBehindQueue(Collections.singletonList(target), new TestScheduler());
+
+        queue.setCompleted("1", true);
+        queue.clearCompleted();
+        queue.delete("2");
+        queue.flush();
+        assertEquals(Arrays.asList("completeTasks [1]", "clearCompletedTasks", "deleteTasks [2]"), target.mCalls);
+
+        target.mCalls.clear();
+        queue.save(new Task("title", "description", "3"));
+        queue.deleteAll();
+        queue.flush();
+        assertEquals(Collections.singletonList("deleteAllTasks"), target.mCalls);
+    }
+
+    @Test
+    public void failedFlush_isRequeuedAndRetried() {
+        RecordingDataSource target = new RecordingDataSource();
+        WriteBehindQueue queue = new WriteBehindQueue(Collections.singletonList(target), new TestScheduler());
+        queue.delete("1");
+
+        target.mFail = true;
+        try {
+            queue.flush();
+        } catch(IllegalStateException expected) {
+            // retried below
+        }
+        assertEquals(1, queue.getStats().getQueueDepth());
+
+        target.mFail = false;
+        queue.flush();
+        assertEquals(Collections.singletonList("deleteTasks [1]"), target.mCalls);
+        assertEquals(1, queue.getStats().getFailedFlushCount());
+    }
+
+    @Test
+    public void activations_areWrittenAsOneBatch() {
+        RecordingDataSource target = new RecordingDataSource();
+        WriteBehindQueue queue = new WriteBehindQueue(Collections.singletonList(target), new TestScheduler());
+
+        queue.setCompleted("1", false);
+        queue.setCompleted("2", false);
+        queue.flush();
+
+        assertEquals(Collections.singletonList("activateTasks [1, 2]"), target.mCalls);
+    }
+
+    @Test
+    public void depthPastTheLimit_stillFlushesImmediately() {
+        RecordingDataSource target = new RecordingDataSource();
+        TestScheduler scheduler = new TestScheduler();
+        WriteBehindQueue queue = new WriteBehindQueue(Collections.singletonList(target), scheduler);
+        for(int i = 0; i < 60; i++) {
+            queue.delete("a" + i);
+        }
+        // Writes queued while a failing flush runs; the requeue then takes the depth from 50 to 110.
+        target.mFail = true;
+        target.mDuringWrite = () -> {
+            for(int i = 0; i < 50; i++) {
+                queue.delete("b" + i);
+            }
+        };
+        try {
+            queue.flush();
+        } catch(IllegalStateException expected) {
+            // requeued
+        }
+        assertEquals(110, queue.getStats().getQueueDepth());
+
+        target.mFail = false;
+        queue.delete("c");
+        scheduler.triggerActions();
+
+        assertEquals(0, queue.getStats().getQueueDepth());
+    }
+
+    private static final class RecordingDataSource implements TasksDataSource {
+
+        final List<String> mCalls = new ArrayList<>();
+
+        boolean mFail;
+
+        @Nullable
+        Runnable mDuringWrite;
+
+        private void record(@NonNull String call) {
+            Runnable duringWrite = mDuringWrite;
+            mDuringWrite = null;
+            if(duringWrite != null) {
+                duringWrite.run();
+            }
+            if(mFail) {
+                throw new IllegalStateException("write failed");
+            }
+            mCalls.add(call);
+        }
+
+        @Override
+        public Flowable<List<Task>> getTasks() {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<TaskCounts> getTaskCounts() {
+            return Flowable.empty();
+        }
+
+        @Override
+        public void saveTask(@NonNull Task task) {
+            saveTasks(Collections.singletonList(task));
+        }
+
+        @Override
+        public void saveTasks(@NonNull Collection<Task> tasks) {
+            List<String> saved = new ArrayList<>();
+            for(Task task : tasks) {
+                saved.add(task.getId() + ":" + task.isCompleted());
+            }
+            record("saveTasks " + saved);
+        }
+
+        @Override
+        public void completeTask(@NonNull Task task) {
+            completeTask(task.getId());
+        }
+
+        @Override
+        public void completeTask(@NonNull String taskId) {
+            completeTasks(Collections.singletonList(taskId));
+        }
+
+        @Override
+        public void completeTasks(@NonNull Collection<String> taskIds) {
+            record("completeTasks " + taskIds);
+        }
+
+        @Override
+        public void activateTask(@NonNull Task task) {
+            activateTask(task.getId());
+        }
+
+        @Override
+        public void activateTask(@NonNull String taskId) {
+            record("activateTask " + taskId);
+        }
+
+        @Override
+        public void activateTasks(@NonNull Collection<String> taskIds) {
+            record("activateTasks " + taskIds);
+        }
+
+        @Override
+        public void clearCompletedTasks() {
+            record("clearCompletedTasks");
+        }
+
+        @Override
+        public void refreshTasks() {
+        }
+
+        @Override
+        public void deleteAllTasks() {
+            record("deleteAllTasks");
+        }
+
+        @Override
+        public void deleteTask(@NonNull String taskId) {
+            deleteTasks(Collections.singletonList(taskId));
+        }
+
+        @Override
+        public void deleteTasks(@NonNull Collection<String> taskIds) {
+            record("deleteTasks " + taskIds);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskOperation;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.google.common.base.Optional;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PendingOverlayTest {
+
+    private static final Task ONE = new Task("one", "", "1");
+
+    private static final Task TWO = new Task("two", "", "2");
+
+    @Test
+    public void queuedMutations_applyToTheTasksTheRemoteAnswered() {
+        PendingOverlay overlay = new PendingOverlay(Arrays.asList(
+                TaskOperation.complete(Arrays.asList("1", "3")),
+                TaskOperation.save(Collections.singletonList(new Task("three", "", "3")))));
+
+        List<Task> tasks = overlay.apply(Arrays.asList(ONE, TWO));
+        assertEquals(Arrays.asList(ONE, TWO, new Task("three", "", "3")), tasks);
+        assertTrue(tasks.get(0).isCompleted());
+        assertFalse(tasks.get(1).isCompleted());
+        // The completion came before the save, so the remote never had 3 to complete.
+        assertFalse(overlay.apply("3", Optional.absent()).get().isCompleted());
+    }
+
+    @Test
+    public void queuedDeleteAndSave_moveTasksBetweenTheDeltaLists() {
+        PendingOverlay overlay = new PendingOverlay(Arrays.asList(
+                TaskOperation.delete(Collections.singletonList("1")),
+                TaskOperation.save(Collections.singletonList(TWO))));
+
+        TasksDelta delta = overlay.apply(TasksDelta.changes(Collections.singletonList(ONE),
+                Collections.singletonList("2"), 7));
+
+        assertEquals(Collections.singletonList(TWO), delta.getChangedTasks());
+        assertEquals(Collections.singletonList("1"), delta.getDeletedTaskIds());
+        assertEquals(7, delta.getVersion());
+    }
+
+    @Test
+    public void queuedDeleteAll_turnsTheDeltaIntoAReset() {
+        PendingOverlay overlay = new PendingOverlay(Arrays.asList(
+                TaskOperation.deleteAll(),
+                TaskOperation.save(Collections.singletonList(TWO))));
+
+        TasksDelta delta = overlay.apply(TasksDelta.changes(Collections.singletonList(ONE),
+                Collections.<String>emptyList(), 7));
+
+        assertTrue(delta.isReset());
+        assertEquals(Collections.singletonList(TWO), delta.getChangedTasks());
+    }
+}
@@ -0,0 +1,326 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TaskCounts;
+import com.benmohammad.todorxjava.data.TasksPage;
+import com.benmohammad.todorxjava.data.source.TasksDataSource;
+import com.benmohammad.todorxjava.tasks.TasksFilterType;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResilientRemoteDataSourceTest {
+
+    private static final Task TASK = new Task("title", "description", "1");
+
+    private static final long FAIL = -1;
+
+    private TestScheduler mScheduler;
+
+    private ScriptedRemote mRemote;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TestScheduler();
+        mRemote = new ScriptedRemote(mScheduler);
+    }
+
+    @Test
+    public void slowAttempt_isAbandonedAtDeadlineAndRetried() {
+        ResilientRemoteDataSource remote = newRemote(new RemotePolicy.Builder()
+                .deadline(100, TimeUnit.MILLISECONDS)
+                .hedgeAfterPercentile(0, 1, 1, TimeUnit.MILLISECONDS)
+                .retry(1, 10, 10, TimeUnit.MILLISECONDS));
+        mRemote.script(5000, 20);
+
+        TestSubscriber<Optional<Task>> subscriber = remote.getTask("1").test();
+        mScheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        subscriber.assertNoValues();
+        mScheduler.advanceTimeBy(30, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue(Optional.of(TASK));
+        RemoteCallStats stats = remote.getStats();
+        assertEquals(1, stats.getCallCount());
+        assertEquals(2, stats.getAttemptCount());
+        assertEquals(1, stats.getTimeoutCount());
+        assertEquals(1, stats.getRetryCount());
+    }
+
+    @Test
+    public void consecutiveFailures_openCircuitUntilTrialSucceeds() {
+        ResilientRemoteDataSource remote = newRemote(new RemotePolicy.Builder()
+                .hedgeAfterPercentile(0, 1, 1, TimeUnit.MILLISECONDS)
+                .retry(0, 10, 10, TimeUnit.MILLISECONDS)
+                .circuitBreaker(2, 1, TimeUnit.SECONDS));
+        mRemote.script(FAIL, FAIL, 10);
+
+        remote.getTask("1").test().assertError(IllegalStateException.class);
+        remote.getTask("1").test().assertError(IllegalStateException.class);
+        remote.getTask("1").test().assertError(CircuitOpenException.class);
+        assertEquals(2, mRemote.mCalls);
+        assertTrue(remote.getStats().isCircuitOpen());
+
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        TestSubscriber<Optional<Task>> trial = remote.getTask("1").test();
+        mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        trial.assertValue(Optional.of(TASK));
+        RemoteCallStats stats = remote.getStats();
+        assertFalse(stats.isCircuitOpen());
+        assertEquals(1, stats.getCircuitOpenCount());
+        assertEquals(1, stats.getRejectedCount());
+    }
+
+    @Test
+    public void slowRead_isHedgedAfterLatencyPercentile() {
+        ResilientRemoteDataSource remote = newRemote(new RemotePolicy.Builder()
+                .hedgeAfterPercentile(50, 3, 1, TimeUnit.MILLISECONDS));
+        mRemote.script(10, 10, 10, 5000, 10);
+        for(int i = 0; i < 3; i++) {
+            remote.getTask("1").test();
+            mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+        }
+
+        TestSubscriber<Optional<Task>> subscriber = remote.getTask("1").test();
+        mScheduler.advanceTimeBy(20, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue(Optional.of(TASK));
+        RemoteCallStats stats = remote.getStats();
+        assertEquals(1, stats.getHedgeCount());
+        assertEquals(1, stats.getHedgeWinCount());
+        assertEquals(0, stats.getTimeoutCount());
+    }
+
+    @Test
+    public void disposedTrial_freesTheSlotForTheNextCall() {
+        ResilientRemoteDataSource remote = newRemote(new RemotePolicy.Builder()
+                .hedgeAfterPercentile(0, 1, 1, TimeUnit.MILLISECONDS)
+                .retry(0, 10, 10, TimeUnit.MILLISECONDS)
+                .circuitBreaker(2, 1, TimeUnit.SECONDS));
+        mRemote.script(FAIL, FAIL, 5000, 10);
+        remote.getTask("1").test();
+        remote.getTask("1").test();
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        remote.getTask("1").test().dispose();
+        TestSubscriber<Optional<Task>> next = remote.getTask("1").test();
+        mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        next.assertValue(Optional.of(TASK));
+        assertFalse(remote.getStats().isCircuitOpen());
+        assertEquals(0, remote.getStats().getRejectedCount());
+    }
+
+    @Test
+    public void failedHedge_doesNotEndTheRace() {
+        ResilientRemoteDataSource remote = newRemote(new RemotePolicy.Builder()
+                .hedgeAfterPercentile(50, 3, 1, TimeUnit.MILLISECONDS));
+        mRemote.script(10, 10, 10, 50, FAIL);
+        warmUp(remote, 3);
+
+        TestSubscriber<Optional<Task>> subscriber = remote.getTask("1").test();
+        mScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+
+        subscriber.assertValue(Optional.of(TASK));
+        RemoteCallStats stats = remote.getStats();
+        assertEquals(1, stats.getHedgeCount());
+        assertEquals(0, stats.getHedgeWinCount());
+        assertEquals(0, stats.getRetryCount());
+    }
+
+    @Test
+    public void halfOpenTrial_isNotHedged() {
+        ResilientRemoteDataSource remote = newRemote(new RemotePolicy.Builder()
+                .hedgeAfterPercentile(50, 3, 1, TimeUnit.MILLISECONDS)
+                .retry(0, 10, 10, TimeUnit.MILLISECONDS)
+                .circuitBreaker(2, 1, TimeUnit.SECONDS));
+        mRemote.script(10, 10, 10, FAIL, FAIL, 50);
+        warmUp(remote, 3);
+        remote.getTask("1").test();
+        remote.getTask("1").test();
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+        TestSubscriber<Optional<Task>> trial = remote.getTask("1").test();
+        mScheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS);
+
+        trial.assertValue(Optional.of(TASK));
+        RemoteCallStats stats = remote.getStats();
+        assertEquals(0, stats.getHedgeCount());
+        assertEquals(0, stats.getRejectedCount());
+        assertFalse(stats.isCircuitOpen());
+    }
+
+    @Test
+    public void abandonedWrite_returnsBeforeTheRetryOrNextWriteStarts() throws Exception {
+        ResilientRemoteDataSource remote = new ResilientRemoteDataSource(mRemote, new RemotePolicy.Builder()
+                .deadline(50, TimeUnit.MILLISECONDS)
+                .retry(1, 10, 10, TimeUnit.MILLISECONDS)
+                .build(), Schedulers.io());
+        mRemote.mWriteGate = new CountDownLatch(1);
+
+        Thread complete = new Thread(() -> remote.completeTask("1"));
+        complete.start();
+        Thread.sleep(200);
+        Thread activate = new Thread(() -> remote.activateTask("1"));
+        activate.start();
+        Thread.sleep(100);
+
+        // The first attempt timed out long ago but is still running, so nothing else has gone out.
+        assertTrue(complete.isAlive());
+        assertTrue(activate.isAlive());
+        assertTrue(mRemote.mWrites.isEmpty());
+
+        mRemote.mWriteGate.countDown();
+        complete.join(5000);
+        activate.join(5000);
+
+        assertEquals(Arrays.asList("complete", "complete", "activate"), mRemote.mWrites);
+        assertEquals(1, remote.getStats().getTimeoutCount());
+    }
+
+    private void warmUp(@NonNull ResilientRemoteDataSource remote, int calls) {
+        for(int i = 0; i < calls; i++) {
+            remote.getTask("1").test();
+            mScheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @NonNull
+    private ResilientRemoteDataSource newRemote(@NonNull RemotePolicy.Builder policy) {
+        return new ResilientRemoteDataSource(mRemote, policy.build(), mScheduler);
+    }
+
+    // Answers getTask calls with the scripted latencies in order; FAIL answers with an error.
+    private static final class ScriptedRemote implements TasksDataSource {
+
+        final Queue<Long> mLatencies = new ArrayDeque<>();
+
+        final TestScheduler mScheduler;
+
+        int mCalls;
+
+        // Records mutations in the order they reach the remote; completes wait for the gate.
+        final List<String> mWrites = Collections.synchronizedList(new ArrayList<>());
+
+        CountDownLatch mWriteGate = new CountDownLatch(0);
+
+        ScriptedRemote(TestScheduler scheduler) {
+            mScheduler = scheduler;
+        }
+
+        void script(long... latencies) {
+            for(long latency : latencies) {
+                mLatencies.add(latency);
+            }
+        }
+
+        @Override
+        public Flowable<Optional<Task>> getTask(@NonNull String taskId) {
+            mCalls++;
+            long latency = mLatencies.remove();
+            if(latency == FAIL) {
+                return Flowable.error(new IllegalStateException("backend unavailable"));
+            }
+            return Flowable.just(Optional.of(TASK)).delay(latency, TimeUnit.MILLISECONDS, mScheduler);
+        }
+
+        @Override
+        public Flowable<List<Task>> getTasks() {
+            return Flowable.just(Arrays.asList(TASK));
+        }
+
+        @Override
+        public Flowable<List<Task>> getTasks(@NonNull TasksFilterType filterType) {
+            return getTasks();
+        }
+
+        @Override
+        public Flowable<TasksPage> getTasksPage(@NonNull TasksFilterType filterType, long afterKey, int pageSize) {
+            return Flowable.empty();
+        }
+
+        @Override
+        public Flowable<TaskCounts> getTaskCounts() {
+            return Flowable.empty();
+        }
+
+        @Override
+        public void saveTask(@NonNull Task task) {
+        }
+
+        @Override
+        public void saveTasks(@NonNull Collection<Task> tasks) {
+        }
+
+        @Override
+        public void completeTask(@NonNull Task task) {
+        }
+
+        @Override
+        public void completeTask(@NonNull String taskId) {
+            // Like a blocking HTTP call, it ignores the interrupt from the abandoned subscription.
+            Uninterruptibles.awaitUninterruptibly(mWriteGate);
+            mWrites.add("complete");
+        }
+
+        @Override
+        public void completeTasks(@NonNull Collection<String> taskIds) {
+        }
+
+        @Override
+        public void activateTask(@NonNull Task task) {
+        }
+
+        @Override
+        public void activateTask(@NonNull String taskId) {
+            mWrites.add("activate");
+        }
+
+        @Override
+        public void activateTasks(@NonNull Collection<String> taskIds) {
+        }
+
+        @Override
+        public void clearCompletedTasks() {
+        }
+
+        @Override
+        public void refreshTasks() {
+        }
+
+        @Override
+        public void deleteAllTasks() {
+        }
+
+        @Override
+        public void deleteTask(@NonNull String taskId) {
+        }
+
+        @Override
+        public void deleteTasks(@NonNull Collection<String> taskIds) {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.benmohammad.todorxjava.data.source.remote;
+
+import androidx.annotation.NonNull;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.TasksDelta;
+import com.benmohammad.todorxjava.data.TasksResponse;
+import com.google.common.base.Optional;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedRemoteDataSourceTest {
+
+    @Test
+    public void sameSeed_reproducesLatenciesAndFailures() {
+        List<String> first = runRequests(42);
+        List<String> second = runRequests(42);
+
+        assertEquals(first, second);
+        assertTrue(first.toString(), first.toString().contains("error"));
+    }
+
+    @Test
+    public void bandwidthCap_addsTransferTime() {
+        TestScheduler scheduler = new TestScheduler();
+        SimulatedRemoteDataSource backend = new SimulatedRemoteDataSource(new SimulatedBackendConfig.Builder()
+                .bandwidth(1000)
+                .taskCount(10)
+                .scheduler(scheduler)
+                .build());
+
+        TestSubscriber<List<Task>> subscriber = backend.getTasks().test();
+        long transferMillis = backend.getTransferredBytes() * 1000 / 1000;
+        scheduler.advanceTimeBy(transferMillis - 1, TimeUnit.MILLISECONDS);
+        subscriber.assertNotComplete();
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+        subscriber.assertComplete();
+        assertEquals(10, subscriber.values().get(0).size());
+    }
+
+    @Test
+    public void changesAndValidators_followTheSyncProtocols() {
+        SimulatedRemoteDataSource backend = new SimulatedRemoteDataSource(new SimulatedBackendConfig.Builder()
+                .taskCount(3)
+                .build());
+        TasksDelta initial = backend.getChangesSince(0).blockingFirst();
+        assertEquals(3, initial.getChangedTasks().size());
+        TasksResponse response = backend.getTasksIfModified(null).blockingFirst();
+
+        backend.completeTask("sim-0");
+        backend.deleteTask("sim-1");
+
+        TasksDelta delta = backend.getChangesSince(initial.getVersion()).blockingFirst();
+        assertEquals("sim-0", delta.getChangedTasks().get(0).getId());
+        assertTrue(delta.getChangedTasks().get(0).isCompleted());
+        assertEquals(Collections.singletonList("sim-1"), delta.getDeletedTaskIds());
+        TasksResponse modified = backend.getTasksIfModified(response.getValidator()).blockingFirst();
+        assertEquals(2, modified.getTasks().size());
+        assertTrue(backend.getTasksIfModified(modified.getValidator()).blockingFirst().isNotModified());
+    }
+
+    @Test
+    public void observeChanges_sendsBacklogThenEachLiveChange() {
+        SimulatedRemoteDataSource backend = new SimulatedRemoteDataSource(new SimulatedBackendConfig.Builder()
+                .taskCount(3)
+                .build());
+        long version = backend.getChangesSince(0).blockingFirst().getVersion();
+        backend.completeTask("sim-0");
+
+        TestSubscriber<TasksDelta> subscriber = backend.observeChanges(version).test();
+        backend.deleteTask("sim-1");
+        backend.saveTask(new Task("title", "description", "sim-3"));
+
+        subscriber.assertValueCount(3);
+        assertEquals("sim-0", subscriber.values().get(0).getChangedTasks().get(0).getId());
+        assertEquals(Collections.singletonList("sim-1"), subscriber.values().get(1).getDeletedTaskIds());
+        assertEquals("sim-3", subscriber.values().get(2).getChangedTasks().get(0).getId());
+        assertEquals(version + 3, subscriber.values().get(2).getVersion());
+
+        subscriber.cancel();
+        backend.deleteTask("sim-3");
+        subscriber.assertValueCount(3);
+    }
+
+    // Issues requests one at a time and records when and how each one finished.
+    @NonNull
+    private static List<String> runRequests(long seed) {
+        TestScheduler scheduler = new TestScheduler();
+        SimulatedRemoteDataSource backend = new SimulatedRemoteDataSource(new SimulatedBackendConfig.Builder()
+                .latency(LatencyDistribution.pareto(5, 1.5, 500))
+                .errorRate(0.3)
+                .seed(seed)
+                .taskCount(1)
+                .scheduler(scheduler)
+                .build());
+        List<String> outcomes = new ArrayList<>();
+        for(int i = 0; i < 20; i++) {
+            TestSubscriber<Optional<Task>> subscriber = backend.getTask("sim-0").test();
+            long elapsed = 0;
+            while(subscriber.valueCount() == 0 && subscriber.errorCount() == 0) {
+                scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+                elapsed++;
+            }
+            outcomes.add((subscriber.errorCount() > 0 ? "error@" : "ok@") + elapsed);
+        }
+        return outcomes;
+    }
+}
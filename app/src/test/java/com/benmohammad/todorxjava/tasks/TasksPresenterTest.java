@@ -0,0 +1,160 @@
+package com.benmohammad.todorxjava.tasks;
+
+import com.benmohammad.todorxjava.data.Task;
+import com.benmohammad.todorxjava.data.source.CachePolicy;
+import com.benmohammad.todorxjava.data.source.InMemoryTasksDataSource;
+import com.benmohammad.todorxjava.data.source.TasksRepository;
+import com.benmohammad.todorxjava.util.schedulers.ImmediateSchedulerProvider;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.schedulers.Schedulers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TasksPresenterTest {
+
+    @After
+    public void tearDown() {
+        TasksRepository.destroyInstance();
+    }
+
+    @Test
+    public void completingAnUncachedTaskUnderActive_removesItsRow() {
+        Task first = new Task("first", "description", "1");
+        Task second = new Task("second", "description", "2");
+        // Rows come from local pages and the remote is empty, so the repository cache never holds them.
+        TasksRepository repository = TasksRepository.getInstance(new InMemoryTasksDataSource(),
+                new InMemoryTasksDataSource(first, second), CachePolicy.unbounded(), Schedulers.trampoline());
+        RecordingView view = new RecordingView();
+        TasksPresenter presenter = new TasksPresenter(repository, view, new ImmediateSchedulerProvider());
+        presenter.setFiltering(TasksFilterType.ACTIVE_TASKS);
+        presenter.subscribe();
+        assertEquals(2, view.mShownTasks.size());
+
+        presenter.completeTasks(first);
+
+        assertEquals(Collections.singletonList("1"), view.mRemovedIds);
+        assertTrue(view.mTaskMarkedComplete);
+
+        presenter.activeTask(new Task("first", "description", "1", true));
+
+        // Now the lookup has cached it, so activating it publishes the whole task and the list
+        // reloads to put it back in order.
+        assertEquals(2, view.mShowTasksCount);
+        assertEquals(2, view.mShownTasks.size());
+    }
+
+    private static class RecordingView implements TasksContract.View {
+
+        final List<Task> mShownTasks = new ArrayList<>();
+
+        final List<String> mRemovedIds = new ArrayList<>();
+
+        int mShowTasksCount = 0;
+
+        boolean mTaskMarkedComplete = false;
+
+        @Override
+        public void setPresenter(TasksContract.Presenter presenter) {
+        }
+
+        @Override
+        public void setLoadingIndicator(boolean active) {
+        }
+
+        @Override
+        public void showTasks(List<Task> tasks) {
+            mShowTasksCount++;
+            mShownTasks.clear();
+            mShownTasks.addAll(tasks);
+        }
+
+        @Override
+        public void showMoreTasks(List<Task> tasks) {
+            mShownTasks.addAll(tasks);
+        }
+
+        @Override
+        public void updateTasks(List<Task> tasks) {
+        }
+
+        @Override
+        public void removeTasks(Collection<String> taskIds) {
+            mRemovedIds.addAll(taskIds);
+        }
+
+        @Override
+        public void showAddTask() {
+        }
+
+        @Override
+        public void showTaskDetailsUI(String taskId) {
+        }
+
+        @Override
+        public void showTaskMarkedComplete() {
+            mTaskMarkedComplete = true;
+        }
+
+        @Override
+        public void showTaskMarkedActive() {
+        }
+
+        @Override
+        public void showCompletedTasksCleared() {
+        }
+
+        @Override
+        public void showLoadingTasksError() {
+        }
+
+        @Override
+        public void showSaveTaskError() {
+        }
+
+        @Override
+        public void showNoTasks() {
+        }
+
+        @Override
+        public void showActiveFilterLabel() {
+        }
+
+        @Override
+        public void showCompletedFilterLabel() {
+        }
+
+        @Override
+        public void showAllFilterLabel() {
+        }
+
+        @Override
+        public void showNoActiveTasks() {
+        }
+
+        @Override
+        public void showNoCompletedTasks() {
+        }
+
+        @Override
+        public void showSuccessfullySavedMessage() {
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+
+        @Override
+        public void showFilteringPopUpMenu() {
+        }
+    }
+}